@@ -97,8 +97,9 @@ const InsightsPanel = ({refreshCounter}) => {
             // ExternalId now contains only the post ID (platform determines which API to call)
             const postId = post.externalId;
 
-            // Call backend service to fetch insights with platform and postId
-            const response = await fetch(`/modules/api/social/insights/${post.platform}/${postId}`, {
+            // Call backend service to fetch insights with platform and postId;
+            // the post UUID lets it answer from the stored metrics
+            const response = await fetch(`/modules/api/social/insights/${post.platform}/${postId}?post=${encodeURIComponent(post.uuid)}`, {
                 method: 'GET',
                 headers: {
                     'Content-Type': 'application/json'
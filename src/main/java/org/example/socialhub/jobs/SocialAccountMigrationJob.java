@@ -0,0 +1,99 @@
+package org.example.socialhub.jobs;
+
+import org.example.socialhub.service.SocialAccountService;
+import org.jahia.osgi.BundleUtils;
+import org.jahia.services.scheduler.BackgroundJob;
+import org.jahia.services.scheduler.SchedulerService;
+import org.jahia.settings.SettingsBean;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Background job that merges account nodes stored under legacy {platform}-{timestamp} names
+ * into their canonical {platform}_{externalId} node.
+ * Runs once when the module starts; sites without legacy nodes are left untouched. Account lookups
+ * read the legacy names too, so a failed run only delays the cleanup.
+ * 
+ * Only runs on processing servers to avoid duplicate execution in clustered environments.
+ */
+@Component(immediate = true)
+public class SocialAccountMigrationJob extends BackgroundJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialAccountMigrationJob.class);
+    
+    private SchedulerService schedulerService;
+    private JobDetail jobDetail;
+    
+    @Activate
+    public void start() throws Exception {
+        jobDetail = BackgroundJob.createJahiaJob(
+            "Social Hub - Merge Legacy Accounts",
+            SocialAccountMigrationJob.class
+        );
+        
+        if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            // Run once, right away
+            Trigger trigger = new SimpleTrigger(
+                "socialAccountMigrationJob_trigger",
+                jobDetail.getGroup()
+            );
+            
+            schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
+            logger.info("[JOB] SocialAccountMigrationJob scheduled successfully (once)");
+        } else {
+            logger.warn("[JOB] SocialAccountMigrationJob NOT scheduled - either job exists or not a processing server");
+        }
+    }
+    
+    @Deactivate
+    public void stop() throws Exception {
+        if (!schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            schedulerService.getScheduler().deleteJob(
+                jobDetail.getName(),
+                jobDetail.getGroup()
+            );
+            logger.info("SocialAccountMigrationJob unscheduled");
+        }
+    }
+    
+    @Override
+    public void executeJahiaJob(JobExecutionContext jobExecutionContext) {
+        logger.info("[JOB] ========== SocialAccountMigrationJob executing at {} ==========", new java.util.Date());
+        
+        try {
+            // Lookup service dynamically since BackgroundJob instances are created by Quartz, not OSGi
+            SocialAccountService socialAccountService = BundleUtils.getOsgiService(SocialAccountService.class, null);
+            if (socialAccountService == null) {
+                logger.error("[JOB] SocialAccountService not available - cannot merge legacy accounts");
+                return;
+            }
+            
+            int merged = socialAccountService.mergeDuplicateAccounts();
+            logger.info("[JOB] ========== SocialAccountMigrationJob completed - {} account node(s) merged ==========", merged);
+            
+        } catch (RepositoryException e) {
+            logger.error("[JOB] RepositoryException in SocialAccountMigrationJob", e);
+        } catch (Exception e) {
+            logger.error("[JOB] Unexpected error in SocialAccountMigrationJob", e);
+        }
+    }
+    
+    @Reference
+    public void setSchedulerService(SchedulerService schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.socialhub.jobs;
+
+import org.example.socialhub.service.SocialHeatmapService;
+import org.jahia.osgi.BundleUtils;
+import org.jahia.services.scheduler.BackgroundJob;
+import org.jahia.services.scheduler.SchedulerService;
+import org.jahia.settings.SettingsBean;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Background job that updates the best-time-to-post heatmaps from the stored metrics.
+ * Runs every hour; each run only adds the engagement gained since the previous one.
+ * 
+ * Only runs on processing servers to avoid duplicate execution in clustered environments.
+ */
+@Component(immediate = true)
+public class SocialHeatmapJob extends BackgroundJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialHeatmapJob.class);
+    
+    private SchedulerService schedulerService;
+    private JobDetail jobDetail;
+    
+    @Activate
+    public void start() throws Exception {
+        jobDetail = BackgroundJob.createJahiaJob(
+            "Social Hub - Update Posting Heatmaps",
+            SocialHeatmapJob.class
+        );
+        
+        if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            // Run every hour (3600000 milliseconds)
+            Trigger trigger = new SimpleTrigger(
+                "socialHeatmapJob_trigger",
+                jobDetail.getGroup(),
+                SimpleTrigger.REPEAT_INDEFINITELY,
+                3600000
+            );
+            
+            schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
+            logger.info("[JOB] SocialHeatmapJob scheduled successfully (every hour / 3600000ms)");
+        } else {
+            logger.warn("[JOB] SocialHeatmapJob NOT scheduled - either job exists or not a processing server");
+        }
+    }
+    
+    @Deactivate
+    public void stop() throws Exception {
+        if (!schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            schedulerService.getScheduler().deleteJob(
+                jobDetail.getName(),
+                jobDetail.getGroup()
+            );
+            logger.info("SocialHeatmapJob unscheduled");
+        }
+    }
+    
+    @Override
+    public void executeJahiaJob(JobExecutionContext jobExecutionContext) {
+        logger.info("[JOB] ========== SocialHeatmapJob executing at {} ==========", new java.util.Date());
+        
+        try {
+            // Lookup service dynamically since BackgroundJob instances are created by Quartz, not OSGi
+            SocialHeatmapService socialHeatmapService = BundleUtils.getOsgiService(SocialHeatmapService.class, null);
+            if (socialHeatmapService == null) {
+                logger.error("[JOB] SocialHeatmapService not available - cannot update heatmaps");
+                return;
+            }
+            
+            int updated = socialHeatmapService.updateHeatmaps();
+            logger.info("[JOB] ========== SocialHeatmapJob completed - {} series counted ==========", updated);
+            
+        } catch (RepositoryException e) {
+            logger.error("[JOB] RepositoryException in SocialHeatmapJob", e);
+        } catch (Exception e) {
+            logger.error("[JOB] Unexpected error in SocialHeatmapJob", e);
+        }
+    }
+    
+    @Reference
+    public void setSchedulerService(SchedulerService schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+}
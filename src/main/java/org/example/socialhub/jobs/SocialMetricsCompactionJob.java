@@ -0,0 +1,100 @@
+package org.example.socialhub.jobs;
+
+import org.example.socialhub.service.SocialMetricsService;
+import org.jahia.osgi.BundleUtils;
+import org.jahia.services.scheduler.BackgroundJob;
+import org.jahia.services.scheduler.SchedulerService;
+import org.jahia.settings.SettingsBean;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Background job that rolls old raw metrics samples up into hourly, daily and weekly buckets
+ * and deletes them, so metrics storage stays bounded, and rebuilds the per-site percentile sketches.
+ * Runs once a day.
+ * 
+ * Only runs on processing servers to avoid duplicate execution in clustered environments.
+ */
+@Component(immediate = true)
+public class SocialMetricsCompactionJob extends BackgroundJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialMetricsCompactionJob.class);
+    
+    private SchedulerService schedulerService;
+    private JobDetail jobDetail;
+    
+    @Activate
+    public void start() throws Exception {
+        jobDetail = BackgroundJob.createJahiaJob(
+            "Social Hub - Compact Metrics",
+            SocialMetricsCompactionJob.class
+        );
+        
+        if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            // Run every day (86400000 milliseconds)
+            Trigger trigger = new SimpleTrigger(
+                "socialMetricsCompactionJob_trigger",
+                jobDetail.getGroup(),
+                SimpleTrigger.REPEAT_INDEFINITELY,
+                86400000
+            );
+            
+            schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
+            logger.info("[JOB] SocialMetricsCompactionJob scheduled successfully (every day / 86400000ms)");
+        } else {
+            logger.warn("[JOB] SocialMetricsCompactionJob NOT scheduled - either job exists or not a processing server");
+        }
+    }
+    
+    @Deactivate
+    public void stop() throws Exception {
+        if (!schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            schedulerService.getScheduler().deleteJob(
+                jobDetail.getName(),
+                jobDetail.getGroup()
+            );
+            logger.info("SocialMetricsCompactionJob unscheduled");
+        }
+    }
+    
+    @Override
+    public void executeJahiaJob(JobExecutionContext jobExecutionContext) {
+        logger.info("[JOB] ========== SocialMetricsCompactionJob executing at {} ==========", new java.util.Date());
+        
+        try {
+            // Lookup service dynamically since BackgroundJob instances are created by Quartz, not OSGi
+            SocialMetricsService socialMetricsService = BundleUtils.getOsgiService(SocialMetricsService.class, null);
+            if (socialMetricsService == null) {
+                logger.error("[JOB] SocialMetricsService not available - cannot compact metrics");
+                return;
+            }
+            
+            int compacted = socialMetricsService.compactMetrics();
+            logger.info("[JOB] ========== SocialMetricsCompactionJob completed - {} series compacted ==========", compacted);
+            
+        } catch (RepositoryException e) {
+            logger.error("[JOB] RepositoryException in SocialMetricsCompactionJob", e);
+        } catch (Exception e) {
+            logger.error("[JOB] Unexpected error in SocialMetricsCompactionJob", e);
+        }
+    }
+    
+    @Reference
+    public void setSchedulerService(SchedulerService schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+}
@@ -20,7 +20,7 @@ import javax.jcr.RepositoryException;
 
 /**
  * Background job that refreshes social media metrics for published posts.
- * Runs periodically to fetch latest analytics data from external platforms.
+ * Runs every 5 minutes; each run only fetches the posts whose adaptive refresh date is due.
  * 
  * Uses Jahia BackgroundJob with SchedulerService for proper OSGi lifecycle management.
  * Only runs on processing servers to avoid duplicate execution in clustered environments.
@@ -49,16 +49,16 @@ public class SocialMetricsJob extends BackgroundJob {
         if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
             SettingsBean.getInstance().isProcessingServer()) {
             
-            // Run every hour (3600000 milliseconds)
+            // Run every 5 minutes (300000 milliseconds), the shortest per-post refresh interval
             Trigger trigger = new SimpleTrigger(
                 "socialMetricsJob_trigger",
                 jobDetail.getGroup(),
                 SimpleTrigger.REPEAT_INDEFINITELY,
-                3600000
+                300000
             );
             
             schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
-            logger.info("[JOB] SocialMetricsJob scheduled successfully (every hour / 3600000ms)");
+            logger.info("[JOB] SocialMetricsJob scheduled successfully (every 5 minutes / 300000ms)");
         } else {
             logger.warn("[JOB] SocialMetricsJob NOT scheduled - either job exists or not a processing server");
         }
@@ -0,0 +1,99 @@
+package org.example.socialhub.jobs;
+
+import org.example.socialhub.service.SocialTokenService;
+import org.jahia.osgi.BundleUtils;
+import org.jahia.services.scheduler.BackgroundJob;
+import org.jahia.services.scheduler.SchedulerService;
+import org.jahia.settings.SettingsBean;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Background job that validates social account tokens against their platforms.
+ * Runs every 30 minutes so that revoked tokens are known before their posts come due.
+ * 
+ * Only runs on processing servers to avoid duplicate execution in clustered environments.
+ */
+@Component(immediate = true)
+public class SocialTokenHealthJob extends BackgroundJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialTokenHealthJob.class);
+    
+    private SchedulerService schedulerService;
+    private JobDetail jobDetail;
+    
+    @Activate
+    public void start() throws Exception {
+        jobDetail = BackgroundJob.createJahiaJob(
+            "Social Hub - Check Token Health",
+            SocialTokenHealthJob.class
+        );
+        
+        if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            // Run every 30 minutes (1800000 milliseconds)
+            Trigger trigger = new SimpleTrigger(
+                "socialTokenHealthJob_trigger",
+                jobDetail.getGroup(),
+                SimpleTrigger.REPEAT_INDEFINITELY,
+                1800000
+            );
+            
+            schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
+            logger.info("[JOB] SocialTokenHealthJob scheduled successfully (every 30 minutes / 1800000ms)");
+        } else {
+            logger.warn("[JOB] SocialTokenHealthJob NOT scheduled - either job exists or not a processing server");
+        }
+    }
+    
+    @Deactivate
+    public void stop() throws Exception {
+        if (!schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            schedulerService.getScheduler().deleteJob(
+                jobDetail.getName(),
+                jobDetail.getGroup()
+            );
+            logger.info("SocialTokenHealthJob unscheduled");
+        }
+    }
+    
+    @Override
+    public void executeJahiaJob(JobExecutionContext jobExecutionContext) {
+        logger.info("[JOB] ========== SocialTokenHealthJob executing at {} ==========", new java.util.Date());
+        
+        try {
+            // Lookup service dynamically since BackgroundJob instances are created by Quartz, not OSGi
+            SocialTokenService socialTokenService = BundleUtils.getOsgiService(SocialTokenService.class, null);
+            if (socialTokenService == null) {
+                logger.error("[JOB] SocialTokenService not available - cannot check tokens");
+                return;
+            }
+            
+            int invalid = socialTokenService.checkTokenHealth();
+            logger.info("[JOB] ========== SocialTokenHealthJob completed - {} invalid token(s) ==========", invalid);
+            
+        } catch (RepositoryException e) {
+            logger.error("[JOB] RepositoryException in SocialTokenHealthJob", e);
+        } catch (Exception e) {
+            logger.error("[JOB] Unexpected error in SocialTokenHealthJob", e);
+        }
+    }
+    
+    @Reference
+    public void setSchedulerService(SchedulerService schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+}
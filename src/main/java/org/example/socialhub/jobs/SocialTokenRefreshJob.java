@@ -0,0 +1,99 @@
+package org.example.socialhub.jobs;
+
+import org.example.socialhub.service.SocialTokenService;
+import org.jahia.osgi.BundleUtils;
+import org.jahia.services.scheduler.BackgroundJob;
+import org.jahia.services.scheduler.SchedulerService;
+import org.jahia.settings.SettingsBean;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Background job that refreshes social account tokens before they expire.
+ * Runs hourly; only tokens inside the refresh window are actually renewed.
+ * 
+ * Only runs on processing servers to avoid duplicate execution in clustered environments.
+ */
+@Component(immediate = true)
+public class SocialTokenRefreshJob extends BackgroundJob {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialTokenRefreshJob.class);
+    
+    private SchedulerService schedulerService;
+    private JobDetail jobDetail;
+    
+    @Activate
+    public void start() throws Exception {
+        jobDetail = BackgroundJob.createJahiaJob(
+            "Social Hub - Refresh Tokens",
+            SocialTokenRefreshJob.class
+        );
+        
+        if (schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            // Run every hour (3600000 milliseconds)
+            Trigger trigger = new SimpleTrigger(
+                "socialTokenRefreshJob_trigger",
+                jobDetail.getGroup(),
+                SimpleTrigger.REPEAT_INDEFINITELY,
+                3600000
+            );
+            
+            schedulerService.getScheduler().scheduleJob(jobDetail, trigger);
+            logger.info("[JOB] SocialTokenRefreshJob scheduled successfully (every hour / 3600000ms)");
+        } else {
+            logger.warn("[JOB] SocialTokenRefreshJob NOT scheduled - either job exists or not a processing server");
+        }
+    }
+    
+    @Deactivate
+    public void stop() throws Exception {
+        if (!schedulerService.getAllJobs(jobDetail.getGroup()).isEmpty() &&
+            SettingsBean.getInstance().isProcessingServer()) {
+            
+            schedulerService.getScheduler().deleteJob(
+                jobDetail.getName(),
+                jobDetail.getGroup()
+            );
+            logger.info("SocialTokenRefreshJob unscheduled");
+        }
+    }
+    
+    @Override
+    public void executeJahiaJob(JobExecutionContext jobExecutionContext) {
+        logger.info("[JOB] ========== SocialTokenRefreshJob executing at {} ==========", new java.util.Date());
+        
+        try {
+            // Lookup service dynamically since BackgroundJob instances are created by Quartz, not OSGi
+            SocialTokenService socialTokenService = BundleUtils.getOsgiService(SocialTokenService.class, null);
+            if (socialTokenService == null) {
+                logger.error("[JOB] SocialTokenService not available - cannot refresh tokens");
+                return;
+            }
+            
+            int refreshed = socialTokenService.refreshExpiringTokens();
+            logger.info("[JOB] ========== SocialTokenRefreshJob completed - {} token(s) refreshed ==========", refreshed);
+            
+        } catch (RepositoryException e) {
+            logger.error("[JOB] RepositoryException in SocialTokenRefreshJob", e);
+        } catch (Exception e) {
+            logger.error("[JOB] Unexpected error in SocialTokenRefreshJob", e);
+        }
+    }
+    
+    @Reference
+    public void setSchedulerService(SchedulerService schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.socialhub.listeners;
+
+import org.example.socialhub.service.SocialAccountService;
+import org.jahia.services.content.DefaultEventListener;
+import org.jahia.services.content.ExternalEventListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JCR observation listener on socialnt:account nodes.
+ * Invalidates the SocialAccountService registry of the affected site whenever an account
+ * is added, changed or removed - locally or on another cluster node.
+ */
+@Component(service = DefaultEventListener.class, immediate = true)
+public class SocialAccountEventListener extends DefaultEventListener implements ExternalEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialAccountEventListener.class);
+
+    @Reference
+    private SocialAccountService socialAccountService;
+
+    @Activate
+    protected void activate() {
+        setWorkspace("default");
+        logger.info("[ACCOUNT] SocialAccountEventListener registered on socialnt:account nodes");
+    }
+
+    @Override
+    public int getEventTypes() {
+        return Event.NODE_ADDED | Event.NODE_REMOVED | Event.PROPERTY_ADDED
+            | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+    }
+
+    @Override
+    public String getPath() {
+        return "/sites";
+    }
+
+    @Override
+    public String[] getNodeTypes() {
+        return new String[]{"socialnt:account"};
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        // One save usually produces several events for the same site
+        Set<String> siteKeys = new HashSet<>();
+        while (events.hasNext()) {
+            Event event = events.nextEvent();
+            try {
+                String siteKey = extractSiteFromPath(event.getPath());
+                if (siteKey != null) {
+                    siteKeys.add(siteKey);
+                }
+            } catch (RepositoryException e) {
+                logger.warn("[ACCOUNT] Could not read account event path: {}", e.getMessage());
+            }
+        }
+        for (String siteKey : siteKeys) {
+            socialAccountService.invalidateAccounts(siteKey);
+        }
+    }
+
+    private String extractSiteFromPath(String path) {
+        // Extract site key from path like /sites/jsmod/contents/social-accounts/...
+        if (path != null && path.startsWith("/sites/")) {
+            String[] parts = path.split("/");
+            if (parts.length > 2) {
+                return parts[2];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.socialhub.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an account import: pages stored as new accounts, existing accounts updated,
+ * and pages skipped (e.g. missing permissions).
+ */
+public class AccountImportResult {
+
+    private int added;
+    private int updated;
+    private int skipped;
+    private final List<String> connectedNames = new ArrayList<>();
+
+    public void recordAdded(String name) {
+        added++;
+        connectedNames.add(name);
+    }
+
+    public void recordUpdated(String name) {
+        updated++;
+        connectedNames.add(name);
+    }
+
+    public void recordSkipped() {
+        skipped++;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Names of the accounts that were added or updated.
+     */
+    public List<String> getConnectedNames() {
+        return Collections.unmodifiableList(connectedNames);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d added, %d updated, %d skipped", added, updated, skipped);
+    }
+}
@@ -32,4 +32,14 @@ public interface ActivityLogService {
      * Log a rule execution.
      */
     void logRuleFired(String ruleName, String postId, String postTitle, String action) throws RepositoryException;
+    
+    /**
+     * Log an alert about a connected account (e.g. a token that could not be refreshed).
+     */
+    void logAccountAlert(String siteKey, String platform, String accountLabel, String errorMessage) throws RepositoryException;
+    
+    /**
+     * Log unusual metrics of a post (a sudden spike, or counters that stopped moving).
+     */
+    void logMetricsAnomaly(String postId, String postTitle, String platform, String message) throws RepositoryException;
 }
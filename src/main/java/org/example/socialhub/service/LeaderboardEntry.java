@@ -0,0 +1,63 @@
+package org.example.socialhub.service;
+
+/**
+ * One post of a leaderboard, with the counters it gained over the leaderboard's window.
+ */
+public class LeaderboardEntry {
+
+    private final String postUuid;
+    private final String platform;
+    private final double score;
+    private final long impressions;
+    private final long clicks;
+    private final long likes;
+    private final long comments;
+    private final long shares;
+
+    public LeaderboardEntry(String postUuid, String platform, double score, long impressions, long clicks,
+                            long likes, long comments, long shares) {
+        this.postUuid = postUuid;
+        this.platform = platform;
+        this.score = score;
+        this.impressions = impressions;
+        this.clicks = clicks;
+        this.likes = likes;
+        this.comments = comments;
+        this.shares = shares;
+    }
+
+    public String getPostUuid() {
+        return postUuid;
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    /**
+     * Value the post is ranked by: engagement rate (0..1), likes or shares.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getShares() {
+        return shares;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.socialhub.service;
+
+/**
+ * Metrics gained by all posts of a site on one platform, over one UTC day or a range of days.
+ */
+public class MetricsAggregate {
+
+    private final String siteKey;
+    private final String platform;
+    private final long day;
+    private final long impressions;
+    private final long clicks;
+    private final long likes;
+    private final long comments;
+    private final long shares;
+
+    public MetricsAggregate(String siteKey, String platform, long day, long impressions, long clicks, long likes,
+                            long comments, long shares) {
+        this.siteKey = siteKey;
+        this.platform = platform;
+        this.day = day;
+        this.impressions = impressions;
+        this.clicks = clicks;
+        this.likes = likes;
+        this.comments = comments;
+        this.shares = shares;
+    }
+
+    public String getSiteKey() {
+        return siteKey;
+    }
+
+    /**
+     * Platform key, or null for totals over all platforms.
+     */
+    public String getPlatform() {
+        return platform;
+    }
+
+    /**
+     * Start of the UTC day in epoch milliseconds (first day of the range for totals).
+     */
+    public long getDay() {
+        return day;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getShares() {
+        return shares;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.socialhub.service;
+
+/**
+ * Aggregate of a post's metrics samples over one hourly, daily or weekly bucket.
+ * Each value is a {@link MetricsSample} holding one figure per counter.
+ */
+public class MetricsRollup {
+
+    private final long start;
+    private final long resolution;
+    private final long sampleCount;
+    private final MetricsSample last;
+    private final MetricsSample delta;
+    private final MetricsSample min;
+    private final MetricsSample max;
+
+    public MetricsRollup(long start, long resolution, long sampleCount, MetricsSample last, MetricsSample delta,
+                         MetricsSample min, MetricsSample max) {
+        this.start = start;
+        this.resolution = resolution;
+        this.sampleCount = sampleCount;
+        this.last = last;
+        this.delta = delta;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Start of the bucket in epoch milliseconds.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Bucket length in milliseconds.
+     */
+    public long getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Number of raw samples aggregated into the bucket.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Last sample of the bucket, with its capture time.
+     */
+    public MetricsSample getLast() {
+        return last;
+    }
+
+    /**
+     * Change of each counter over the bucket, relative to the last value before it.
+     */
+    public MetricsSample getDelta() {
+        return delta;
+    }
+
+    public MetricsSample getMin() {
+        return min;
+    }
+
+    public MetricsSample getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.socialhub.service;
+
+/**
+ * Metrics of one post on one platform at a point in time.
+ */
+public class MetricsSample {
+
+    private final long capturedAt;
+    private final long impressions;
+    private final long clicks;
+    private final long likes;
+    private final long comments;
+    private final long shares;
+
+    public MetricsSample(long capturedAt, long impressions, long clicks, long likes, long comments, long shares) {
+        this.capturedAt = capturedAt;
+        this.impressions = impressions;
+        this.clicks = clicks;
+        this.likes = likes;
+        this.comments = comments;
+        this.shares = shares;
+    }
+
+    /**
+     * Capture time in epoch milliseconds.
+     */
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getShares() {
+        return shares;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.socialhub.service;
+
+/**
+ * Publishing adapter for one social platform.
+ * Implementations are registered as OSGi services and discovered by SocialPostService,
+ * so adding a platform never touches the core publishing loop.
+ *
+ * Each adapter declares its own execution policy (concurrency, timeouts, retries)
+ * so that a slow or rate-limited platform does not hold back the others.
+ */
+public interface PlatformPublisher {
+
+    /**
+     * Platform key as stored in social:platform (e.g. "facebook").
+     */
+    String getPlatform();
+
+    /**
+     * Maximum number of publish calls allowed in flight at once for this platform.
+     */
+    int getMaxConcurrency();
+
+    /**
+     * Maximum number of publish calls allowed in flight at once for a single account,
+     * since platform rate limits apply per Page / member token.
+     */
+    int getMaxConcurrencyPerAccount();
+
+    /**
+     * Connect timeout for platform API calls, in milliseconds.
+     */
+    int getConnectTimeout();
+
+    /**
+     * Read timeout for platform API calls, in milliseconds.
+     */
+    int getReadTimeout();
+
+    /**
+     * Number of retries for failures where the post cannot have been created (connection refused, HTTP 429).
+     */
+    int getMaxRetries();
+
+    /**
+     * Initial delay between retries in milliseconds, doubled on each attempt.
+     */
+    long getRetryBackoff();
+
+    /**
+     * Publishes a post to the platform.
+     *
+     * @param request the post content and context
+     * @return the external post ID on success, null on failure
+     */
+    String publish(PublishRequest request);
+}
@@ -0,0 +1,98 @@
+package org.example.socialhub.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Engagement of a site's posts by publication slot: weekday and hour, in the heatmap's time zone.
+ * Slots are numbered (dayOfWeek - 1) * 24 + hour, with dayOfWeek 1 (Monday) to 7 (Sunday).
+ */
+public class PostingHeatmap {
+
+    public static final int SLOTS = 7 * 24;
+
+    private final String siteKey;
+    private final String platform;
+    private final String timeZone;
+    private final long updatedAt;
+    private final long[] posts;
+    private final long[] engagement;
+
+    public PostingHeatmap(String siteKey, String platform, String timeZone, long updatedAt, long[] posts,
+                          long[] engagement) {
+        this.siteKey = siteKey;
+        this.platform = platform;
+        this.timeZone = timeZone;
+        this.updatedAt = updatedAt;
+        this.posts = posts.clone();
+        this.engagement = engagement.clone();
+    }
+
+    public String getSiteKey() {
+        return siteKey;
+    }
+
+    /**
+     * Platform key, or null for all platforms.
+     */
+    public String getPlatform() {
+        return platform;
+    }
+
+    /**
+     * Time zone ID the weekdays and hours are expressed in.
+     */
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Number of posts published in a slot.
+     */
+    public long getPosts(int slot) {
+        return posts[slot];
+    }
+
+    /**
+     * Latest engagement (clicks, likes, comments, shares) summed over the posts published in a slot.
+     */
+    public long getEngagement(int slot) {
+        return engagement[slot];
+    }
+
+    public double getAverageEngagement(int slot) {
+        return posts[slot] > 0 ? (double) engagement[slot] / posts[slot] : 0;
+    }
+
+    /**
+     * Slots with the highest average engagement per post, best first.
+     *
+     * @param minPosts slots with fewer posts are left out, as their average says little
+     */
+    public List<Integer> getBestSlots(int limit, int minPosts) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (posts[slot] >= Math.max(1, minPosts)) {
+                slots.add(slot);
+            }
+        }
+        slots.sort((a, b) -> Double.compare(getAverageEngagement(b), getAverageEngagement(a)));
+        return slots.subList(0, Math.min(Math.max(0, limit), slots.size()));
+    }
+
+    public static int slot(int dayOfWeek, int hour) {
+        return (dayOfWeek - 1) * 24 + hour;
+    }
+
+    public static int dayOfWeek(int slot) {
+        return slot / 24 + 1;
+    }
+
+    public static int hour(int slot) {
+        return slot % 24;
+    }
+}
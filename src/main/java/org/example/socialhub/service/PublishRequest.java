@@ -0,0 +1,66 @@
+package org.example.socialhub.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Content and context of a single post to publish, handed to a {@link PlatformPublisher}.
+ */
+public class PublishRequest {
+
+    private final String siteKey;
+    private final String postUuid;
+    private final String postPath;
+    private final String accountId;
+    private final String title;
+    private final String message;
+    private final String linkUrl;
+    private final List<String> imageUrls;
+
+    public PublishRequest(String siteKey, String postUuid, String postPath, String accountId, String title,
+                          String message, String linkUrl, List<String> imageUrls) {
+        this.siteKey = siteKey;
+        this.postUuid = postUuid;
+        this.postPath = postPath;
+        this.accountId = accountId;
+        this.title = title;
+        this.message = message;
+        this.linkUrl = linkUrl;
+        this.imageUrls = imageUrls != null ? Collections.unmodifiableList(imageUrls) : Collections.emptyList();
+    }
+
+    public String getSiteKey() {
+        return siteKey;
+    }
+
+    public String getPostUuid() {
+        return postUuid;
+    }
+
+    public String getPostPath() {
+        return postPath;
+    }
+
+    /**
+     * Platform ID of the account to publish with (Page ID, person ID), or null to use the site's default account.
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getLinkUrl() {
+        return linkUrl;
+    }
+
+    public List<String> getImageUrls() {
+        return imageUrls;
+    }
+}
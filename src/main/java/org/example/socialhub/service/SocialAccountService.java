@@ -1,24 +1,38 @@
 package org.example.socialhub.service;
 
 import javax.jcr.RepositoryException;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Service for managing connected social media accounts.
+ * Account lookups are served from an in-memory registry loaded once per site;
+ * the registry is invalidated whenever socialnt:account nodes change.
  */
 public interface SocialAccountService {
     
     /**
      * Connect a Facebook account by exchanging user access token for page tokens.
-     * Calls Facebook /me/accounts endpoint and stores page credentials.
+     * Follows every page of the Facebook /me/accounts endpoint and upserts the credentials
+     * of all pages the user can publish to.
      * 
      * @param userAccessToken Facebook user access token
      * @param siteKey The site key where accounts will be stored
-     * @return List of connected page names
+     * @return counts of added, updated and skipped pages, with the connected page names
      * @throws RepositoryException if JCR operation fails
      */
-    List<String> connectFacebookAccount(String userAccessToken, String siteKey) throws RepositoryException;
+    AccountImportResult connectFacebookAccount(String userAccessToken, String siteKey) throws RepositoryException;
+    
+    /**
+     * Connect the Instagram business accounts linked to the Facebook Pages of a user.
+     * Follows every page of /me/accounts and upserts one instagram_{igUserId} account per
+     * linked business account; publishing uses the token of the Page it is linked to.
+     * 
+     * @param userAccessToken Facebook user access token (Facebook Login with Instagram permissions)
+     * @param siteKey The site key where accounts will be stored
+     * @return counts of added, updated and skipped accounts, with the connected usernames
+     * @throws RepositoryException if JCR operation fails
+     */
+    AccountImportResult connectInstagramAccounts(String userAccessToken, String siteKey) throws RepositoryException;
     
     /**
      * Get stored Facebook Page credentials for a site.
@@ -56,11 +70,12 @@ public interface SocialAccountService {
      * @param name Display name
      * @param email Email address
      * @param accessToken LinkedIn access token
+     * @param refreshToken LinkedIn refresh token, or null if the app is not entitled to refresh tokens
      * @param expiresIn Token expiration time in seconds
      * @throws RepositoryException if JCR operation fails
      */
     void connectLinkedInAccount(String siteKey, String personId, String name, String email, 
-                                String accessToken, int expiresIn) throws RepositoryException;
+                                String accessToken, String refreshToken, int expiresIn) throws RepositoryException;
     
     /**
      * Get stored LinkedIn credentials for a site.
@@ -71,6 +86,15 @@ public interface SocialAccountService {
      */
     Map<String, Map<String, String>> getLinkedInAccounts(String siteKey) throws RepositoryException;
     
+    /**
+     * Get stored Instagram business account credentials for a site.
+     * 
+     * @param siteKey The site key
+     * @return Map of Instagram user ID to credentials (accountId, username, pageId, accessToken)
+     * @throws RepositoryException if JCR operation fails
+     */
+    Map<String, Map<String, String>> getInstagramAccounts(String siteKey) throws RepositoryException;
+    
     /**
      * Disconnect a LinkedIn account.
      * 
@@ -79,4 +103,45 @@ public interface SocialAccountService {
      * @throws RepositoryException if JCR operation fails
      */
     void disconnectLinkedInAccount(String siteKey, String personId) throws RepositoryException;
+    
+    /**
+     * Get the credentials of one account from the site registry.
+     * 
+     * @param siteKey The site key
+     * @param platform Platform key ("facebook", "linkedin" or "instagram")
+     * @param accountId The account ID on the platform, or null for the site's default account
+     * @return the account credentials (same keys as getFacebookAccounts / getLinkedInAccounts), or null if not found
+     * @throws RepositoryException if JCR operation fails
+     */
+    Map<String, String> getAccount(String siteKey, String platform, String accountId) throws RepositoryException;
+    
+    /**
+     * Get the account a site publishes with when a post does not name one:
+     * the first connected account of the platform, in content order.
+     * 
+     * @param siteKey The site key
+     * @param platform Platform key ("facebook", "linkedin" or "instagram")
+     * @return the account ID on the platform, or null if no account is connected
+     * @throws RepositoryException if JCR operation fails
+     */
+    String getDefaultAccountId(String siteKey, String platform) throws RepositoryException;
+    
+    /**
+     * Drop the cached account registry for a site so the next lookup reloads it from JCR.
+     * Called after account changes, including those observed on other cluster nodes.
+     * 
+     * @param siteKey The site key
+     */
+    void invalidateAccounts(String siteKey);
+    
+    /**
+     * Merge account nodes stored under legacy {platform}-{timestamp} names into their canonical
+     * {platform}_{externalId} node, for every site, pointing posts' social:account references at the
+     * canonical node. Run once by SocialAccountMigrationJob; account lookups never write, and read the
+     * legacy names too until they are merged.
+     * 
+     * @return the number of nodes merged away or renamed
+     * @throws RepositoryException if JCR operation fails
+     */
+    int mergeDuplicateAccounts() throws RepositoryException;
 }
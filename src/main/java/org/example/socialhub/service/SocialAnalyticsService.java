@@ -0,0 +1,49 @@
+package org.example.socialhub.service;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Site-level metrics aggregates, maintained incrementally as post metrics are collected.
+ * Reads cost one node per site, platform and month, whatever the number of posts.
+ */
+public interface SocialAnalyticsService {
+
+    /**
+     * Adds metrics changes to the daily aggregates of their site and platform.
+     *
+     * @param deltas changes since the previously stored samples, one entry per site, platform and day
+     * @throws RepositoryException if JCR operations fail
+     */
+    void addMetrics(Collection<MetricsAggregate> deltas) throws RepositoryException;
+
+    /**
+     * Adds metrics changes to the daily aggregates in the given session, without saving it, so the
+     * caller saves them together with the samples they come from.
+     *
+     * @param deltas changes since the previously stored samples, one entry per site, platform and day
+     * @throws RepositoryException if JCR operations fail
+     */
+    void addMetrics(Session session, Collection<MetricsAggregate> deltas) throws RepositoryException;
+
+    /**
+     * Daily aggregates of a site in a date range, oldest first. Days without any change are omitted.
+     *
+     * @param siteKey the site key
+     * @param platform platform key, or null for all platforms (one entry per platform and day)
+     * @param from start of the range in epoch milliseconds, inclusive
+     * @param to end of the range in epoch milliseconds, inclusive
+     * @throws RepositoryException if JCR operations fail
+     */
+    List<MetricsAggregate> getDailyMetrics(String siteKey, String platform, long from, long to) throws RepositoryException;
+
+    /**
+     * Sum of the daily aggregates of a site in a date range.
+     *
+     * @param platform platform key, or null to sum all platforms
+     * @throws RepositoryException if JCR operations fail
+     */
+    MetricsAggregate getTotalMetrics(String siteKey, String platform, long from, long to) throws RepositoryException;
+}
@@ -0,0 +1,57 @@
+package org.example.socialhub.service;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Distribution of post metrics per site, platform and metric, kept as mergeable quantile sketches,
+ * so a post can be placed against the site's other posts without reading their metrics.
+ * Sketches are rebuilt from the posts' latest metrics during metrics compaction.
+ */
+public interface SocialBenchmarkService {
+
+    String METRIC_IMPRESSIONS = "impressions";
+    String METRIC_LIKES = "likes";
+    String METRIC_COMMENTS = "comments";
+    String METRIC_SHARES = "shares";
+    /**
+     * clicks + likes + comments + shares
+     */
+    String METRIC_ENGAGEMENT = "engagement";
+
+    /**
+     * Adds the latest metrics of one post to the sketches being rebuilt.
+     */
+    void addPostMetrics(String siteKey, String platform, MetricsSample latest);
+
+    /**
+     * Stores the sketches rebuilt since the previous call, replacing the stored ones of the same
+     * site, platform and metric, and starts a new rebuild.
+     *
+     * @return number of sketches stored
+     * @throws RepositoryException if JCR operations fail
+     */
+    int publishSketches() throws RepositoryException;
+
+    /**
+     * Estimated percentile rank of a value among the site's posts: the percentage of posts below it,
+     * counting equal values half.
+     *
+     * @param platform platform key, or null to rank against all platforms
+     * @param metric one of the METRIC_* keys
+     * @return 0 to 100, or null if no sketch has been built yet
+     * @throws IllegalArgumentException if the metric is unknown
+     * @throws RepositoryException if JCR operations fail
+     */
+    Double getPercentileRank(String siteKey, String platform, String metric, long value) throws RepositoryException;
+
+    /**
+     * Estimated value at a percentile of the site's posts (e.g. 90 for the 90th percentile).
+     *
+     * @param platform platform key, or null for all platforms
+     * @param metric one of the METRIC_* keys
+     * @return the value, or null if no sketch has been built yet
+     * @throws IllegalArgumentException if the metric is unknown
+     * @throws RepositoryException if JCR operations fail
+     */
+    Long getPercentile(String siteKey, String platform, String metric, double percentile) throws RepositoryException;
+}
@@ -0,0 +1,28 @@
+package org.example.socialhub.service;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Best-time-to-post heatmaps: engagement of each site's posts by platform and publication weekday and hour,
+ * precomputed from the stored metrics so the calendar can show recommendations without any computation.
+ */
+public interface SocialHeatmapService {
+
+    /**
+     * Adds the engagement gained since the previous update of posts whose metrics may have changed,
+     * and posts not counted yet. Sites are processed in parallel.
+     *
+     * @return number of metrics series whose contribution changed
+     * @throws RepositoryException if JCR operations fail
+     */
+    int updateHeatmaps() throws RepositoryException;
+
+    /**
+     * Stored heatmap of a site.
+     *
+     * @param platform platform key, or null to sum all platforms
+     * @return the heatmap, or null if it was never computed
+     * @throws RepositoryException if JCR operations fail
+     */
+    PostingHeatmap getHeatmap(String siteKey, String platform) throws RepositoryException;
+}
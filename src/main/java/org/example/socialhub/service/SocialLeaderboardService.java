@@ -0,0 +1,51 @@
+package org.example.socialhub.service;
+
+import javax.jcr.RepositoryException;
+import java.util.List;
+
+/**
+ * Top posts per site and platform over rolling windows, updated as metrics are collected.
+ * Rankings are stored per site and platform so every cluster node can serve them; reads are served
+ * from memory and never call the platforms.
+ */
+public interface SocialLeaderboardService {
+
+    /**
+     * (likes + comments + shares + clicks) / impressions; posts without impressions are not ranked.
+     */
+    String METRIC_ENGAGEMENT_RATE = "engagementRate";
+    String METRIC_LIKES = "likes";
+    String METRIC_SHARES = "shares";
+
+    String WINDOW_DAY = "1d";
+    String WINDOW_WEEK = "7d";
+    String WINDOW_MONTH = "30d";
+
+    /**
+     * Records the change of a post's counters since its previous sample, once that sample is saved.
+     *
+     * @param change counter changes, with the capture time of the new sample
+     */
+    void recordMetrics(String siteKey, String platform, String postUuid, MetricsSample change);
+
+    /**
+     * Recomputes the rankings from the recorded changes. Called after each metrics run,
+     * so windows also roll forward for posts that did not change, and stores them.
+     *
+     * @throws RepositoryException if JCR operations fail
+     */
+    void refreshLeaderboards() throws RepositoryException;
+
+    /**
+     * Current ranking, best first.
+     *
+     * @param platform platform key, or null to merge all platforms
+     * @param metric one of the METRIC_* keys
+     * @param window one of the WINDOW_* keys
+     * @param limit maximum number of entries (at most the configured leaderboard size)
+     * @throws IllegalArgumentException if the metric or window is unknown
+     * @throws RepositoryException if JCR operations fail
+     */
+    List<LeaderboardEntry> getLeaderboard(String siteKey, String platform, String metric, String window, int limit)
+        throws RepositoryException;
+}
@@ -1,6 +1,7 @@
 package org.example.socialhub.service;
 
 import javax.jcr.RepositoryException;
+import java.util.List;
 
 /**
  * Service for managing social media metrics.
@@ -8,9 +9,13 @@ import javax.jcr.RepositoryException;
  */
 public interface SocialMetricsService {
     
+    String RESOLUTION_HOURLY = "hourly";
+    String RESOLUTION_DAILY = "daily";
+    String RESOLUTION_WEEKLY = "weekly";
+    
     /**
      * Refreshes metrics for all published posts.
-     * Queries external APIs for latest analytics data and stores as socialnt:metrics child nodes.
+     * Queries external APIs for latest analytics data and appends it to the posts' metrics series.
      * 
      * @throws RepositoryException if JCR operations fail
      */
@@ -23,4 +28,52 @@ public interface SocialMetricsService {
      * @throws RepositoryException if JCR operations fail
      */
     void refreshMetricsForPost(String postUuid) throws RepositoryException;
+    
+    /**
+     * Latest metrics of a post on a platform, checked against the site and platform post they are asked for.
+     * 
+     * @param siteKey site the post must belong to
+     * @param postUuid UUID of the socialnt:post node
+     * @param platform platform key (e.g. "facebook")
+     * @param externalId ID of the post on the platform, which the stored metrics must be for
+     * @return the latest sample, or null if no metrics were collected yet or the post does not match
+     * @throws RepositoryException if JCR operations fail
+     */
+    MetricsSample getLatestMetrics(String siteKey, String postUuid, String platform, String externalId)
+        throws RepositoryException;
+    
+    /**
+     * Metrics samples of a post on a platform captured in a time range, oldest first.
+     * 
+     * @param postUuid UUID of the socialnt:post node
+     * @param platform platform key (e.g. "facebook")
+     * @param from start of the range in epoch milliseconds, inclusive
+     * @param to end of the range in epoch milliseconds, inclusive
+     * @throws RepositoryException if JCR operations fail
+     */
+    List<MetricsSample> getMetricsHistory(String postUuid, String platform, long from, long to) throws RepositoryException;
+    
+    /**
+     * Rolled-up metrics of a post on a platform whose buckets overlap a time range, oldest first.
+     * Raw samples are rolled up once they are older than the raw retention window.
+     * 
+     * @param postUuid UUID of the socialnt:post node
+     * @param platform platform key (e.g. "facebook")
+     * @param resolution RESOLUTION_HOURLY, RESOLUTION_DAILY or RESOLUTION_WEEKLY
+     * @param from start of the range in epoch milliseconds, inclusive
+     * @param to end of the range in epoch milliseconds, inclusive
+     * @throws RepositoryException if JCR operations fail
+     */
+    List<MetricsRollup> getMetricsRollups(String postUuid, String platform, String resolution, long from, long to)
+        throws RepositoryException;
+    
+    /**
+     * Rolls raw metrics samples past the retention window into hourly, daily and weekly buckets
+     * and deletes them, with batched saves. Also rebuilds the percentile sketches of SocialBenchmarkService
+     * from the latest metrics of every post.
+     * 
+     * @return number of metrics series changed
+     * @throws RepositoryException if JCR operations fail
+     */
+    int compactMetrics() throws RepositoryException;
 }
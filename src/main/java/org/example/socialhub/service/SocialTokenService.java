@@ -0,0 +1,42 @@
+package org.example.socialhub.service;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Service keeping the access tokens of connected socialnt:account nodes fresh.
+ * Tokens are refreshed ahead of their social:tokenExpiry so that scheduled posts
+ * never hit an expired token at publish time.
+ */
+public interface SocialTokenService {
+    
+    /**
+     * Refreshes every token expiring within the configured refresh window, earliest expiry first.
+     * Accounts whose token cannot be refreshed are flagged through social:tokenStatus
+     * and an account_alert activity log entry.
+     * Should be called periodically by a scheduler.
+     * 
+     * @return number of tokens successfully refreshed
+     * @throws RepositoryException if JCR operations fail
+     */
+    int refreshExpiringTokens() throws RepositoryException;
+    
+    /**
+     * Validates every account token against its platform (Facebook debug_token in Graph batch calls,
+     * LinkedIn token introspection) and caches the outcome for a limited time.
+     * Should be called periodically by a scheduler.
+     * 
+     * @return number of tokens found invalid
+     * @throws RepositoryException if JCR operations fail
+     */
+    int checkTokenHealth() throws RepositoryException;
+    
+    /**
+     * Cached health of an account token.
+     * 
+     * @param siteKey The site key
+     * @param platform The platform key
+     * @param accountId The account ID on the platform, or null for the site's default account
+     * @return the last check result, or null if the account was not checked recently
+     */
+    TokenHealth getTokenHealth(String siteKey, String platform, String accountId);
+}
@@ -0,0 +1,41 @@
+package org.example.socialhub.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of the last health check of an account token: validity, granted scopes and when it was checked.
+ */
+public class TokenHealth {
+
+    private final boolean valid;
+    private final List<String> scopes;
+    private final String error;
+    private final long checkedAt;
+
+    public TokenHealth(boolean valid, List<String> scopes, String error, long checkedAt) {
+        this.valid = valid;
+        this.scopes = scopes != null ? Collections.unmodifiableList(scopes) : Collections.emptyList();
+        this.error = error;
+        this.checkedAt = checkedAt;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public List<String> getScopes() {
+        return scopes;
+    }
+
+    /**
+     * Platform error message when the token is invalid, null otherwise.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+}
@@ -0,0 +1,247 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PlatformPublisher;
+import org.example.socialhub.util.JsonStreamParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class for platform publishing adapters.
+ * Holds the per-platform execution policy read from the SocialProxyServlet configuration
+ * ({platform}MaxConcurrency, {platform}AccountMaxConcurrency, {platform}ConnectTimeout, {platform}ReadTimeout,
+ * {platform}MaxRetries, {platform}RetryBackoff) and the shared HTTP plumbing.
+ */
+public abstract class AbstractPlatformPublisher implements PlatformPublisher {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    protected String authToken = "your-api-token-here";
+
+    private int maxConcurrency = 2;
+    private int maxConcurrencyPerAccount = 1;
+    private int connectTimeout = 10000;
+    private int readTimeout = 30000;
+    private int maxRetries = 2;
+    private long retryBackoff = 1000;
+
+    /**
+     * Read the shared and platform-prefixed settings. Subclasses call this from their @Activate method.
+     */
+    protected void configure(Map<String, Object> properties) {
+        String prefix = getPlatform();
+        if (properties.get("authToken") != null) {
+            authToken = (String) properties.get("authToken");
+        }
+        maxConcurrency = Math.max(1, getInt(properties, prefix + "MaxConcurrency", getDefaultMaxConcurrency()));
+        maxConcurrencyPerAccount = Math.max(1, Math.min(maxConcurrency,
+            getInt(properties, prefix + "AccountMaxConcurrency", maxConcurrencyPerAccount)));
+        connectTimeout = getInt(properties, prefix + "ConnectTimeout", connectTimeout);
+        readTimeout = getInt(properties, prefix + "ReadTimeout", getDefaultReadTimeout());
+        maxRetries = Math.max(0, getInt(properties, prefix + "MaxRetries", maxRetries));
+        retryBackoff = getInt(properties, prefix + "RetryBackoff", (int) retryBackoff);
+
+        logger.info("[PUBLISH] {} publisher activated - maxConcurrency: {} ({} per account), timeouts: {}/{}ms, retries: {} (backoff {}ms)",
+            prefix, maxConcurrency, maxConcurrencyPerAccount, connectTimeout, readTimeout, maxRetries, retryBackoff);
+    }
+
+    protected int getDefaultMaxConcurrency() {
+        return 2;
+    }
+
+    protected int getDefaultReadTimeout() {
+        return 30000;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public int getMaxConcurrencyPerAccount() {
+        return maxConcurrencyPerAccount;
+    }
+
+    @Override
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /**
+     * POST a payload and stream-parse the wanted top-level fields from the JSON response.
+     * Only failures where the post cannot have been created are retried, according to the retry policy:
+     * connection refused, and HTTP 429 (the rate limiter rejects before the request is processed).
+     * Other errors, HTTP 503 included, are not, since a gateway may answer 503 after the platform has
+     * already created the post, and a retry would publish it twice.
+     *
+     * @return the parsed fields, or null if the call failed
+     */
+    protected Map<String, String> post(String endpoint, String contentType, String payload,
+                                       Map<String, String> headers, String operation, String... fields) {
+        long backoff = retryBackoff;
+        for (int attempt = 0; ; attempt++) {
+            HttpURLConnection conn = null;
+            try {
+                conn = (HttpURLConnection) new URL(endpoint).openConnection();
+                conn.setRequestMethod("POST");
+                conn.setRequestProperty("Content-Type", contentType);
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
+                conn.setDoOutput(true);
+                conn.setConnectTimeout(connectTimeout);
+                conn.setReadTimeout(readTimeout);
+
+                try (OutputStream os = conn.getOutputStream()) {
+                    byte[] input = payload.getBytes(StandardCharsets.UTF_8);
+                    os.write(input, 0, input.length);
+                }
+
+                int responseCode = conn.getResponseCode();
+                if (responseCode >= 200 && responseCode < 300) {
+                    try (InputStream inputStream = conn.getInputStream()) {
+                        return JsonStreamParser.readFields(inputStream, fields);
+                    }
+                }
+
+                String errorBody = readErrorBody(conn);
+                if (responseCode == 429 && attempt < maxRetries) {
+                    logger.warn("[PUBLISH] {} returned HTTP {} - retrying in {}ms (attempt {}/{})",
+                        operation, responseCode, backoff, attempt + 1, maxRetries);
+                } else {
+                    logger.error("[PUBLISH] {} failed: HTTP {} - {}", operation, responseCode, errorBody);
+                    return null;
+                }
+            } catch (ConnectException e) {
+                if (attempt >= maxRetries) {
+                    logger.error("[PUBLISH] {} failed: {}", operation, e.getMessage());
+                    return null;
+                }
+                logger.warn("[PUBLISH] {} could not connect - retrying in {}ms (attempt {}/{})",
+                    operation, backoff, attempt + 1, maxRetries);
+            } catch (IOException e) {
+                logger.error("[PUBLISH] Error during " + operation, e);
+                return null;
+            } finally {
+                if (conn != null) {
+                    conn.disconnect();
+                }
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            backoff *= 2;
+        }
+    }
+
+    protected Map<String, String> postJson(String endpoint, String accessToken, String jsonPayload,
+                                           Map<String, String> extraHeaders, String operation, String... fields) {
+        Map<String, String> headers = new LinkedHashMap<>(extraHeaders);
+        headers.put("Authorization", "Bearer " + accessToken);
+        return post(endpoint, "application/json", jsonPayload, headers, operation, fields);
+    }
+
+    protected Map<String, String> postForm(String endpoint, String formPayload, String operation, String... fields) {
+        return post(endpoint, "application/x-www-form-urlencoded", formPayload, Collections.emptyMap(), operation, fields);
+    }
+
+    /**
+     * Extract the external post ID from the parsed "id" / "post_id" members.
+     * Facebook IDs come as pageId_postId; only the post ID part is stored.
+     */
+    protected String toExternalId(Map<String, String> fields, String operation) {
+        if (fields == null) {
+            return null;
+        }
+        String fullId = fields.get("id") != null ? fields.get("id") : fields.get("post_id");
+        if (fullId == null || fullId.isEmpty()) {
+            logger.warn("[PUBLISH] >>> Could not extract post ID from {} response", operation);
+            return null;
+        }
+        logger.info("[PUBLISH] >>> Full ID from {} response: {}", operation, fullId);
+
+        if (fullId.contains("_")) {
+            String postId = fullId.substring(fullId.indexOf("_") + 1);
+            logger.info("[PUBLISH] >>> Extracted post ID (after underscore): {}", postId);
+            return postId;
+        }
+        return fullId;
+    }
+
+    protected String escapeJson(String input) {
+        if (input == null) return "";
+        return input
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n")
+            .replace("\r", "\\r")
+            .replace("\t", "\\t");
+    }
+
+    protected static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private String readErrorBody(HttpURLConnection conn) {
+        InputStream errorStream = conn.getErrorStream();
+        if (errorStream == null) {
+            return "";
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+            StringBuilder errorResponse = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                errorResponse.append(line);
+            }
+            return errorResponse.toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static int getInt(Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            LoggerFactory.getLogger(AbstractPlatformPublisher.class)
+                .warn("[PUBLISH] Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
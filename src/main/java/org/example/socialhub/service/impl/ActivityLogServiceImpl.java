@@ -67,17 +67,38 @@ public class ActivityLogServiceImpl implements ActivityLogService {
         logger.info("[ACTIVITY] Logged rule execution: {} - {}", postTitle, message);
     }
     
+    @Override
+    public void logAccountAlert(String siteKey, String platform, String accountLabel, String errorMessage) throws RepositoryException {
+        String message = String.format("Account '%s' on %s needs attention", accountLabel, platform);
+        createLogEntry(siteKey, "account_alert", null, null, platform, null, message, errorMessage);
+        logger.info("[ACTIVITY] Logged account alert: {} - {}", accountLabel, message);
+    }
+    
+    @Override
+    public void logMetricsAnomaly(String postId, String postTitle, String platform, String message) throws RepositoryException {
+        createLogEntry("metrics_anomaly", postId, postTitle, platform, null, message, null);
+        logger.info("[ACTIVITY] Logged metrics anomaly: {} - {}", postTitle, message);
+    }
+    
     /**
      * Create a log entry node in the JCR.
      */
     private void createLogEntry(String action, String postId, String postTitle, String platform, 
                                 String status, String message, String errorMessage) throws RepositoryException {
+        createLogEntry(null, action, postId, postTitle, platform, status, message, errorMessage);
+    }
+    
+    /**
+     * Create a log entry node in the JCR, under the given site or, if null, the site of the post.
+     */
+    private void createLogEntry(String siteKey, String action, String postId, String postTitle, String platform, 
+                                String status, String message, String errorMessage) throws RepositoryException {
         logger.info("[ACTIVITY] >>> createLogEntry: action={}, postId={}, title={}", action, postId, postTitle);
         jcrTemplate.doExecuteWithSystemSession(session -> {
             try {
                 logger.info("[ACTIVITY] >>> Inside doExecuteWithSystemSession");
                 // Find the site from the post
-                String siteName = findSiteNameFromPost(session, postId);
+                String siteName = siteKey != null ? siteKey : findSiteNameFromPost(session, postId);
                 logger.info("[ACTIVITY] >>> Found site name: {}", siteName);
                 String logsPath = String.format(ACTIVITY_LOG_PATH, siteName != null ? siteName : "systemsite");
                 logger.info("[ACTIVITY] >>> Logs path: {}", logsPath);
@@ -0,0 +1,36 @@
+package org.example.socialhub.service.impl;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * The /sites/<site>/social-analytics folder holding a site's metrics aggregates, sketches, heatmaps and
+ * leaderboards.
+ * It is a socialnt:analyticsFolder, which accepts these node types explicitly; a plain jnt:contentList
+ * only accepts droppable content.
+ */
+final class AnalyticsFolder {
+
+    static final String NAME = "social-analytics";
+    static final String TYPE = "socialnt:analyticsFolder";
+
+    private AnalyticsFolder() {
+    }
+
+    static String path(String siteKey) {
+        return "/sites/" + siteKey + "/" + NAME;
+    }
+
+    /**
+     * The site's analytics folder, created if missing, or null if the site does not exist.
+     */
+    static Node getOrCreate(Session session, String siteKey) throws RepositoryException {
+        String sitePath = "/sites/" + siteKey;
+        if (!session.nodeExists(sitePath)) {
+            return null;
+        }
+        Node site = session.getNode(sitePath);
+        return site.hasNode(NAME) ? site.getNode(NAME) : site.addNode(NAME, TYPE);
+    }
+}
@@ -0,0 +1,271 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PlatformPublisher;
+import org.example.socialhub.service.PublishRequest;
+import org.example.socialhub.service.SocialAccountService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facebook Page publisher.
+ * Posts text to /feed, a single image to /photos, or several images as unpublished
+ * photos attached to a /feed post. Page credentials come from the connected
+ * socialnt:account the post is routed to; the .cfg Page is only used by sites
+ * without any connected Page.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ */
+@Component(
+    service = PlatformPublisher.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
+public class FacebookPublisher extends AbstractPlatformPublisher {
+
+    private String facebookBaseUrl = "https://graph.facebook.com";
+    private String facebookApiVersion = "v21.0";
+    private String facebookPageId = "";
+    private String facebookAppSecret = "";
+    private String facebookPageAccessToken = "";
+
+    @Reference
+    private SocialAccountService socialAccountService;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (properties.get("facebookBaseUrl") != null) {
+            facebookBaseUrl = (String) properties.get("facebookBaseUrl");
+        }
+        if (properties.get("facebookApiVersion") != null) {
+            facebookApiVersion = (String) properties.get("facebookApiVersion");
+        }
+        if (properties.get("facebookPageId") != null) {
+            facebookPageId = (String) properties.get("facebookPageId");
+        }
+        if (properties.get("facebookAppSecret") != null) {
+            facebookAppSecret = (String) properties.get("facebookAppSecret");
+        }
+        if (properties.get("facebookPageAccessToken") != null) {
+            facebookPageAccessToken = (String) properties.get("facebookPageAccessToken");
+        }
+        configure(properties);
+    }
+
+    @Override
+    public String getPlatform() {
+        return "facebook";
+    }
+
+    @Override
+    public String publish(PublishRequest request) {
+        String siteKey = request.getSiteKey();
+
+        // Only the Page the post is routed to, read from the cached account registry
+        Map<String, String> account;
+        try {
+            account = socialAccountService.getAccount(siteKey, "facebook", request.getAccountId());
+        } catch (Exception e) {
+            logger.error("[PUBLISH] Could not retrieve stored Facebook Page credentials for site: {}", siteKey, e);
+            return null;
+        }
+
+        String pageToken = null;
+        String pageId = null;
+        boolean fromJCR = false;
+        if (account != null) {
+            pageId = account.get("pageId");
+            pageToken = account.get("pageToken");
+            if (isEmpty(pageToken) || isEmpty(pageId)) {
+                logger.error("[PUBLISH] Facebook Page {} on site {} has no Page token", pageId, siteKey);
+                return null;
+            }
+            fromJCR = true;
+            logger.info("[PUBLISH] >>> Retrieved Facebook Page credentials from JCR for site: {}", siteKey);
+        } else if (request.getAccountId() != null) {
+            // Never publish a routed post to another Page
+            logger.error("[PUBLISH] Facebook Page {} is not connected on site: {}", request.getAccountId(), siteKey);
+            return null;
+        } else {
+            // The site has no connected Page at all: use the .cfg Page
+            logger.warn("[PUBLISH] No stored Facebook Page credentials found for site: {}, using .cfg fallback", siteKey);
+            if (isEmpty(facebookPageId)) {
+                logger.error("[PUBLISH] Facebook Page ID not configured and no stored Page credentials found");
+                return null;
+            }
+            pageId = facebookPageId;
+            pageToken = !isEmpty(facebookPageAccessToken) ? facebookPageAccessToken : authToken;
+        }
+
+        logger.info("[PUBLISH] Using Facebook Page ID: {} (source: {})", pageId, fromJCR ? "JCR" : ".cfg");
+
+        List<String> imageUrls = request.getImageUrls();
+        try {
+            if (!imageUrls.isEmpty()) {
+                if (imageUrls.size() == 1) {
+                    // OPTION 1: Single image - use /photos endpoint
+                    logger.info("[PUBLISH] Publishing Facebook post with single image");
+                    return publishSingleImage(pageId, pageToken, request, imageUrls.get(0));
+                }
+                // OPTION 2: Multiple images - upload unpublished, then create feed post
+                logger.info("[PUBLISH] Publishing Facebook post with {} images", imageUrls.size());
+                return publishMultipleImages(pageId, pageToken, request, imageUrls);
+            }
+        } catch (UnsupportedEncodingException e) {
+            logger.error("[PUBLISH] Error encoding Facebook image post", e);
+            return null;
+        }
+
+        // No images - use /feed endpoint for text-only post
+        String endpoint = String.format("%s/%s/%s/feed", facebookBaseUrl, facebookApiVersion, pageId);
+        logger.info("[PUBLISH] API Endpoint: {}", endpoint);
+        String jsonPayload = buildFacebookPayload(request.getTitle(), request.getMessage(), request.getLinkUrl());
+        Map<String, String> fields = postJson(endpoint, pageToken, jsonPayload, Collections.emptyMap(),
+            "facebook /feed", "id", "post_id");
+        return toExternalId(fields, "facebook /feed");
+    }
+
+    /**
+     * Publish Facebook post with single image using /photos endpoint.
+     * This creates a post with one image.
+     */
+    private String publishSingleImage(String pageId, String pageToken, PublishRequest request, String imageUrl)
+            throws UnsupportedEncodingException {
+        String endpoint = String.format("%s/%s/%s/photos", facebookBaseUrl, facebookApiVersion, pageId);
+        String fullMessage = buildFullMessage(request);
+
+        // Build form data payload
+        String payload = "url=" + URLEncoder.encode(imageUrl, "UTF-8") +
+                       "&message=" + URLEncoder.encode(fullMessage, "UTF-8") +
+                       "&access_token=" + URLEncoder.encode(pageToken, "UTF-8") +
+                       appSecretProofParam(pageToken);
+
+        logger.info("[PUBLISH] Facebook /photos endpoint: {}", endpoint);
+        logger.info("[PUBLISH] Image URL: {}", imageUrl);
+
+        Map<String, String> fields = postForm(endpoint, payload, "facebook /photos", "id", "post_id");
+        return toExternalId(fields, "facebook /photos");
+    }
+
+    /**
+     * Publish Facebook post with multiple images.
+     * Step 1: Upload each image as unpublished (published=false)
+     * Step 2: Create feed post with attached_media array
+     */
+    private String publishMultipleImages(String pageId, String pageToken, PublishRequest request, List<String> imageUrls)
+            throws UnsupportedEncodingException {
+        List<String> mediaIds = new ArrayList<>();
+        String photosEndpoint = String.format("%s/%s/%s/photos", facebookBaseUrl, facebookApiVersion, pageId);
+
+        // Step 1: Upload each image as unpublished
+        for (int i = 0; i < imageUrls.size(); i++) {
+            String imageUrl = imageUrls.get(i);
+            logger.info("[PUBLISH] Uploading image {}/{} as unpublished: {}", i + 1, imageUrls.size(), imageUrl);
+
+            String payload = "url=" + URLEncoder.encode(imageUrl, "UTF-8") +
+                           "&published=false" +
+                           "&access_token=" + URLEncoder.encode(pageToken, "UTF-8") +
+                           appSecretProofParam(pageToken);
+
+            Map<String, String> fields = postForm(photosEndpoint, payload, "facebook unpublished photo", "id");
+            String mediaId = fields != null ? fields.get("id") : null;
+            if (mediaId == null) {
+                logger.error("[PUBLISH] Failed to upload unpublished photo {}/{}", i + 1, imageUrls.size());
+                return null;
+            }
+            mediaIds.add(mediaId);
+            logger.info("[PUBLISH] Uploaded image {}/{} - Media ID: {}", i + 1, imageUrls.size(), mediaId);
+        }
+
+        // Step 2: Create feed post with attached media
+        logger.info("[PUBLISH] Creating feed post with {} attached media IDs", mediaIds.size());
+
+        String feedEndpoint = String.format("%s/%s/%s/feed", facebookBaseUrl, facebookApiVersion, pageId);
+        StringBuilder feedPayload = new StringBuilder();
+        feedPayload.append("message=").append(URLEncoder.encode(buildFullMessage(request), "UTF-8"));
+        for (int i = 0; i < mediaIds.size(); i++) {
+            feedPayload.append("&attached_media[").append(i).append("]=")
+                      .append(URLEncoder.encode("{\"media_fbid\":\"" + mediaIds.get(i) + "\"}", "UTF-8"));
+        }
+        feedPayload.append("&access_token=").append(URLEncoder.encode(pageToken, "UTF-8"));
+        feedPayload.append(appSecretProofParam(pageToken));
+
+        Map<String, String> fields = postForm(feedEndpoint, feedPayload.toString(), "facebook /feed", "id", "post_id");
+        return toExternalId(fields, "facebook /feed");
+    }
+
+    private String buildFullMessage(PublishRequest request) {
+        String fullMessage = request.getTitle() + "\n\n" + request.getMessage();
+        if (!isEmpty(request.getLinkUrl())) {
+            fullMessage += "\n\n" + request.getLinkUrl();
+        }
+        return fullMessage;
+    }
+
+    /**
+     * appsecret_proof form parameter, or an empty string if no app secret is configured.
+     */
+    private String appSecretProofParam(String accessToken) {
+        if (isEmpty(facebookAppSecret)) {
+            return "";
+        }
+        return "&appsecret_proof=" + generateAppSecretProof(accessToken, facebookAppSecret);
+    }
+
+    /**
+     * Generate appsecret_proof for Facebook API calls.
+     * HMAC-SHA256 hash of access_token using app secret as key.
+     */
+    private String generateAppSecretProof(String accessToken, String appSecret) {
+        try {
+            javax.crypto.Mac mac = javax.crypto.Mac.getInstance("HmacSHA256");
+            javax.crypto.spec.SecretKeySpec secretKeySpec = new javax.crypto.spec.SecretKeySpec(
+                appSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            mac.init(secretKeySpec);
+            byte[] hash = mac.doFinal(accessToken.getBytes(StandardCharsets.UTF_8));
+
+            // Convert to hex string
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (Exception e) {
+            logger.error("[PUBLISH] Error generating appsecret_proof", e);
+            return "";
+        }
+    }
+
+    /**
+     * Build Facebook-specific JSON payload.
+     * Facebook Graph API /feed endpoint supports:
+     * - message: text content (includes title + message)
+     * - link: URL to share
+     */
+    private String buildFacebookPayload(String title, String message, String linkUrl) {
+        StringBuilder json = new StringBuilder();
+        json.append("{");
+
+        // Combine title and message for Facebook post
+        String fullMessage = title + "\n\n" + message;
+        json.append("\"message\":\"").append(escapeJson(fullMessage)).append("\"");
+
+        // Add link if provided
+        if (!isEmpty(linkUrl)) {
+            json.append(",\"link\":\"").append(escapeJson(linkUrl)).append("\"");
+        }
+
+        json.append("}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PlatformPublisher;
+import org.example.socialhub.service.PublishRequest;
+import org.example.socialhub.service.SocialAccountService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instagram Business account publisher (Graph API /media container creation, then /media_publish).
+ * Account credentials come from the connected socialnt:account the post is routed to; the .cfg
+ * account ID and token are only used by sites without any connected Instagram account.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ */
+@Component(
+    service = PlatformPublisher.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
+public class InstagramPublisher extends AbstractPlatformPublisher {
+
+    private String instagramBaseUrl = "https://graph.facebook.com";
+    private String facebookApiVersion = "v21.0";
+    private String instagramAccountId = "";
+    private String instagramAccessToken = "";
+
+    @Reference
+    private SocialAccountService socialAccountService;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (properties.get("instagramBaseUrl") != null) {
+            instagramBaseUrl = (String) properties.get("instagramBaseUrl");
+        }
+        if (properties.get("facebookApiVersion") != null) {
+            facebookApiVersion = (String) properties.get("facebookApiVersion");
+        }
+        if (properties.get("instagramAccountId") != null) {
+            instagramAccountId = (String) properties.get("instagramAccountId");
+        }
+        if (properties.get("instagramAccessToken") != null) {
+            instagramAccessToken = (String) properties.get("instagramAccessToken");
+        }
+        configure(properties);
+    }
+
+    @Override
+    public String getPlatform() {
+        return "instagram";
+    }
+
+    @Override
+    protected int getDefaultMaxConcurrency() {
+        // Container creation is slow and rate limited per account; the per-account limit (default 1)
+        // keeps each account sequential while several accounts publish in parallel
+        return 4;
+    }
+
+    @Override
+    protected int getDefaultReadTimeout() {
+        return 60000;
+    }
+
+    @Override
+    public String publish(PublishRequest request) {
+        String siteKey = request.getSiteKey();
+
+        Map<String, String> account;
+        try {
+            account = socialAccountService.getAccount(siteKey, "instagram", request.getAccountId());
+        } catch (Exception e) {
+            logger.error("[PUBLISH] Could not retrieve stored Instagram credentials for site: {}", siteKey, e);
+            return null;
+        }
+
+        String accountId;
+        String accessToken;
+        if (account != null) {
+            accountId = account.get("accountId");
+            accessToken = account.get("accessToken");
+            if (isEmpty(accountId) || isEmpty(accessToken)) {
+                logger.error("[PUBLISH] Instagram account {} on site {} has no access token", accountId, siteKey);
+                return null;
+            }
+            logger.info("[PUBLISH] >>> Retrieved Instagram credentials from JCR for site: {} (account: {})",
+                siteKey, account.get("username"));
+        } else if (request.getAccountId() != null) {
+            // Never publish a routed post to another account
+            logger.error("[PUBLISH] Instagram account {} is not connected on site: {}", request.getAccountId(), siteKey);
+            return null;
+        } else {
+            // The site has no connected account at all: use the .cfg account
+            if (isEmpty(instagramAccountId)) {
+                logger.error("[PUBLISH] Instagram Account ID not configured and no connected Instagram account found");
+                return null;
+            }
+            logger.warn("[PUBLISH] No stored Instagram credentials found for site: {}, using .cfg fallback", siteKey);
+            accountId = instagramAccountId;
+            accessToken = !isEmpty(instagramAccessToken) ? instagramAccessToken : authToken;
+        }
+
+        List<String> imageUrls = request.getImageUrls();
+        if (imageUrls.isEmpty()) {
+            logger.error("[PUBLISH] Instagram posts require an image - post {} has none", request.getPostUuid());
+            return null;
+        }
+
+        try {
+            // Instagram requires a 2-step process: create container, then publish
+            String mediaEndpoint = String.format("%s/%s/%s/media", instagramBaseUrl, facebookApiVersion, accountId);
+            logger.info("[PUBLISH] API Endpoint: {}", mediaEndpoint);
+            String containerPayload = "image_url=" + URLEncoder.encode(imageUrls.get(0), "UTF-8") +
+                                      "&caption=" + URLEncoder.encode(buildCaption(request), "UTF-8") +
+                                      "&access_token=" + URLEncoder.encode(accessToken, "UTF-8");
+            Map<String, String> container = postForm(mediaEndpoint, containerPayload, "instagram /media", "id");
+            String creationId = container != null ? container.get("id") : null;
+            if (isEmpty(creationId)) {
+                logger.error("[PUBLISH] Instagram media container was not created");
+                return null;
+            }
+
+            String publishEndpoint = String.format("%s/%s/%s/media_publish", instagramBaseUrl, facebookApiVersion, accountId);
+            String publishPayload = "creation_id=" + URLEncoder.encode(creationId, "UTF-8") +
+                                    "&access_token=" + URLEncoder.encode(accessToken, "UTF-8");
+            Map<String, String> fields = postForm(publishEndpoint, publishPayload, "instagram /media_publish", "id");
+            return toExternalId(fields, "instagram /media_publish");
+        } catch (UnsupportedEncodingException e) {
+            logger.error("[PUBLISH] Error encoding Instagram post", e);
+            return null;
+        }
+    }
+
+    /**
+     * Instagram captions do not render links, so the link is appended as plain text.
+     */
+    private String buildCaption(PublishRequest request) {
+        String caption = request.getMessage();
+        if (!isEmpty(request.getLinkUrl())) {
+            caption += "\n\n" + request.getLinkUrl();
+        }
+        return caption;
+    }
+}
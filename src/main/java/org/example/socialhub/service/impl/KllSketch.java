@@ -0,0 +1,233 @@
+package org.example.socialhub.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * KLL quantile sketch over non-negative counter values (Karnin, Lang, Liberty 2016).
+ *
+ * Values go into a stack of compactors; level h holds items of weight 2^h. When the sketch
+ * exceeds its capacity, the lowest full level is sorted and every other item (random offset)
+ * is promoted to the next level. Capacities shrink by 2/3 per level below the top, so the
+ * sketch keeps O(k) items whatever the stream length, with a rank error around 1.7 / k.
+ * Two sketches merge by concatenating their levels and compacting, so per-site or per-node
+ * sketches can be combined without the original values.
+ *
+ * Not thread-safe.
+ */
+final class KllSketch {
+
+    static final int DEFAULT_K = 200;
+    private static final int VERSION = 1;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final List<long[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private long count;
+
+    KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    KllSketch(int k) {
+        this.k = k;
+        addLevel();
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    void update(long value) {
+        append(0, value);
+        count++;
+        compress();
+    }
+
+    void merge(KllSketch other) {
+        for (int h = 0; h < other.levels.size(); h++) {
+            while (levels.size() <= h) {
+                addLevel();
+            }
+            long[] items = other.levels.get(h);
+            for (int i = 0; i < other.sizes.get(h); i++) {
+                append(h, items[i]);
+            }
+        }
+        count += other.count;
+        compress();
+    }
+
+    /**
+     * Estimated fraction of values below the given one, counting equal values half (0.0 to 1.0).
+     */
+    double rank(long value) {
+        if (count == 0) {
+            return 0;
+        }
+        double below = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            long weight = 1L << h;
+            long[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                if (items[i] < value) {
+                    below += weight;
+                } else if (items[i] == value) {
+                    below += weight / 2.0;
+                }
+            }
+        }
+        return Math.min(1.0, below / count);
+    }
+
+    /**
+     * Estimated value at the given fraction (0.0 to 1.0), or 0 for an empty sketch.
+     */
+    long quantile(double fraction) {
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        // Compaction keeps the total weight equal to the count
+        long[][] weighted = new long[total][];
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            long[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                weighted[n++] = new long[]{items[i], 1L << h};
+            }
+        }
+        Arrays.sort(weighted, (a, b) -> Long.compare(a[0], b[0]));
+        long target = Math.max(1, (long) Math.ceil(Math.max(0, Math.min(1, fraction)) * count));
+        long weight = 0;
+        for (long[] item : weighted) {
+            weight += item[1];
+            if (weight >= target) {
+                return item[0];
+            }
+        }
+        return weighted[weighted.length - 1][0];
+    }
+
+    /**
+     * Serialized form: version, k, count and level count, then per level the item count and the
+     * sorted items as varint deltas (see MetricsSeriesCodec), so a full sketch takes a few hundred bytes.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        MetricsSeriesCodec.writeVarLong(out, VERSION);
+        MetricsSeriesCodec.writeVarLong(out, k);
+        MetricsSeriesCodec.writeVarLong(out, count);
+        MetricsSeriesCodec.writeVarLong(out, levels.size());
+        for (int h = 0; h < levels.size(); h++) {
+            long[] items = Arrays.copyOf(levels.get(h), sizes.get(h));
+            Arrays.sort(items);
+            MetricsSeriesCodec.writeVarLong(out, items.length);
+            long previous = 0;
+            for (long item : items) {
+                MetricsSeriesCodec.writeVarLong(out, MetricsSeriesCodec.zigzag(item - previous));
+                previous = item;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static KllSketch fromBytes(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    static KllSketch read(InputStream in) throws IOException {
+        long version = MetricsSeriesCodec.readVarLong(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported sketch version " + version);
+        }
+        KllSketch sketch = new KllSketch((int) MetricsSeriesCodec.readVarLong(in));
+        sketch.count = MetricsSeriesCodec.readVarLong(in);
+        int levelCount = (int) MetricsSeriesCodec.readVarLong(in);
+        for (int h = 0; h < levelCount; h++) {
+            while (sketch.levels.size() <= h) {
+                sketch.addLevel();
+            }
+            int size = (int) MetricsSeriesCodec.readVarLong(in);
+            long item = 0;
+            for (int i = 0; i < size; i++) {
+                item += MetricsSeriesCodec.unzigzag(MetricsSeriesCodec.readVarLong(in));
+                sketch.append(h, item);
+            }
+        }
+        return sketch;
+    }
+
+    private void addLevel() {
+        levels.add(new long[MIN_CAPACITY]);
+        sizes.add(0);
+    }
+
+    private void append(int level, long value) {
+        long[] items = levels.get(level);
+        int size = sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            levels.set(level, items);
+        }
+        items[size] = value;
+        sizes.set(level, size + 1);
+    }
+
+    private int capacity(int level) {
+        int depth = levels.size() - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void compress() {
+        while (true) {
+            int total = 0;
+            int capacity = 0;
+            for (int h = 0; h < levels.size(); h++) {
+                total += sizes.get(h);
+                capacity += capacity(h);
+            }
+            if (total <= capacity) {
+                return;
+            }
+            for (int h = 0; h < levels.size(); h++) {
+                if (sizes.get(h) >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Promote every other item of a level to the next one; an odd item out stays.
+     */
+    private void compact(int level) {
+        if (level + 1 == levels.size()) {
+            addLevel();
+        }
+        long[] items = levels.get(level);
+        int size = sizes.get(level);
+        Arrays.sort(items, 0, size);
+        int keep = size % 2;
+        int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+        for (int i = keep + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes.set(level, keep);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PlatformPublisher;
+import org.example.socialhub.service.PublishRequest;
+import org.example.socialhub.service.SocialAccountService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * LinkedIn publisher (ugcPosts API), posting as the connected member or the configured organization.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ */
+@Component(
+    service = PlatformPublisher.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
+public class LinkedInPublisher extends AbstractPlatformPublisher {
+
+    private String linkedinBaseUrl = "https://api.linkedin.com";
+    private String linkedinApiVersion = "v2";
+    private String linkedinOrganizationId = "";
+    private String linkedinAccessToken = "";
+
+    @Reference
+    private SocialAccountService socialAccountService;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (properties.get("linkedinBaseUrl") != null) {
+            linkedinBaseUrl = (String) properties.get("linkedinBaseUrl");
+        }
+        if (properties.get("linkedinApiVersion") != null) {
+            linkedinApiVersion = (String) properties.get("linkedinApiVersion");
+        }
+        if (properties.get("linkedinOrganizationId") != null) {
+            linkedinOrganizationId = (String) properties.get("linkedinOrganizationId");
+        }
+        if (properties.get("linkedinAccessToken") != null) {
+            linkedinAccessToken = (String) properties.get("linkedinAccessToken");
+        }
+        configure(properties);
+    }
+
+    @Override
+    public String getPlatform() {
+        return "linkedin";
+    }
+
+    @Override
+    public String publish(PublishRequest request) {
+        String siteKey = request.getSiteKey();
+
+        // Retrieve LinkedIn account credentials from JCR
+        Map<String, String> account;
+        try {
+            account = socialAccountService.getAccount(siteKey, "linkedin", request.getAccountId());
+        } catch (Exception e) {
+            logger.error("[PUBLISH] Failed to retrieve LinkedIn account from JCR", e);
+            return null;
+        }
+        String linkedinPersonId = null;
+        String linkedinToken = null;
+        if (account != null) {
+            linkedinPersonId = account.get("personId");
+            linkedinToken = account.get("accessToken");
+            logger.info("[PUBLISH] Retrieved LinkedIn credentials from JCR for site: {} (personId: {})",
+                siteKey, linkedinPersonId);
+        } else if (request.getAccountId() != null) {
+            // Never publish a routed post as another author
+            logger.error("[PUBLISH] LinkedIn account {} is not connected on site: {}", request.getAccountId(), siteKey);
+            return null;
+        } else {
+            logger.warn("[PUBLISH] No LinkedIn account found in JCR for site: {}, using .cfg fallback", siteKey);
+        }
+
+        // Build author URN
+        String linkedinAuthor = null;
+        if (!isEmpty(linkedinPersonId)) {
+            linkedinAuthor = "urn:li:person:" + linkedinPersonId;
+        } else if (!isEmpty(linkedinOrganizationId)) {
+            // Fallback to organization if configured
+            linkedinAuthor = "urn:li:organization:" + linkedinOrganizationId;
+        }
+
+        if (linkedinAuthor == null) {
+            logger.error("[PUBLISH] LinkedIn author not available - no person ID in account or organization ID in config");
+            return null;
+        }
+
+        // Use token from JCR account, fallback to config
+        String accessToken = !isEmpty(linkedinToken)
+            ? linkedinToken
+            : (!isEmpty(linkedinAccessToken) ? linkedinAccessToken : authToken);
+
+        String endpoint = String.format("%s/%s/ugcPosts", linkedinBaseUrl, linkedinApiVersion);
+        String jsonPayload = buildLinkedInPayload(request.getMessage(), request.getLinkUrl(), linkedinAuthor);
+
+        logger.info("[PUBLISH] LinkedIn posting - Author: {}, Endpoint: {}", linkedinAuthor, endpoint);
+
+        // LinkedIn requires this header for all API requests
+        Map<String, String> headers = Collections.singletonMap("X-Restli-Protocol-Version", "2.0.0");
+        Map<String, String> fields = postJson(endpoint, accessToken, jsonPayload, headers, "linkedin /ugcPosts", "id");
+        return toExternalId(fields, "linkedin /ugcPosts");
+    }
+
+    /**
+     * Build LinkedIn-specific JSON payload for ugcPosts API.
+     * Reference: https://learn.microsoft.com/en-us/linkedin/consumer/integrations/self-serve/share-on-linkedin
+     *
+     * @param message The post text content
+     * @param linkUrl Optional URL to share (requires shareMediaCategory: ARTICLE)
+     * @param authorUrn Full author URN - either "urn:li:person:{personId}" or "urn:li:organization:{orgId}"
+     * @return JSON payload string
+     */
+    private String buildLinkedInPayload(String message, String linkUrl, String authorUrn) {
+        StringBuilder json = new StringBuilder();
+        json.append("{");
+        json.append("\"author\":\"").append(escapeJson(authorUrn)).append("\",");
+        json.append("\"lifecycleState\":\"PUBLISHED\",");
+        json.append("\"specificContent\":{");
+        json.append("\"com.linkedin.ugc.ShareContent\":{");
+        json.append("\"shareCommentary\":{");
+        json.append("\"text\":\"").append(escapeJson(message)).append("\"");
+        json.append("}");
+
+        // If linkUrl is provided, add it as ARTICLE media
+        if (!isEmpty(linkUrl)) {
+            json.append(",\"shareMediaCategory\":\"ARTICLE\"");
+            json.append(",\"media\":[{");
+            json.append("\"status\":\"READY\",");
+            json.append("\"originalUrl\":\"").append(escapeJson(linkUrl)).append("\"");
+            json.append("}]");
+        } else {
+            json.append(",\"shareMediaCategory\":\"NONE\"");
+        }
+
+        json.append("}},");
+        json.append("\"visibility\":{\"com.linkedin.ugc.MemberNetworkVisibility\":\"PUBLIC\"}");
+        json.append("}");
+        return json.toString();
+    }
+}
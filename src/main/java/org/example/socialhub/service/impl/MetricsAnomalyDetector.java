@@ -0,0 +1,171 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsSample;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Incremental spike and flatline detection on fetched metrics.
+ *
+ * For each post, platform and counter, keeps the last value and an exponentially weighted mean and
+ * variance of its growth rate per hour, updated from each fetch in constant time and memory; stored
+ * history is never read. After WARMUP observations:
+ * - a spike is a rate above mean + Z_THRESHOLD standard deviations that added at least MIN_SPIKE_DELTA;
+ * - a flatline is FLATLINE_RUNS fetches in a row without change while the mean predicted at least
+ *   FLATLINE_MIN_EXPECTED over them, as when an account is throttled and the platform stops counting.
+ * Each is reported once until the counter is back to normal.
+ *
+ * State is kept for the maxEntries most recently observed posts. Thread-safe.
+ */
+final class MetricsAnomalyDetector {
+
+    static final String SPIKE = "spike";
+    static final String FLATLINE = "flatline";
+
+    private static final String[] COUNTERS = {"impressions", "clicks", "likes", "comments", "shares"};
+    private static final double ALPHA = 0.3;
+    private static final int WARMUP = 5;
+    private static final double Z_THRESHOLD = 4.0;
+    // Floor of the deviation, in events per hour, so a perfectly regular counter does not flag every bump
+    private static final double MIN_DEVIATION = 1.0;
+    private static final long MIN_SPIKE_DELTA = 25;
+    private static final int FLATLINE_RUNS = 3;
+    private static final double FLATLINE_MIN_EXPECTED = 15;
+    private static final double HOUR = 60 * 60 * 1000.0;
+
+    private final Map<String, PostState> states;
+
+    MetricsAnomalyDetector(int maxEntries) {
+        states = new LinkedHashMap<String, PostState>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PostState> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Feed the counters just fetched for a post, changed or not.
+     *
+     * @return anomalies starting with this observation, usually none
+     */
+    synchronized List<Anomaly> observe(String postUuid, String platform, MetricsSample sample) {
+        long[] values = MetricsRollups.counters(sample);
+        PostState state = states.get(postUuid + "/" + platform);
+        if (state == null) {
+            states.put(postUuid + "/" + platform, new PostState(sample.getCapturedAt(), values));
+            return Collections.emptyList();
+        }
+        double hours = (sample.getCapturedAt() - state.lastTime) / HOUR;
+        if (hours <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Anomaly> anomalies = null;
+        for (int i = 0; i < COUNTERS.length; i++) {
+            long delta = values[i] - state.last[i];
+            state.last[i] = values[i];
+            if (delta < 0) {
+                // Platforms sometimes recount downwards (removed likes, spam filtering): not growth
+                continue;
+            }
+            double rate = delta / hours;
+            double mean = state.mean[i];
+
+            if (state.observations[i] >= WARMUP) {
+                double threshold = mean + Z_THRESHOLD * Math.max(Math.sqrt(state.variance[i]), MIN_DEVIATION);
+                if (rate > threshold && delta >= MIN_SPIKE_DELTA) {
+                    if (!state.spiking[i]) {
+                        state.spiking[i] = true;
+                        anomalies = add(anomalies, new Anomaly(postUuid, platform, SPIKE, COUNTERS[i], delta, hours, mean));
+                    }
+                } else {
+                    state.spiking[i] = false;
+                }
+
+                if (delta == 0) {
+                    state.flatRuns[i]++;
+                    state.flatExpected[i] += mean * hours;
+                    if (!state.flat[i] && state.flatRuns[i] >= FLATLINE_RUNS && state.flatExpected[i] >= FLATLINE_MIN_EXPECTED) {
+                        state.flat[i] = true;
+                        anomalies = add(anomalies, new Anomaly(postUuid, platform, FLATLINE, COUNTERS[i],
+                            state.flatRuns[i], hours, state.flatExpected[i]));
+                    }
+                } else {
+                    state.flatRuns[i] = 0;
+                    state.flatExpected[i] = 0;
+                    state.flat[i] = false;
+                }
+            }
+
+            // EWMA of the rate and of its squared deviation
+            double diff = rate - mean;
+            double increment = ALPHA * diff;
+            state.mean[i] = mean + increment;
+            state.variance[i] = (1 - ALPHA) * (state.variance[i] + diff * increment);
+            state.observations[i]++;
+        }
+        state.lastTime = sample.getCapturedAt();
+        return anomalies != null ? anomalies : Collections.emptyList();
+    }
+
+    private static List<Anomaly> add(List<Anomaly> anomalies, Anomaly anomaly) {
+        List<Anomaly> list = anomalies != null ? anomalies : new ArrayList<>(1);
+        list.add(anomaly);
+        return list;
+    }
+
+    private static final class PostState {
+        private long lastTime;
+        private final long[] last;
+        private final double[] mean = new double[COUNTERS.length];
+        private final double[] variance = new double[COUNTERS.length];
+        private final int[] observations = new int[COUNTERS.length];
+        private final int[] flatRuns = new int[COUNTERS.length];
+        private final double[] flatExpected = new double[COUNTERS.length];
+        private final boolean[] spiking = new boolean[COUNTERS.length];
+        private final boolean[] flat = new boolean[COUNTERS.length];
+
+        private PostState(long time, long[] values) {
+            this.lastTime = time;
+            this.last = values.clone();
+        }
+    }
+
+    static final class Anomaly {
+        final String postUuid;
+        final String platform;
+        final String type;
+        final String counter;
+        // Spike: the increase; flatline: the number of fetches without change
+        final long amount;
+        final double hours;
+        // Spike: the expected rate per hour; flatline: the expected increase over the flat fetches
+        final double expected;
+
+        private Anomaly(String postUuid, String platform, String type, String counter, long amount, double hours,
+                        double expected) {
+            this.postUuid = postUuid;
+            this.platform = platform;
+            this.type = type;
+            this.counter = counter;
+            this.amount = amount;
+            this.hours = hours;
+            this.expected = expected;
+        }
+
+        String describe() {
+            if (SPIKE.equals(type)) {
+                return String.format(Locale.ROOT, "Spike in %s on %s: +%d in %.1f h (usually about %.1f per hour)",
+                    counter, platform, amount, hours, expected);
+            }
+            return String.format(Locale.ROOT, "No change in %s on %s over %d refreshes (about %.0f expected)",
+                counter, platform, amount, expected);
+        }
+    }
+}
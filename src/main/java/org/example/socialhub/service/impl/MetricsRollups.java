@@ -0,0 +1,142 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsRollup;
+import org.example.socialhub.service.MetricsSample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bucketing of metrics samples into hourly, daily and weekly rollups.
+ * Buckets are aligned on UTC; weekly buckets start on Monday.
+ */
+final class MetricsRollups {
+
+    static final long HOUR = 60 * 60 * 1000L;
+    static final long DAY = 24 * HOUR;
+    static final long WEEK = 7 * DAY;
+
+    // 1970-01-01 was a Thursday: shift weeks so they start on Monday 1970-01-05
+    private static final long WEEK_OFFSET = 4 * DAY;
+
+    private static final int COUNTERS = 5;
+
+    private MetricsRollups() {
+    }
+
+    static long bucketStart(long time, long resolution) {
+        long offset = resolution == WEEK ? WEEK_OFFSET : 0;
+        return Math.floorDiv(time - offset, resolution) * resolution + offset;
+    }
+
+    /**
+     * Aggregate samples, oldest first, into buckets of the given resolution.
+     *
+     * @param previous last sample before the first one (for the first bucket's delta), or null
+     */
+    static List<MetricsRollup> rollUp(List<MetricsSample> samples, long resolution, MetricsSample previous) {
+        List<MetricsRollup> rollups = new ArrayList<>();
+        Bucket bucket = null;
+        long[] before = previous != null ? counters(previous) : null;
+        for (MetricsSample sample : samples) {
+            long start = bucketStart(sample.getCapturedAt(), resolution);
+            if (bucket == null || bucket.start != start) {
+                if (bucket != null) {
+                    rollups.add(bucket.toRollup());
+                    before = bucket.last;
+                }
+                bucket = new Bucket(start, resolution, before != null ? before : counters(sample));
+            }
+            bucket.add(sample);
+        }
+        if (bucket != null) {
+            rollups.add(bucket.toRollup());
+        }
+        return rollups;
+    }
+
+    /**
+     * Merge rollups, oldest first, into buckets of the given (equal or coarser) resolution.
+     * Rollups falling into the same bucket are combined, so this also appends new buckets to existing ones.
+     */
+    static List<MetricsRollup> coarsen(List<MetricsRollup> rollups, long resolution) {
+        List<MetricsRollup> merged = new ArrayList<>();
+        Bucket bucket = null;
+        for (MetricsRollup rollup : rollups) {
+            long start = bucketStart(rollup.getStart(), resolution);
+            if (bucket == null || bucket.start != start) {
+                if (bucket != null) {
+                    merged.add(bucket.toRollup());
+                }
+                bucket = new Bucket(start, resolution, null);
+            }
+            bucket.add(rollup);
+        }
+        if (bucket != null) {
+            merged.add(bucket.toRollup());
+        }
+        return merged;
+    }
+
+    static long[] counters(MetricsSample sample) {
+        return new long[]{sample.getImpressions(), sample.getClicks(), sample.getLikes(),
+            sample.getComments(), sample.getShares()};
+    }
+
+    static MetricsSample sample(long capturedAt, long[] counters) {
+        return new MetricsSample(capturedAt, counters[0], counters[1], counters[2], counters[3], counters[4]);
+    }
+
+    private static final class Bucket {
+        private final long start;
+        private final long resolution;
+        // Counters before the bucket; null when merging rollups, which carry their own deltas
+        private final long[] before;
+        private long sampleCount;
+        private long lastCapturedAt;
+        private long[] last;
+        private final long[] delta = new long[COUNTERS];
+        private final long[] min = new long[COUNTERS];
+        private final long[] max = new long[COUNTERS];
+
+        private Bucket(long start, long resolution, long[] before) {
+            this.start = start;
+            this.resolution = resolution;
+            this.before = before;
+        }
+
+        private void add(MetricsSample sample) {
+            long[] values = counters(sample);
+            accumulate(values, values);
+            sampleCount++;
+            lastCapturedAt = sample.getCapturedAt();
+            last = values;
+            for (int i = 0; i < COUNTERS; i++) {
+                delta[i] = last[i] - before[i];
+            }
+        }
+
+        private void add(MetricsRollup rollup) {
+            accumulate(counters(rollup.getMin()), counters(rollup.getMax()));
+            sampleCount += rollup.getSampleCount();
+            lastCapturedAt = rollup.getLast().getCapturedAt();
+            last = counters(rollup.getLast());
+            long[] rollupDelta = counters(rollup.getDelta());
+            for (int i = 0; i < COUNTERS; i++) {
+                delta[i] += rollupDelta[i];
+            }
+        }
+
+        private void accumulate(long[] low, long[] high) {
+            for (int i = 0; i < COUNTERS; i++) {
+                min[i] = sampleCount == 0 ? low[i] : Math.min(min[i], low[i]);
+                max[i] = sampleCount == 0 ? high[i] : Math.max(max[i], high[i]);
+            }
+        }
+
+        private MetricsRollup toRollup() {
+            return new MetricsRollup(start, resolution, sampleCount, sample(lastCapturedAt, last),
+                sample(start, delta), sample(start, min), sample(start, max));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsRollup;
+import org.example.socialhub.service.MetricsSample;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delta encoding of metrics samples for socialnt:metricsBlock binaries.
+ *
+ * A block is a plain sequence of records, one per sample. Each record holds six zigzag varints:
+ * the capture time and the five counters, each as the difference to the previous sample of the
+ * block (the first record is relative to zero). Counters rarely move much between refreshes,
+ * so a record usually takes 6 to 10 bytes; appending only needs the block's last sample.
+ *
+ * Rollups (socialnt:metricsRollup) use the same varints: per bucket the start and last capture
+ * time, the sample count, and for each counter its last value (delta to the previous bucket),
+ * delta, and distance from last to min and to max.
+ */
+final class MetricsSeriesCodec {
+
+    private static final int FIELDS = 6;
+    private static final int COUNTERS = FIELDS - 1;
+
+    private MetricsSeriesCodec() {
+    }
+
+    /**
+     * Encode one sample as the record following previous (null for the first record of a block).
+     */
+    static byte[] encode(MetricsSample previous, MetricsSample sample) {
+        long[] before = previous != null ? toFields(previous) : new long[FIELDS];
+        long[] after = toFields(sample);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FIELDS * 2);
+        for (int i = 0; i < FIELDS; i++) {
+            writeVarLong(out, zigzag(after[i] - before[i]));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode all records of a block.
+     */
+    static List<MetricsSample> decode(InputStream in) throws IOException {
+        List<MetricsSample> samples = new ArrayList<>();
+        long[] fields = new long[FIELDS];
+        int first;
+        while ((first = in.read()) >= 0) {
+            fields[0] += unzigzag(readVarLong(in, first));
+            for (int i = 1; i < FIELDS; i++) {
+                fields[i] += unzigzag(readVarLong(in));
+            }
+            samples.add(new MetricsSample(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]));
+        }
+        return samples;
+    }
+
+    static byte[] encodeRollups(List<MetricsRollup> rollups) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rollups.size() * 32);
+        long previousStart = 0;
+        long[] previousLast = new long[COUNTERS];
+        for (MetricsRollup rollup : rollups) {
+            writeVarLong(out, zigzag(rollup.getStart() - previousStart));
+            writeVarLong(out, zigzag(rollup.getLast().getCapturedAt() - rollup.getStart()));
+            writeVarLong(out, rollup.getSampleCount());
+            long[] last = MetricsRollups.counters(rollup.getLast());
+            long[] delta = MetricsRollups.counters(rollup.getDelta());
+            long[] min = MetricsRollups.counters(rollup.getMin());
+            long[] max = MetricsRollups.counters(rollup.getMax());
+            for (int i = 0; i < COUNTERS; i++) {
+                writeVarLong(out, zigzag(last[i] - previousLast[i]));
+                writeVarLong(out, zigzag(delta[i]));
+                writeVarLong(out, zigzag(last[i] - min[i]));
+                writeVarLong(out, zigzag(max[i] - last[i]));
+            }
+            previousStart = rollup.getStart();
+            previousLast = last;
+        }
+        return out.toByteArray();
+    }
+
+    static List<MetricsRollup> decodeRollups(InputStream in, long resolution) throws IOException {
+        List<MetricsRollup> rollups = new ArrayList<>();
+        long start = 0;
+        long[] last = new long[COUNTERS];
+        int first;
+        while ((first = in.read()) >= 0) {
+            start += unzigzag(readVarLong(in, first));
+            long lastCapturedAt = start + unzigzag(readVarLong(in));
+            long sampleCount = readVarLong(in);
+            long[] delta = new long[COUNTERS];
+            long[] min = new long[COUNTERS];
+            long[] max = new long[COUNTERS];
+            for (int i = 0; i < COUNTERS; i++) {
+                last[i] += unzigzag(readVarLong(in));
+                delta[i] = unzigzag(readVarLong(in));
+                min[i] = last[i] - unzigzag(readVarLong(in));
+                max[i] = last[i] + unzigzag(readVarLong(in));
+            }
+            rollups.add(new MetricsRollup(start, resolution, sampleCount, MetricsRollups.sample(lastCapturedAt, last),
+                MetricsRollups.sample(start, delta), MetricsRollups.sample(start, min), MetricsRollups.sample(start, max)));
+        }
+        return rollups;
+    }
+
+    private static long[] toFields(MetricsSample sample) {
+        return new long[]{sample.getCapturedAt(), sample.getImpressions(), sample.getClicks(),
+            sample.getLikes(), sample.getComments(), sample.getShares()};
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            throw new EOFException("Truncated metrics record");
+        }
+        return readVarLong(in, first);
+    }
+
+    private static long readVarLong(InputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated metrics record");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
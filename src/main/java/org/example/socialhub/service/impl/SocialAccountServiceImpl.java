@@ -1,9 +1,10 @@
 package org.example.socialhub.service.impl;
 
+import org.example.socialhub.service.AccountImportResult;
 import org.example.socialhub.service.SocialAccountService;
+import org.example.socialhub.util.JsonStreamParser;
+import org.jahia.services.content.JCRSessionWrapper;
 import org.jahia.services.content.JCRTemplate;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -13,16 +14,20 @@ import org.slf4j.LoggerFactory;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
 import javax.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of SocialAccountService.
@@ -38,10 +43,17 @@ public class SocialAccountServiceImpl implements SocialAccountService {
     
     private static final Logger logger = LoggerFactory.getLogger(SocialAccountServiceImpl.class);
     private static final String ACCOUNTS_PATH = "/sites/%s/contents/social-accounts";
+    private static final int ACCOUNTS_PAGE_SIZE = 100;
+    private static final int MAX_ACCOUNTS_REQUESTS = 100;
+    private static final int SAVE_CHUNK_SIZE = 50;
     
     private String facebookBaseUrl = "https://graph.facebook.com";
     private String facebookApiVersion = "v21.0";
     
+    // Per-site account registry; entries are dropped by SocialAccountEventListener on any account change
+    private final Map<String, SiteAccounts> accountCache = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    
     @Reference
     private JCRTemplate jcrTemplate;
     
@@ -58,310 +70,371 @@ public class SocialAccountServiceImpl implements SocialAccountService {
     }
     
     @Override
-    public List<String> connectFacebookAccount(String userAccessToken, String siteKey) throws RepositoryException {
+    public AccountImportResult connectFacebookAccount(String userAccessToken, String siteKey) throws RepositoryException {
         logger.info("[ACCOUNT] >>> Starting Facebook account connection for site: {}", siteKey);
-        logger.info("[ACCOUNT] >>> Step 1: Storing user access token and fetching Page tokens from /me/accounts");
-        List<String> connectedPages = new ArrayList<>();
         
+        List<FacebookPage> pages;
         try {
-            // Step 1: Call Facebook /me/accounts API with the User Access Token
-            String apiUrl = String.format("%s/%s/me/accounts?access_token=%s", 
-                facebookBaseUrl, facebookApiVersion, userAccessToken);
-            
-            logger.info("[ACCOUNT] >>> Calling Facebook API: {}/{}/me/accounts", facebookBaseUrl, facebookApiVersion);
-            
-            URL url = new URL(apiUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(10000);
-            
-            int responseCode = connection.getResponseCode();
-            logger.info("[ACCOUNT] >>> Facebook API response code: {}", responseCode);
-            
-            if (responseCode == 200) {
-                // Read response
-                StringBuilder response = new StringBuilder();
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                }
-                
-                String jsonResponse = response.toString();
-                logger.info("[ACCOUNT] >>> Facebook API response: {}", jsonResponse);
-                
-                // Parse JSON response
-                JSONObject jsonObject = new JSONObject(jsonResponse);
-                JSONArray dataArray = jsonObject.getJSONArray("data");
-                
-                logger.info("[ACCOUNT] >>> Found {} page(s) in response", dataArray.length());
-                
-                // Step 2: Store each Page with BOTH tokens (user token + page token)
-                for (int i = 0; i < dataArray.length(); i++) {
-                    JSONObject pageData = dataArray.getJSONObject(i);
-                    
-                    String pageId = pageData.getString("id");
-                    String pageName = pageData.getString("name");
-                    String pageToken = pageData.getString("access_token"); // This is the Page Access Token from /me/accounts
-                    
-                    logger.info("[ACCOUNT] >>> Page '{}': User token: {}..., Page token: {}...", 
-                        pageName,
-                        userAccessToken.substring(0, Math.min(10, userAccessToken.length())),
-                        pageToken.substring(0, Math.min(10, pageToken.length())));
-                    
-                    // Check tasks to ensure user has required permissions
-                    JSONArray tasks = pageData.optJSONArray("tasks");
-                    boolean hasRequiredPermissions = false;
-                    if (tasks != null) {
-                        for (int j = 0; j < tasks.length(); j++) {
-                            String task = tasks.getString(j);
-                            if ("CREATE_CONTENT".equals(task) || "MANAGE".equals(task)) {
-                                hasRequiredPermissions = true;
-                                break;
-                            }
-                        }
-                    }
-                    
-                    if (!hasRequiredPermissions) {
-                        logger.warn("[ACCOUNT] >>> Page '{}' (ID: {}) - User doesn't have required permissions (CREATE_CONTENT or MANAGE)", 
-                            pageName, pageId);
-                        continue;
-                    }
-                    
-                    // Store BOTH tokens: userAccessToken (for /me/accounts) and pageToken (for publishing)
-                    storeAccountInJCR(siteKey, pageId, pageName, userAccessToken, pageToken);
-                    connectedPages.add(pageName);
-                    
-                    logger.info("[ACCOUNT] >>> ✓ Connected Facebook Page: '{}' (ID: {})", pageName, pageId);
-                }
-                
-            } else {
-                // Read error response
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        errorResponse.append(line);
-                    }
-                }
-                logger.error("[ACCOUNT] >>> Facebook API error ({}): {}", responseCode, errorResponse.toString());
-            }
-            
-            connection.disconnect();
-            
-        } catch (Exception e) {
+            pages = fetchManagedPages(userAccessToken, "id,name,access_token,tasks");
+        } catch (IOException e) {
             logger.error("[ACCOUNT] >>> Error connecting Facebook account", e);
             throw new RepositoryException("Failed to connect Facebook account: " + e.getMessage(), e);
         }
         
-        logger.info("[ACCOUNT] >>> Successfully connected {} Facebook Page(s)", connectedPages.size());
-        return connectedPages;
+        AccountImportResult result = importPages(siteKey, pages, "facebook", userAccessToken);
+        logger.info("[ACCOUNT] >>> Facebook import for site {}: {}", siteKey, result);
+        return result;
+    }
+    
+    @Override
+    public AccountImportResult connectInstagramAccounts(String userAccessToken, String siteKey) throws RepositoryException {
+        logger.info("[ACCOUNT] >>> Starting Instagram account connection for site: {}", siteKey);
+        
+        List<FacebookPage> pages;
+        try {
+            pages = fetchManagedPages(userAccessToken,
+                "id,name,access_token,tasks,instagram_business_account{id,username}");
+        } catch (IOException e) {
+            logger.error("[ACCOUNT] >>> Error connecting Instagram account", e);
+            throw new RepositoryException("Failed to connect Instagram account: " + e.getMessage(), e);
+        }
+        
+        AccountImportResult result = importPages(siteKey, pages, "instagram", userAccessToken);
+        logger.info("[ACCOUNT] >>> Instagram import for site {}: {}", siteKey, result);
+        return result;
     }
     
     /**
-     * Store Facebook Page credentials in JCR using existing socialnt:account node type.
-     * @param userAccessToken The user's access token (for refreshing Page tokens via /me/accounts)
-     * @param pageToken The Page-specific access token from /me/accounts response (used for publishing)
-```
+     * Follow the /me/accounts cursors, stream-parsing each page of results.
      */
-    private void storeAccountInJCR(String siteKey, String pageId, String pageName, String userAccessToken, String pageToken) 
-            throws RepositoryException {
-        
-        jcrTemplate.doExecuteWithSystemSession(session -> {
-            try {
-                // Ensure /sites/{site}/contents/social-accounts folder exists
-                String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
-                Node accountsFolder;
+    private List<FacebookPage> fetchManagedPages(String userAccessToken, String fields) throws IOException {
+        List<FacebookPage> pages = new ArrayList<>();
+        String nextUrl = String.format("%s/%s/me/accounts?fields=%s&limit=%d&access_token=%s",
+            facebookBaseUrl, facebookApiVersion, URLEncoder.encode(fields, "UTF-8"), ACCOUNTS_PAGE_SIZE,
+            URLEncoder.encode(userAccessToken, "UTF-8"));
+        Set<String> visited = new HashSet<>();
+        int requests = 0;
+        while (nextUrl != null && visited.add(nextUrl)) {
+            if (++requests > MAX_ACCOUNTS_REQUESTS) {
+                logger.warn("[ACCOUNT] >>> Stopping /me/accounts pagination after {} requests", MAX_ACCOUNTS_REQUESTS);
+                break;
+            }
+            nextUrl = fetchAccountsPage(nextUrl, pages);
+        }
+        logger.info("[ACCOUNT] >>> /me/accounts returned {} page(s) in {} request(s)", pages.size(), requests);
+        return pages;
+    }
+    
+    /**
+     * Upsert the accounts of every eligible Page in a single session: the Page itself for "facebook",
+     * its linked Instagram business account for "instagram".
+     */
+    private AccountImportResult importPages(String siteKey, List<FacebookPage> pages, String platform,
+                                            String userAccessToken) throws RepositoryException {
+        AccountImportResult result = jcrTemplate.doExecuteWithSystemSession(session -> {
+            AccountImportResult importResult = new AccountImportResult();
+            Node accountsFolder = getOrCreateAccountsFolder(session, siteKey);
+            
+            int pending = 0;
+            for (FacebookPage page : pages) {
+                if (!page.canPublish()) {
+                    logger.warn("[ACCOUNT] >>> Page '{}' (ID: {}) - User doesn't have required permissions (CREATE_CONTENT or MANAGE)", 
+                        page.name, page.id);
+                    importResult.recordSkipped();
+                    continue;
+                }
                 
-                if (session.nodeExists(accountsPath)) {
-                    accountsFolder = session.getNode(accountsPath);
-                    logger.info("[ACCOUNT] >>> Found existing social-accounts folder at: {}", accountsPath);
-                } else {
-                    // Create the social-accounts folder under /sites/{site}/contents/
-                    String contentsPath = "/sites/" + siteKey + "/contents";
-                    if (!session.nodeExists(contentsPath)) {
-                        logger.error("[ACCOUNT] >>> Contents folder not found at: {}", contentsPath);
-                        throw new RepositoryException("Contents folder not found: " + contentsPath);
+                boolean created;
+                String name;
+                if ("instagram".equals(platform)) {
+                    if (page.instagramId == null) {
+                        logger.debug("[ACCOUNT] >>> Page '{}' has no linked Instagram business account", page.name);
+                        importResult.recordSkipped();
+                        continue;
                     }
-                    Node contentsNode = session.getNode(contentsPath);
-                    accountsFolder = contentsNode.addNode("social-accounts", "jnt:contentFolder");
-                    logger.info("[ACCOUNT] >>> Created social-accounts folder at: {}", accountsPath);
+                    created = upsertInstagramAccount(accountsFolder, page, userAccessToken);
+                    name = page.instagramUsername != null ? page.instagramUsername : page.instagramId;
+                } else {
+                    created = upsertFacebookPage(accountsFolder, page, userAccessToken);
+                    name = page.name;
                 }
-                
-                // Create or update socialnt:account node for this Facebook Page
-                String accountNodeName = "facebook_" + pageId;
-                Node accountNode;
-                
-                if (accountsFolder.hasNode(accountNodeName)) {
-                    accountNode = accountsFolder.getNode(accountNodeName);
-                    logger.info("[ACCOUNT] >>> Updating existing account node: {}", accountNodeName);
+                if (created) {
+                    importResult.recordAdded(name);
                 } else {
-                    accountNode = accountsFolder.addNode(accountNodeName, "socialnt:account");
-                    logger.info("[ACCOUNT] >>> Created new account node: {}", accountNodeName);
+                    importResult.recordUpdated(name);
                 }
                 
-                // Set properties using existing socialnt:account fields
-                accountNode.setProperty("social:platform", "facebook");
-                accountNode.setProperty("social:label", pageName);
-                accountNode.setProperty("social:handle", pageName); // Using handle for page name
-                accountNode.setProperty("social:pageId", pageId);
-                accountNode.setProperty("social:accessToken", userAccessToken); // User token (for /me/accounts refresh)
-                accountNode.setProperty("social:pageToken", pageToken); // Page token (for publishing)
-                accountNode.setProperty("social:isActive", true);
-                
-                // Set token expiry (Facebook long-lived tokens expire after 60 days)
-                java.util.Calendar expiry = java.util.Calendar.getInstance();
-                expiry.add(java.util.Calendar.DAY_OF_MONTH, 60);
-                accountNode.setProperty("social:tokenExpiry", expiry);
-                
-                logger.info("[ACCOUNT] >>> Stored tokens - User token: {}... (len: {}), Page token: {}... (len: {})",
-                    userAccessToken.substring(0, Math.min(10, userAccessToken.length())), userAccessToken.length(),
-                    pageToken.substring(0, Math.min(10, pageToken.length())), pageToken.length());
-                
-                // Save the session
+                // Chunked saves keep the transient space small for users managing hundreds of Pages
+                if (++pending == SAVE_CHUNK_SIZE) {
+                    session.save();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
                 session.save();
-                logger.info("[ACCOUNT] >>> Saved Facebook account to JCR: {}/{}", accountsPath, accountNodeName);
-                
-            } catch (RepositoryException e) {
-                logger.error("[ACCOUNT] >>> Error storing account in JCR", e);
-                throw e;
             }
-            return null;
+            return importResult;
         });
+        invalidateAccounts(siteKey);
+        return result;
     }
     
-    @Override
-    public Map<String, Map<String, String>> getFacebookAccounts(String siteKey) throws RepositoryException {
-        Map<String, Map<String, String>> accounts = new HashMap<>();
-        
-        logger.info("[ACCOUNT] >>> getFacebookAccounts called for siteKey: '{}'", siteKey);
-        
+    /**
+     * Fetch one page of /me/accounts, appending its entries to the list.
+     * The response is stream-parsed; only id, name, access_token, tasks and the linked
+     * Instagram business account are kept.
+     * 
+     * @return the paging.next URL, or null on the last page
+     */
+    private String fetchAccountsPage(String pageUrl, List<FacebookPage> pages) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(pageUrl).openConnection();
         try {
-            jcrTemplate.doExecuteWithSystemSession(session -> {
-                String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
-                logger.info("[ACCOUNT] >>> Checking path: '{}'", accountsPath);
-                
-                if (!session.nodeExists(accountsPath)) {
-                    logger.warn("[ACCOUNT] >>> No social-accounts folder found at: {}", accountsPath);
-                    return null;
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            
+            int responseCode = connection.getResponseCode();
+            if (responseCode != 200) {
+                String error = "";
+                if (connection.getErrorStream() != null) {
+                    try (Scanner scanner = new Scanner(connection.getErrorStream(), "UTF-8").useDelimiter("\\A")) {
+                        error = scanner.hasNext() ? scanner.next() : "";
+                    }
                 }
-                
-                Node accountsFolder = session.getNode(accountsPath);
-                NodeIterator nodes = accountsFolder.getNodes();
-                
-                long nodeCount = nodes.getSize();
-                logger.info("[ACCOUNT] >>> Found {} nodes in social-accounts folder", nodeCount);
-                
-                while (nodes.hasNext()) {
-                    Node accountNode = nodes.nextNode();
-                    String nodeName = accountNode.getName();
-                    String nodeType = accountNode.getPrimaryNodeType().getName();
-                    logger.info("[ACCOUNT] >>> Checking node: {} (type: {})", nodeName, nodeType);
-                    
-                    if (accountNode.isNodeType("socialnt:account")) {
-                        String platform = accountNode.getProperty("social:platform").getString();
-                        logger.info("[ACCOUNT] >>> Node {} has platform: {}", nodeName, platform);
-                        
-                        if ("facebook".equals(platform) && accountNode.hasProperty("social:isActive") 
-                                && accountNode.getProperty("social:isActive").getBoolean()) {
-                            
-                            Map<String, String> accountData = new HashMap<>();
-                            accountData.put("pageId", accountNode.getProperty("social:pageId").getString());
-                            accountData.put("pageName", accountNode.getProperty("social:handle").getString());
-                            
-                            logger.info("[ACCOUNT] >>> Facebook account {} has pageId: {}, pageName: {}", 
-                                nodeName, 
-                                accountData.get("pageId"), 
-                                accountData.get("pageName"));
-                            
-                            // Get the Page token (used for publishing)
-                            String pageToken = accountNode.hasProperty("social:pageToken") 
-                                ? accountNode.getProperty("social:pageToken").getString()
-                                : null;
-                            
-                            logger.info("[ACCOUNT] >>> Node {} has social:pageToken property: {}", 
-                                nodeName, accountNode.hasProperty("social:pageToken"));
-                            
-                            // Fallback to accessToken if pageToken doesn't exist (backwards compatibility)
-                            if (pageToken == null && accountNode.hasProperty("social:accessToken")) {
-                                pageToken = accountNode.getProperty("social:accessToken").getString();
-                                logger.warn("[ACCOUNT] >>> Account {} missing social:pageToken, using social:accessToken as fallback", nodeName);
-                            }
-                            
-                            accountData.put("pageToken", pageToken);
-                            
-                            String pageId = accountData.get("pageId");
-                            accounts.put(pageId, accountData);
-                            
-                            logger.info("[ACCOUNT] >>> ✓ Added Facebook account: {} (ID: {}) - Page Token: {}...{} (len: {})", 
-                                accountData.get("pageName"), pageId,
-                                pageToken != null && pageToken.length() > 10 ? pageToken.substring(0, 10) : "***",
-                                pageToken != null && pageToken.length() > 10 ? pageToken.substring(pageToken.length() - 10) : "***",
-                                pageToken != null ? pageToken.length() : 0);
+                throw new IOException("Facebook API error (" + responseCode + "): " + error);
+            }
+            
+            String next = null;
+            try (JsonStreamParser parser = new JsonStreamParser(connection.getInputStream())) {
+                if (parser.nextToken() != JsonStreamParser.Token.START_OBJECT) {
+                    throw new IOException("Unexpected /me/accounts response");
+                }
+                JsonStreamParser.Token token;
+                while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+                    String name = parser.getText();
+                    token = parser.nextToken();
+                    if ("data".equals(name) && token == JsonStreamParser.Token.START_ARRAY) {
+                        while (parser.nextToken() == JsonStreamParser.Token.START_OBJECT) {
+                            pages.add(readFacebookPage(parser));
                         }
+                    } else if ("paging".equals(name) && token == JsonStreamParser.Token.START_OBJECT) {
+                        next = readPagingNext(parser);
+                    } else if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                        parser.skipChildren();
                     }
                 }
-                
-                logger.info("[ACCOUNT] >>> Total Facebook accounts found: {}", accounts.size());
-                return null;
-            });
-        } catch (RepositoryException e) {
-            logger.error("[ACCOUNT] >>> Error retrieving Facebook accounts for siteKey: {}", siteKey, e);
-            throw e;
+            }
+            return next;
+        } finally {
+            connection.disconnect();
+        }
+    }
+    
+    private FacebookPage readFacebookPage(JsonStreamParser parser) throws IOException {
+        FacebookPage page = new FacebookPage();
+        JsonStreamParser.Token token;
+        while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+            String name = parser.getText();
+            token = parser.nextToken();
+            if ("tasks".equals(name) && token == JsonStreamParser.Token.START_ARRAY) {
+                while (parser.nextToken() == JsonStreamParser.Token.VALUE_STRING) {
+                    page.tasks.add(parser.getText());
+                }
+            } else if ("instagram_business_account".equals(name) && token == JsonStreamParser.Token.START_OBJECT) {
+                while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+                    String field = parser.getText();
+                    token = parser.nextToken();
+                    if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                        parser.skipChildren();
+                    } else if ("id".equals(field)) {
+                        page.instagramId = parser.getText();
+                    } else if ("username".equals(field)) {
+                        page.instagramUsername = parser.getText();
+                    }
+                }
+            } else if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                parser.skipChildren();
+            } else if ("id".equals(name)) {
+                page.id = parser.getText();
+            } else if ("name".equals(name)) {
+                page.name = parser.getText();
+            } else if ("access_token".equals(name)) {
+                page.accessToken = parser.getText(); // This is the Page Access Token
+            }
+        }
+        return page;
+    }
+    
+    private String readPagingNext(JsonStreamParser parser) throws IOException {
+        String next = null;
+        JsonStreamParser.Token token;
+        while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+            String name = parser.getText();
+            token = parser.nextToken();
+            if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                parser.skipChildren();
+            } else if ("next".equals(name)) {
+                next = parser.getText();
+            }
+        }
+        return next;
+    }
+    
+    /**
+     * Ensure /sites/{site}/contents/social-accounts exists in the given session.
+     */
+    private Node getOrCreateAccountsFolder(JCRSessionWrapper session, String siteKey) throws RepositoryException {
+        String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
+        if (session.nodeExists(accountsPath)) {
+            return session.getNode(accountsPath);
+        }
+        String contentsPath = "/sites/" + siteKey + "/contents";
+        if (!session.nodeExists(contentsPath)) {
+            logger.error("[ACCOUNT] >>> Contents folder not found at: {}", contentsPath);
+            throw new RepositoryException("Contents folder not found: " + contentsPath);
         }
+        logger.info("[ACCOUNT] >>> Creating social-accounts folder at: {}", accountsPath);
+        return session.getNode(contentsPath).addNode("social-accounts", "jnt:contentFolder");
+    }
+    
+    /**
+     * Create or update the socialnt:account node of a Facebook Page. Does not save.
+     * 
+     * @param userAccessToken The user's access token (for refreshing Page tokens via /me/accounts)
+     * @return true if the node was created, false if an existing one was updated
+     */
+    private boolean upsertFacebookPage(Node accountsFolder, FacebookPage page, String userAccessToken) 
+            throws RepositoryException {
+        boolean created = !accountsFolder.hasNode(accountNodeName("facebook", page.id));
+        Node accountNode = getOrCreateAccountNode(accountsFolder, "facebook", page.id);
         
-        logger.info("[ACCOUNT] >>> Returning {} Facebook accounts for siteKey: {}", accounts.size(), siteKey);
-        return accounts;
+        // Set properties using existing socialnt:account fields
+        accountNode.setProperty("social:label", page.name);
+        accountNode.setProperty("social:handle", page.name); // Using handle for page name
+        accountNode.setProperty("social:pageId", page.id);
+        accountNode.setProperty("social:accessToken", userAccessToken); // User token (for /me/accounts refresh)
+        accountNode.setProperty("social:pageToken", page.accessToken); // Page token (for publishing)
+        accountNode.setProperty("social:tokenStatus", "valid");
+        accountNode.setProperty("social:isActive", true);
+        
+        // Set token expiry (Facebook long-lived tokens expire after 60 days)
+        Calendar expiry = Calendar.getInstance();
+        expiry.add(Calendar.DAY_OF_MONTH, 60);
+        accountNode.setProperty("social:tokenExpiry", expiry);
+        return created;
     }
     
-    @Override
-    public String getFacebookPageAccessToken(String siteKey, String pageId) throws RepositoryException {
-        Map<String, Map<String, String>> accounts = getFacebookAccounts(siteKey);
+    /**
+     * Create or update the socialnt:account node of the Instagram business account linked to a Page.
+     * Content publishing calls are made with the Page token. Does not save.
+     * 
+     * @return true if the node was created, false if an existing one was updated
+     */
+    private boolean upsertInstagramAccount(Node accountsFolder, FacebookPage page, String userAccessToken) 
+            throws RepositoryException {
+        boolean created = !accountsFolder.hasNode(accountNodeName("instagram", page.instagramId));
+        Node accountNode = getOrCreateAccountNode(accountsFolder, "instagram", page.instagramId);
         
-        if (accounts.isEmpty()) {
-            logger.info("[ACCOUNT] >>> No Facebook accounts found for site: {}", siteKey);
-            return null;
-        }
+        String username = page.instagramUsername != null ? page.instagramUsername : page.name;
+        accountNode.setProperty("social:label", username);
+        accountNode.setProperty("social:handle", username);
+        accountNode.setProperty("social:pageId", page.id); // Facebook Page the account is linked to
+        accountNode.setProperty("social:accessToken", userAccessToken);
+        accountNode.setProperty("social:pageToken", page.accessToken);
+        accountNode.setProperty("social:tokenStatus", "valid");
+        accountNode.setProperty("social:isActive", true);
         
-        // If pageId is null, return page token from first account
-        if (pageId == null || pageId.isEmpty()) {
-            Map.Entry<String, Map<String, String>> firstAccount = accounts.entrySet().iterator().next();
-            String token = firstAccount.getValue().get("pageToken"); // Use pageToken instead of accessToken
-            logger.info("[ACCOUNT] >>> Using page token from first Facebook account: {} (len: {})", 
-                firstAccount.getValue().get("pageName"),
-                token != null ? token.length() : 0);
-            return token;
+        Calendar expiry = Calendar.getInstance();
+        expiry.add(Calendar.DAY_OF_MONTH, 60);
+        accountNode.setProperty("social:tokenExpiry", expiry);
+        return created;
+    }
+    
+    /**
+     * Canonical node name of an account: {platform}_{externalId}.
+     * One node per platform account, so reconnecting updates it in place.
+     */
+    static String accountNodeName(String platform, String externalId) {
+        return platform + "_" + externalId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+    
+    /**
+     * Get the canonical account node, creating it if needed. Does not save.
+     */
+    private Node getOrCreateAccountNode(Node accountsFolder, String platform, String externalId) 
+            throws RepositoryException {
+        String nodeName = accountNodeName(platform, externalId);
+        if (accountsFolder.hasNode(nodeName)) {
+            return accountsFolder.getNode(nodeName);
         }
-        
-        // Return page token for specific pageId
-        Map<String, String> accountData = accounts.get(pageId);
+        Node accountNode = accountsFolder.addNode(nodeName, "socialnt:account");
+        accountNode.setProperty("social:platform", platform);
+        accountNode.setProperty("social:accountId", externalId);
+        return accountNode;
+    }
+    
+    @Override
+    public Map<String, Map<String, String>> getFacebookAccounts(String siteKey) throws RepositoryException {
+        return getSiteAccounts(siteKey).facebook;
+    }
+    
+    @Override
+    public String getFacebookPageAccessToken(String siteKey, String pageId) throws RepositoryException {
+        Map<String, String> accountData = getAccount(siteKey, "facebook", pageId);
         if (accountData != null) {
-            String token = accountData.get("pageToken"); // Use pageToken instead of accessToken
-            logger.info("[ACCOUNT] >>> Using page token for Page ID: {} (len: {})", pageId, 
-                token != null ? token.length() : 0);
-            return token;
+            return accountData.get("pageToken");
         }
         
-        logger.warn("[ACCOUNT] >>> No Facebook account found for Page ID: {}", pageId);
+        logger.warn("[ACCOUNT] >>> No Facebook account found for site {} (Page ID: {})", siteKey, pageId);
         return null;
     }
     
+    @Override
+    public Map<String, String> getAccount(String siteKey, String platform, String accountId) throws RepositoryException {
+        Map<String, Map<String, String>> accounts = getPlatformAccounts(siteKey, platform);
+        if (accountId == null || accountId.isEmpty()) {
+            accountId = getDefaultAccountId(siteKey, platform);
+        }
+        return accountId != null ? accounts.get(accountId) : null;
+    }
+    
+    @Override
+    public String getDefaultAccountId(String siteKey, String platform) throws RepositoryException {
+        // Registry maps keep the content order of the account nodes, so the default is stable across calls
+        Map<String, Map<String, String>> accounts = getPlatformAccounts(siteKey, platform);
+        return accounts.isEmpty() ? null : accounts.keySet().iterator().next();
+    }
+    
+    private Map<String, Map<String, String>> getPlatformAccounts(String siteKey, String platform) throws RepositoryException {
+        switch (platform) {
+            case "facebook":
+                return getSiteAccounts(siteKey).facebook;
+            case "linkedin":
+                return getSiteAccounts(siteKey).linkedin;
+            case "instagram":
+                return getSiteAccounts(siteKey).instagram;
+            default:
+                return Collections.emptyMap();
+        }
+    }
+    
     @Override
     public void disconnectFacebookAccount(String siteKey, String pageId) throws RepositoryException {
         jcrTemplate.doExecuteWithSystemSession(session -> {
             try {
                 String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
-                String accountNodePath = accountsPath + "/facebook_" + pageId;
+                List<Node> copies = session.nodeExists(accountsPath)
+                    ? getAccountCopies(session.getNode(accountsPath), "facebook", pageId)
+                    : Collections.emptyList();
                 
-                if (session.nodeExists(accountNodePath)) {
-                    Node accountNode = session.getNode(accountNodePath);
-                    String pageName = accountNode.getProperty("social:handle").getString();
+                if (!copies.isEmpty()) {
+                    String pageName = copies.get(0).hasProperty("social:handle")
+                        ? copies.get(0).getProperty("social:handle").getString() : pageId;
                     
-                    accountNode.remove();
+                    // Legacy copies too, or the registry would pick one of them up again
+                    for (Node copy : copies) {
+                        copy.remove();
+                    }
                     session.save();
                     
                     logger.info("[ACCOUNT] >>> Disconnected Facebook Page: '{}' (ID: {})", pageName, pageId);
@@ -374,11 +447,12 @@ public class SocialAccountServiceImpl implements SocialAccountService {
             }
             return null;
         });
+        invalidateAccounts(siteKey);
     }
     
     @Override
     public void connectLinkedInAccount(String siteKey, String personId, String name, String email,
-                                       String accessToken, int expiresIn) throws RepositoryException {
+                                       String accessToken, String refreshToken, int expiresIn) throws RepositoryException {
         jcrTemplate.doExecuteWithSystemSession(session -> {
             try {
                 // Ensure social-accounts folder exists
@@ -402,23 +476,22 @@ public class SocialAccountServiceImpl implements SocialAccountService {
                 }
                 
                 // Create or update LinkedIn account node
-                String accountNodeName = "linkedin_" + personId;
-                Node accountNode;
-                
-                if (accountsFolder.hasNode(accountNodeName)) {
-                    accountNode = accountsFolder.getNode(accountNodeName);
+                if (accountsFolder.hasNode(accountNodeName("linkedin", personId))) {
                     logger.info("[ACCOUNT] >>> Updating existing LinkedIn account: {}", personId);
                 } else {
-                    accountNode = accountsFolder.addNode(accountNodeName, "socialnt:account");
                     logger.info("[ACCOUNT] >>> Creating new LinkedIn account: {}", personId);
                 }
+                Node accountNode = getOrCreateAccountNode(accountsFolder, "linkedin", personId);
                 
                 // Set account properties
-                accountNode.setProperty("social:platform", "linkedin");
-                accountNode.setProperty("social:accountId", personId);
                 accountNode.setProperty("social:label", name);
                 accountNode.setProperty("social:handle", name);
                 accountNode.setProperty("social:accessToken", accessToken);
+                accountNode.setProperty("social:tokenStatus", "valid");
+                accountNode.setProperty("social:isActive", true);
+                if (refreshToken != null && !refreshToken.isEmpty()) {
+                    accountNode.setProperty("social:refreshToken", refreshToken);
+                }
                 
                 if (email != null && !email.isEmpty()) {
                     accountNode.setProperty("social:email", email);
@@ -440,56 +513,17 @@ public class SocialAccountServiceImpl implements SocialAccountService {
             }
             return null;
         });
+        invalidateAccounts(siteKey);
     }
     
     @Override
     public Map<String, Map<String, String>> getLinkedInAccounts(String siteKey) throws RepositoryException {
-        return jcrTemplate.doExecuteWithSystemSession(session -> {
-            Map<String, Map<String, String>> accounts = new java.util.HashMap<>();
-            
-            try {
-                String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
-                
-                if (!session.nodeExists(accountsPath)) {
-                    logger.debug("[ACCOUNT] >>> No accounts folder found for site: {}", siteKey);
-                    return accounts;
-                }
-                
-                Node accountsFolder = session.getNode(accountsPath);
-                javax.jcr.NodeIterator nodes = accountsFolder.getNodes("linkedin_*");
-                
-                while (nodes.hasNext()) {
-                    Node accountNode = nodes.nextNode();
-                    
-                    if (accountNode.hasProperty("social:platform") && 
-                        "linkedin".equals(accountNode.getProperty("social:platform").getString())) {
-                        
-                        String personId = accountNode.getProperty("social:accountId").getString();
-                        String name = accountNode.getProperty("social:label").getString();
-                        String accessToken = accountNode.getProperty("social:accessToken").getString();
-                        String email = accountNode.hasProperty("social:email") 
-                            ? accountNode.getProperty("social:email").getString() : "";
-                        
-                        Map<String, String> accountData = new java.util.HashMap<>();
-                        accountData.put("personId", personId);
-                        accountData.put("name", name);
-                        accountData.put("email", email);
-                        accountData.put("accessToken", accessToken);
-                        
-                        accounts.put(personId, accountData);
-                        
-                        logger.debug("[ACCOUNT] >>> Found LinkedIn account: name='{}', personId='{}'", 
-                            name, personId);
-                    }
-                }
-                
-            } catch (RepositoryException e) {
-                logger.error("[ACCOUNT] >>> Error retrieving LinkedIn accounts", e);
-                throw e;
-            }
-            
-            return accounts;
-        });
+        return getSiteAccounts(siteKey).linkedin;
+    }
+    
+    @Override
+    public Map<String, Map<String, String>> getInstagramAccounts(String siteKey) throws RepositoryException {
+        return getSiteAccounts(siteKey).instagram;
     }
     
     @Override
@@ -497,13 +531,18 @@ public class SocialAccountServiceImpl implements SocialAccountService {
         jcrTemplate.doExecuteWithSystemSession(session -> {
             try {
                 String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
-                String accountNodePath = accountsPath + "/linkedin_" + personId;
+                List<Node> copies = session.nodeExists(accountsPath)
+                    ? getAccountCopies(session.getNode(accountsPath), "linkedin", personId)
+                    : Collections.emptyList();
                 
-                if (session.nodeExists(accountNodePath)) {
-                    Node accountNode = session.getNode(accountNodePath);
-                    String name = accountNode.getProperty("social:label").getString();
+                if (!copies.isEmpty()) {
+                    String name = copies.get(0).hasProperty("social:label")
+                        ? copies.get(0).getProperty("social:label").getString() : personId;
                     
-                    accountNode.remove();
+                    // Legacy copies too, or the registry would pick one of them up again
+                    for (Node copy : copies) {
+                        copy.remove();
+                    }
                     session.save();
                     
                     logger.info("[ACCOUNT] >>> Disconnected LinkedIn account: '{}' (ID: {})", name, personId);
@@ -516,5 +555,360 @@ public class SocialAccountServiceImpl implements SocialAccountService {
             }
             return null;
         });
+        invalidateAccounts(siteKey);
+    }
+    
+    @Override
+    public void invalidateAccounts(String siteKey) {
+        invalidations.incrementAndGet();
+        if (accountCache.remove(siteKey) != null) {
+            logger.debug("[ACCOUNT] >>> Invalidated account registry for site: {}", siteKey);
+        }
+    }
+    
+    /**
+     * Cached accounts of a site, loading them from JCR on first use.
+     * A snapshot loaded while an invalidation happened is returned to the caller but not cached.
+     */
+    private SiteAccounts getSiteAccounts(String siteKey) throws RepositoryException {
+        SiteAccounts accounts = accountCache.get(siteKey);
+        if (accounts != null) {
+            return accounts;
+        }
+        long generation = invalidations.get();
+        accounts = loadSiteAccounts(siteKey);
+        if (invalidations.get() == generation) {
+            SiteAccounts existing = accountCache.putIfAbsent(siteKey, accounts);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return accounts;
+    }
+    
+    /**
+     * Read the socialnt:account nodes of a site through their names (see getAccountNodes), so
+     * lookups never touch other platforms' nodes. Read-only: legacy duplicates are merged by
+     * mergeDuplicateAccounts().
+     */
+    private SiteAccounts loadSiteAccounts(String siteKey) throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            Map<String, Map<String, String>> facebook = new LinkedHashMap<>();
+            Map<String, Map<String, String>> linkedin = new LinkedHashMap<>();
+            Map<String, Map<String, String>> instagram = new LinkedHashMap<>();
+            
+            String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
+            if (!session.nodeExists(accountsPath)) {
+                logger.debug("[ACCOUNT] >>> No social-accounts folder found at: {}", accountsPath);
+                return new SiteAccounts(facebook, linkedin, instagram);
+            }
+            Node accountsFolder = session.getNode(accountsPath);
+            
+            for (Map.Entry<String, Node> entry : getAccountNodes(accountsFolder, "facebook").entrySet()) {
+                Node accountNode = entry.getValue();
+                if (!isActive(accountNode, false) || !hasRequiredProperties(accountNode, "social:pageId", "social:handle")) {
+                    continue;
+                }
+                Map<String, String> accountData = new HashMap<>();
+                String pageId = entry.getKey();
+                accountData.put("pageId", pageId);
+                accountData.put("pageName", accountNode.getProperty("social:handle").getString());
+                
+                // Get the Page token (used for publishing)
+                String pageToken = accountNode.hasProperty("social:pageToken")
+                    ? accountNode.getProperty("social:pageToken").getString()
+                    : null;
+                
+                // Fallback to accessToken if pageToken doesn't exist (backwards compatibility)
+                if (pageToken == null && accountNode.hasProperty("social:accessToken")) {
+                    pageToken = accountNode.getProperty("social:accessToken").getString();
+                    logger.warn("[ACCOUNT] >>> Account {} missing social:pageToken, using social:accessToken as fallback",
+                        accountNode.getName());
+                }
+                accountData.put("pageToken", pageToken);
+                facebook.put(pageId, Collections.unmodifiableMap(accountData));
+            }
+            
+            for (Map.Entry<String, Node> entry : getAccountNodes(accountsFolder, "linkedin").entrySet()) {
+                Node accountNode = entry.getValue();
+                // LinkedIn nodes stored before connectLinkedInAccount set social:isActive have no flag
+                if (!isActive(accountNode, true)
+                        || !hasRequiredProperties(accountNode, "social:label", "social:accessToken")) {
+                    continue;
+                }
+                String personId = entry.getKey();
+                Map<String, String> accountData = new HashMap<>();
+                accountData.put("personId", personId);
+                accountData.put("name", accountNode.getProperty("social:label").getString());
+                accountData.put("email", accountNode.hasProperty("social:email")
+                    ? accountNode.getProperty("social:email").getString() : "");
+                accountData.put("accessToken", accountNode.getProperty("social:accessToken").getString());
+                linkedin.put(personId, Collections.unmodifiableMap(accountData));
+            }
+            
+            for (Map.Entry<String, Node> entry : getAccountNodes(accountsFolder, "instagram").entrySet()) {
+                Node accountNode = entry.getValue();
+                if (!isActive(accountNode, false) || !hasRequiredProperties(accountNode, "social:handle", "social:pageToken")) {
+                    continue;
+                }
+                String accountId = entry.getKey();
+                Map<String, String> accountData = new HashMap<>();
+                accountData.put("accountId", accountId);
+                accountData.put("username", accountNode.getProperty("social:handle").getString());
+                accountData.put("pageId", accountNode.hasProperty("social:pageId")
+                    ? accountNode.getProperty("social:pageId").getString() : "");
+                accountData.put("accessToken", accountNode.getProperty("social:pageToken").getString());
+                instagram.put(accountId, Collections.unmodifiableMap(accountData));
+            }
+            
+            logger.info("[ACCOUNT] >>> Loaded account registry for site {}: {} Facebook, {} LinkedIn, {} Instagram",
+                siteKey, facebook.size(), linkedin.size(), instagram.size());
+            return new SiteAccounts(facebook, linkedin, instagram);
+        });
+    }
+    
+    /**
+     * Account nodes of one platform, keyed by external ID in content order. Reads the canonical
+     * {platform}_* names and the legacy {platform}-* names, so accounts SocialAccountMigrationJob has
+     * not merged yet stay visible. When an account has several nodes, the one with the latest token
+     * expiry wins, the canonical one on a tie, as in mergeDuplicateAccounts.
+     */
+    private static Map<String, Node> getAccountNodes(Node accountsFolder, String platform) throws RepositoryException {
+        Map<String, Node> accounts = new LinkedHashMap<>();
+        NodeIterator nodes = accountsFolder.getNodes(platform + "_*|" + platform + "-*");
+        while (nodes.hasNext()) {
+            Node accountNode = nodes.nextNode();
+            if (!accountNode.isNodeType("socialnt:account")) {
+                continue;
+            }
+            String externalId = getExternalId(accountNode);
+            if (externalId == null) {
+                logger.warn("[ACCOUNT] >>> Skipping account node {}: no external ID", accountNode.getPath());
+                continue;
+            }
+            Node current = accounts.get(externalId);
+            long expiry = getExpiry(accountNode);
+            if (current == null || expiry > getExpiry(current)
+                    || (expiry == getExpiry(current) && accountNode.getName().equals(accountNodeName(platform, externalId)))) {
+                accounts.put(externalId, accountNode);
+            }
+        }
+        return accounts;
+    }
+    
+    /**
+     * All nodes of one account: the canonical node and any legacy copies not merged yet.
+     */
+    private static List<Node> getAccountCopies(Node accountsFolder, String platform, String externalId)
+            throws RepositoryException {
+        List<Node> copies = new ArrayList<>();
+        NodeIterator nodes = accountsFolder.getNodes(platform + "_*|" + platform + "-*");
+        while (nodes.hasNext()) {
+            Node accountNode = nodes.nextNode();
+            if (accountNode.isNodeType("socialnt:account") && externalId.equals(getExternalId(accountNode))) {
+                copies.add(accountNode);
+            }
+        }
+        return copies;
+    }
+    
+    /**
+     * Whether the account is connected: social:isActive, or the given default when the node has no flag.
+     */
+    private static boolean isActive(Node accountNode, boolean defaultValue) throws RepositoryException {
+        return accountNode.hasProperty("social:isActive")
+            ? accountNode.getProperty("social:isActive").getBoolean()
+            : defaultValue;
+    }
+    
+    /**
+     * Whether the account node has all the given properties; an incomplete node is skipped with a
+     * warning rather than failing the whole site registry.
+     */
+    private static boolean hasRequiredProperties(Node accountNode, String... properties) throws RepositoryException {
+        for (String property : properties) {
+            if (!accountNode.hasProperty(property)) {
+                logger.warn("[ACCOUNT] >>> Skipping account node {}: missing {}", accountNode.getPath(), property);
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public int mergeDuplicateAccounts() throws RepositoryException {
+        List<String> sites = jcrTemplate.doExecuteWithSystemSession(session -> {
+            List<String> names = new ArrayList<>();
+            NodeIterator children = session.getNode("/sites").getNodes();
+            while (children.hasNext()) {
+                Node site = children.nextNode();
+                if (site.isNodeType("jnt:virtualsite")) {
+                    names.add(site.getName());
+                }
+            }
+            return names;
+        });
+        
+        int total = 0;
+        for (String siteKey : sites) {
+            int merged = jcrTemplate.doExecuteWithSystemSession(session -> {
+                String accountsPath = String.format(ACCOUNTS_PATH, siteKey);
+                if (!session.nodeExists(accountsPath)) {
+                    return 0;
+                }
+                int count = mergeDuplicateAccounts(session.getNode(accountsPath));
+                if (count > 0) {
+                    session.save();
+                    logger.info("[ACCOUNT] >>> Merged {} duplicate account node(s) for site {}", count, siteKey);
+                }
+                return count;
+            });
+            if (merged > 0) {
+                invalidateAccounts(siteKey);
+                total += merged;
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Merge account nodes created under legacy names ({platform}-{timestamp}) into their
+     * canonical {platform}_{externalId} node. When an account was stored several times, the
+     * copy with the latest token expiry wins and the others are removed. Does not save.
+     * 
+     * @return the number of nodes merged away or renamed
+     */
+    private int mergeDuplicateAccounts(Node accountsFolder) throws RepositoryException {
+        Map<String, List<Node>> byCanonicalName = new LinkedHashMap<>();
+        NodeIterator nodes = accountsFolder.getNodes();
+        while (nodes.hasNext()) {
+            Node accountNode = nodes.nextNode();
+            if (!accountNode.isNodeType("socialnt:account") || !accountNode.hasProperty("social:platform")) {
+                continue;
+            }
+            String externalId = getExternalId(accountNode);
+            if (externalId == null) {
+                logger.warn("[ACCOUNT] >>> Account node {} has no external ID, leaving it as is", accountNode.getPath());
+                continue;
+            }
+            String platform = accountNode.getProperty("social:platform").getString();
+            byCanonicalName.computeIfAbsent(accountNodeName(platform, externalId), k -> new ArrayList<>()).add(accountNode);
+        }
+        
+        int merged = 0;
+        for (Map.Entry<String, List<Node>> entry : byCanonicalName.entrySet()) {
+            String canonicalName = entry.getKey();
+            List<Node> copies = entry.getValue();
+            if (copies.size() == 1 && copies.get(0).getName().equals(canonicalName)) {
+                continue;
+            }
+            
+            Node latest = copies.get(0);
+            for (Node copy : copies) {
+                if (getExpiry(copy) > getExpiry(latest)) {
+                    latest = copy;
+                }
+            }
+            Node canonical = accountsFolder.hasNode(canonicalName)
+                ? accountsFolder.getNode(canonicalName)
+                : accountsFolder.addNode(canonicalName, "socialnt:account");
+            if (!latest.getPath().equals(canonical.getPath())) {
+                copySocialProperties(latest, canonical);
+            }
+            canonical.setProperty("social:accountId", getExternalId(latest));
+            
+            for (Node copy : copies) {
+                if (!copy.getPath().equals(canonical.getPath())) {
+                    logger.info("[ACCOUNT] >>> Merging {} into {}", copy.getName(), canonicalName);
+                    repointReferences(copy, canonical);
+                    copy.remove();
+                    merged++;
+                }
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Point the weak references to an account node (posts' social:account) at its replacement. Does not save.
+     */
+    private static void repointReferences(Node from, Node to) throws RepositoryException {
+        ValueFactory valueFactory = to.getSession().getValueFactory();
+        PropertyIterator references = from.getWeakReferences();
+        while (references.hasNext()) {
+            Property reference = references.nextProperty();
+            Node referrer = reference.getParent();
+            if (!reference.isMultiple()) {
+                referrer.setProperty(reference.getName(), valueFactory.createValue(to, true));
+                continue;
+            }
+            Value[] values = reference.getValues();
+            for (int i = 0; i < values.length; i++) {
+                if (from.getIdentifier().equals(values[i].getString())) {
+                    values[i] = valueFactory.createValue(to, true);
+                }
+            }
+            referrer.setProperty(reference.getName(), values);
+        }
+    }
+    
+    private static String getExternalId(Node accountNode) throws RepositoryException {
+        if (accountNode.hasProperty("social:accountId")) {
+            return accountNode.getProperty("social:accountId").getString();
+        }
+        if (accountNode.hasProperty("social:pageId")) {
+            return accountNode.getProperty("social:pageId").getString();
+        }
+        return null;
+    }
+    
+    private static long getExpiry(Node accountNode) throws RepositoryException {
+        return accountNode.hasProperty("social:tokenExpiry")
+            ? accountNode.getProperty("social:tokenExpiry").getDate().getTimeInMillis()
+            : 0L;
+    }
+    
+    private static void copySocialProperties(Node source, Node target) throws RepositoryException {
+        PropertyIterator properties = source.getProperties("social:*");
+        while (properties.hasNext()) {
+            Property property = properties.nextProperty();
+            if (property.isMultiple()) {
+                target.setProperty(property.getName(), property.getValues());
+            } else {
+                target.setProperty(property.getName(), property.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Immutable snapshot of the connected accounts of one site, keyed by platform account ID.
+     */
+    private static final class SiteAccounts {
+        private final Map<String, Map<String, String>> facebook;
+        private final Map<String, Map<String, String>> linkedin;
+        private final Map<String, Map<String, String>> instagram;
+        
+        private SiteAccounts(Map<String, Map<String, String>> facebook, Map<String, Map<String, String>> linkedin,
+                             Map<String, Map<String, String>> instagram) {
+            this.facebook = Collections.unmodifiableMap(facebook);
+            this.linkedin = Collections.unmodifiableMap(linkedin);
+            this.instagram = Collections.unmodifiableMap(instagram);
+        }
+    }
+    
+    /**
+     * One entry of the /me/accounts response.
+     */
+    private static final class FacebookPage {
+        private String id;
+        private String name;
+        private String accessToken;
+        private String instagramId;
+        private String instagramUsername;
+        private final List<String> tasks = new ArrayList<>();
+        
+        private boolean canPublish() {
+            return id != null && accessToken != null && (tasks.contains("CREATE_CONTENT") || tasks.contains("MANAGE"));
+        }
     }
 }
@@ -0,0 +1,196 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsAggregate;
+import org.example.socialhub.service.SocialAnalyticsService;
+import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of SocialAnalyticsService.
+ * Keeps one socialnt:metricsAggregate node per site, platform and month under
+ * /sites/<site>/social-analytics, named {platform}-{yyyy-MM}, holding one value per day
+ * of the month for each counter. Days are UTC days.
+ */
+@Component(service = SocialAnalyticsService.class, immediate = true)
+public class SocialAnalyticsServiceImpl implements SocialAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialAnalyticsServiceImpl.class);
+
+    private static final String SOCIAL_METRICS_AGGREGATE_TYPE = "socialnt:metricsAggregate";
+    private static final String[] PLATFORMS = {"facebook", "instagram", "linkedin"};
+    private static final String[] COUNTERS = {
+        "social:impressions", "social:clicks", "social:likes", "social:comments", "social:shares"
+    };
+
+    @Reference
+    private JCRTemplate jcrTemplate;
+
+    @Override
+    public synchronized void addMetrics(Collection<MetricsAggregate> deltas) throws RepositoryException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jcrTemplate.doExecuteWithSystemSession(session -> {
+            addMetrics(session, deltas);
+            session.save();
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void addMetrics(Session session, Collection<MetricsAggregate> deltas) throws RepositoryException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // Group by aggregate node, so each month node is rewritten once
+        Map<String, List<MetricsAggregate>> byNode = new LinkedHashMap<>();
+        for (MetricsAggregate delta : deltas) {
+            byNode.computeIfAbsent(delta.getSiteKey() + "/" + nodeName(delta.getPlatform(), delta.getDay()),
+                k -> new ArrayList<>()).add(delta);
+        }
+
+        for (List<MetricsAggregate> group : byNode.values()) {
+            MetricsAggregate first = group.get(0);
+            Node aggregate = getOrCreateAggregate(session, first.getSiteKey(), first.getPlatform(), first.getDay());
+            long[][] values = readCounters(aggregate);
+            for (MetricsAggregate delta : group) {
+                int day = dayOfMonth(delta.getDay());
+                long[] counters = counters(delta);
+                for (int i = 0; i < COUNTERS.length; i++) {
+                    values[i][day] += counters[i];
+                }
+            }
+            for (int i = 0; i < COUNTERS.length; i++) {
+                Value[] dayValues = new Value[values[i].length];
+                for (int day = 0; day < dayValues.length; day++) {
+                    dayValues[day] = session.getValueFactory().createValue(values[i][day]);
+                }
+                aggregate.setProperty(COUNTERS[i], dayValues);
+            }
+        }
+        logger.debug("[ANALYTICS] Applied {} metrics delta(s) to {} aggregate node(s)", deltas.size(), byNode.size());
+    }
+
+    @Override
+    public List<MetricsAggregate> getDailyMetrics(String siteKey, String platform, long from, long to)
+            throws RepositoryException {
+        String[] platforms = platform != null ? new String[]{platform.toLowerCase()} : PLATFORMS;
+        LocalDate firstDay = toDate(from);
+        LocalDate lastDay = toDate(to);
+
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            List<MetricsAggregate> days = new ArrayList<>();
+            String folderPath = AnalyticsFolder.path(siteKey);
+            if (!session.nodeExists(folderPath)) {
+                return days;
+            }
+            Node folder = session.getNode(folderPath);
+            for (String p : platforms) {
+                for (YearMonth month = YearMonth.from(firstDay); !month.isAfter(YearMonth.from(lastDay));
+                        month = month.plusMonths(1)) {
+                    String name = p + "-" + month;
+                    if (!folder.hasNode(name)) {
+                        continue;
+                    }
+                    long[][] values = readCounters(folder.getNode(name));
+                    for (int day = 0; day < month.lengthOfMonth(); day++) {
+                        LocalDate date = month.atDay(day + 1);
+                        if (date.isBefore(firstDay) || date.isAfter(lastDay)) {
+                            continue;
+                        }
+                        if (values[0][day] == 0 && values[1][day] == 0 && values[2][day] == 0
+                                && values[3][day] == 0 && values[4][day] == 0) {
+                            continue;
+                        }
+                        days.add(new MetricsAggregate(siteKey, p, date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(),
+                            values[0][day], values[1][day], values[2][day], values[3][day], values[4][day]));
+                    }
+                }
+            }
+            days.sort((a, b) -> Long.compare(a.getDay(), b.getDay()));
+            return days;
+        });
+    }
+
+    @Override
+    public MetricsAggregate getTotalMetrics(String siteKey, String platform, long from, long to)
+            throws RepositoryException {
+        long[] totals = new long[COUNTERS.length];
+        for (MetricsAggregate day : getDailyMetrics(siteKey, platform, from, to)) {
+            long[] counters = counters(day);
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counters[i];
+            }
+        }
+        long start = toDate(from).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        return new MetricsAggregate(siteKey, platform, start, totals[0], totals[1], totals[2], totals[3], totals[4]);
+    }
+
+    private Node getOrCreateAggregate(Session session, String siteKey, String platform, long day)
+            throws RepositoryException {
+        Node folder = AnalyticsFolder.getOrCreate(session, siteKey);
+        if (folder == null) {
+            throw new PathNotFoundException("/sites/" + siteKey);
+        }
+        String name = nodeName(platform, day);
+        if (folder.hasNode(name)) {
+            return folder.getNode(name);
+        }
+        Node aggregate = folder.addNode(name, SOCIAL_METRICS_AGGREGATE_TYPE);
+        aggregate.setProperty("social:platform", platform);
+        aggregate.setProperty("social:month", YearMonth.from(toDate(day)).toString());
+        return aggregate;
+    }
+
+    /**
+     * Counter values per day of month, indexed [counter][day - 1]; missing days are 0.
+     */
+    private static long[][] readCounters(Node aggregate) throws RepositoryException {
+        long[][] values = new long[COUNTERS.length][31];
+        for (int i = 0; i < COUNTERS.length; i++) {
+            if (!aggregate.hasProperty(COUNTERS[i])) {
+                continue;
+            }
+            Value[] dayValues = aggregate.getProperty(COUNTERS[i]).getValues();
+            for (int day = 0; day < Math.min(dayValues.length, 31); day++) {
+                values[i][day] = dayValues[day].getLong();
+            }
+        }
+        return values;
+    }
+
+    private static long[] counters(MetricsAggregate aggregate) {
+        return new long[]{aggregate.getImpressions(), aggregate.getClicks(), aggregate.getLikes(),
+            aggregate.getComments(), aggregate.getShares()};
+    }
+
+    private static String nodeName(String platform, long day) {
+        return platform.toLowerCase() + "-" + YearMonth.from(toDate(day));
+    }
+
+    private static int dayOfMonth(long day) {
+        return toDate(day).getDayOfMonth() - 1;
+    }
+
+    private static LocalDate toDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
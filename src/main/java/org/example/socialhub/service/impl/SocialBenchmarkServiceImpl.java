@@ -0,0 +1,194 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsSample;
+import org.example.socialhub.service.SocialBenchmarkService;
+import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of SocialBenchmarkService.
+ * Keeps one KLL sketch (see KllSketch) per site, platform and metric as a socialnt:metricsSketch node
+ * under /sites/<site>/social-analytics, named sketch-{platform}-{metric}. Each stored sketch takes a
+ * few hundred bytes whatever the number of posts. Reads are served from memory and reloaded from the
+ * repository at most once per RELOAD_INTERVAL, so sketches published by the processing server reach
+ * the other cluster nodes; all-platform queries merge the per-platform sketches.
+ */
+@Component(service = SocialBenchmarkService.class, immediate = true)
+public class SocialBenchmarkServiceImpl implements SocialBenchmarkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialBenchmarkServiceImpl.class);
+
+    private static final String SOCIAL_METRICS_SKETCH_TYPE = "socialnt:metricsSketch";
+    private static final String[] PLATFORMS = {"facebook", "instagram", "linkedin"};
+    private static final List<String> METRICS = Arrays.asList(
+        METRIC_IMPRESSIONS, METRIC_LIKES, METRIC_COMMENTS, METRIC_SHARES, METRIC_ENGAGEMENT);
+    private static final long RELOAD_INTERVAL = 60 * 60 * 1000L;
+
+    @Reference
+    private JCRTemplate jcrTemplate;
+
+    // "siteKey/platform/metric" -> sketch being rebuilt
+    private final Map<String, KllSketch> pending = new HashMap<>();
+    // "siteKey/platform/metric" -> stored sketch; never modified once cached
+    private final Map<String, CachedSketch> sketches = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void addPostMetrics(String siteKey, String platform, MetricsSample latest) {
+        for (String metric : METRICS) {
+            pending.computeIfAbsent(key(siteKey, platform.toLowerCase(), metric), k -> new KllSketch())
+                .update(value(metric, latest));
+        }
+    }
+
+    @Override
+    public synchronized int publishSketches() throws RepositoryException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<String, KllSketch> built = new HashMap<>(pending);
+        pending.clear();
+        long now = System.currentTimeMillis();
+
+        jcrTemplate.doExecuteWithSystemSession(session -> {
+            for (Map.Entry<String, KllSketch> entry : built.entrySet()) {
+                String[] parts = entry.getKey().split("/");
+                Node folder = AnalyticsFolder.getOrCreate(session, parts[0]);
+                if (folder == null) {
+                    continue;
+                }
+                String name = "sketch-" + parts[1] + "-" + parts[2];
+                Node sketchNode;
+                if (folder.hasNode(name)) {
+                    sketchNode = folder.getNode(name);
+                } else {
+                    sketchNode = folder.addNode(name, SOCIAL_METRICS_SKETCH_TYPE);
+                    sketchNode.setProperty("social:platform", parts[1]);
+                    sketchNode.setProperty("social:metric", parts[2]);
+                }
+                Calendar builtAt = Calendar.getInstance();
+                builtAt.setTimeInMillis(now);
+                sketchNode.setProperty("social:builtAt", builtAt);
+                sketchNode.setProperty("social:postCount", entry.getValue().getCount());
+                sketchNode.setProperty("social:sketch", session.getValueFactory()
+                    .createBinary(new ByteArrayInputStream(entry.getValue().toBytes())));
+            }
+            session.save();
+            return null;
+        });
+
+        for (Map.Entry<String, KllSketch> entry : built.entrySet()) {
+            sketches.put(entry.getKey(), new CachedSketch(entry.getValue(), now));
+        }
+        logger.info("[BENCHMARK] Stored {} metrics sketch(es)", built.size());
+        return built.size();
+    }
+
+    @Override
+    public Double getPercentileRank(String siteKey, String platform, String metric, long value)
+            throws RepositoryException {
+        KllSketch sketch = getSketch(siteKey, platform, metric);
+        return sketch != null ? sketch.rank(value) * 100 : null;
+    }
+
+    @Override
+    public Long getPercentile(String siteKey, String platform, String metric, double percentile)
+            throws RepositoryException {
+        KllSketch sketch = getSketch(siteKey, platform, metric);
+        return sketch != null ? sketch.quantile(percentile / 100) : null;
+    }
+
+    /**
+     * Sketch of one platform, or the merge of all platforms; null if none was built.
+     */
+    private KllSketch getSketch(String siteKey, String platform, String metric) throws RepositoryException {
+        if (!METRICS.contains(metric)) {
+            throw new IllegalArgumentException("Unknown benchmark metric: " + metric);
+        }
+        if (platform != null) {
+            return getCached(siteKey, platform.toLowerCase(), metric);
+        }
+        KllSketch merged = new KllSketch();
+        for (String p : PLATFORMS) {
+            KllSketch sketch = getCached(siteKey, p, metric);
+            if (sketch != null) {
+                merged.merge(sketch);
+            }
+        }
+        return merged.isEmpty() ? null : merged;
+    }
+
+    private KllSketch getCached(String siteKey, String platform, String metric) throws RepositoryException {
+        String key = key(siteKey, platform, metric);
+        long now = System.currentTimeMillis();
+        CachedSketch cached = sketches.get(key);
+        if (cached != null && now - cached.loadedAt < RELOAD_INTERVAL) {
+            return cached.sketch;
+        }
+        KllSketch sketch = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String path = AnalyticsFolder.path(siteKey) + "/sketch-" + platform + "-" + metric;
+            if (!session.nodeExists(path)) {
+                return null;
+            }
+            Node sketchNode = session.getNode(path);
+            if (!sketchNode.hasProperty("social:sketch")) {
+                return null;
+            }
+            Binary binary = sketchNode.getProperty("social:sketch").getBinary();
+            try (InputStream in = binary.getStream()) {
+                return KllSketch.read(in);
+            } catch (IOException e) {
+                logger.warn("[BENCHMARK] Could not read metrics sketch {}: {}", path, e.getMessage());
+                return null;
+            } finally {
+                binary.dispose();
+            }
+        });
+        sketches.put(key, new CachedSketch(sketch, now));
+        return sketch;
+    }
+
+    private static long value(String metric, MetricsSample sample) {
+        switch (metric) {
+            case METRIC_IMPRESSIONS:
+                return sample.getImpressions();
+            case METRIC_LIKES:
+                return sample.getLikes();
+            case METRIC_COMMENTS:
+                return sample.getComments();
+            case METRIC_SHARES:
+                return sample.getShares();
+            default:
+                return sample.getClicks() + sample.getLikes() + sample.getComments() + sample.getShares();
+        }
+    }
+
+    private static String key(String siteKey, String platform, String metric) {
+        return siteKey + "/" + platform + "/" + metric;
+    }
+
+    private static final class CachedSketch {
+        private final KllSketch sketch;
+        private final long loadedAt;
+
+        private CachedSketch(KllSketch sketch, long loadedAt) {
+            this.sketch = sketch;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
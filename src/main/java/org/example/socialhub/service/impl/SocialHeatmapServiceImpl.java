@@ -0,0 +1,330 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PostingHeatmap;
+import org.example.socialhub.service.SocialHeatmapService;
+import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of SocialHeatmapService.
+ * Keeps one socialnt:metricsHeatmap node per site and platform under /sites/<site>/social-analytics,
+ * named heatmap-{platform}, holding the post count and summed engagement of each of the 168 weekday/hour
+ * slots. Each metrics series records the engagement it last contributed (social:heatmapEngagement), so an
+ * update only adds differences, and only visits posts published within metricsMaxAgeDays of the previous
+ * update, the only ones whose metrics are still refreshed. A full rebuild happens on the first run and
+ * when heatmapTimeZone changes. Sites are updated in parallel, each in its own session.
+ * Posts whose publish date was estimated (social:publishedAtEstimated) are left out.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ */
+@Component(
+    service = SocialHeatmapService.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
+public class SocialHeatmapServiceImpl implements SocialHeatmapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialHeatmapServiceImpl.class);
+
+    private static final String SOCIAL_POST_TYPE = "socialnt:post";
+    private static final String SOCIAL_METRICS_SERIES_TYPE = "socialnt:metricsSeries";
+    private static final String SOCIAL_METRICS_HEATMAP_TYPE = "socialnt:metricsHeatmap";
+    private static final String[] PLATFORMS = {"facebook", "instagram", "linkedin"};
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private String heatmapTimeZone = "UTC";
+    private int heatmapParallelism = 4;
+    private int metricsMaxAgeDays = 30;
+    private int metricsSaveBatchSize = 50;
+
+    @Reference
+    private JCRTemplate jcrTemplate;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (properties.get("heatmapTimeZone") != null) {
+            String timeZone = properties.get("heatmapTimeZone").toString().trim();
+            try {
+                heatmapTimeZone = ZoneId.of(timeZone).getId();
+            } catch (DateTimeException e) {
+                logger.warn("[HEATMAP] Invalid value '{}' for heatmapTimeZone, using default {}", timeZone, heatmapTimeZone);
+            }
+        }
+        heatmapParallelism = Math.max(1, getInt(properties, "heatmapParallelism", heatmapParallelism));
+        metricsMaxAgeDays = Math.max(1, getInt(properties, "metricsMaxAgeDays", metricsMaxAgeDays));
+        metricsSaveBatchSize = Math.max(1, getInt(properties, "metricsSaveBatchSize", metricsSaveBatchSize));
+        logger.info("[HEATMAP] SocialHeatmapServiceImpl activated - time zone: {}, parallelism: {}",
+            heatmapTimeZone, heatmapParallelism);
+    }
+
+    @Override
+    public int updateHeatmaps() throws RepositoryException {
+        List<String> sites = jcrTemplate.doExecuteWithSystemSession(session -> {
+            List<String> names = new ArrayList<>();
+            NodeIterator children = session.getNode("/sites").getNodes();
+            while (children.hasNext()) {
+                Node site = children.nextNode();
+                if (site.isNodeType("jnt:virtualsite")) {
+                    names.add(site.getName());
+                }
+            }
+            return names;
+        });
+        if (sites.isEmpty()) {
+            return 0;
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(heatmapParallelism, sites.size()), runnable -> {
+            Thread thread = new Thread(runnable, "social-heatmap-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int updated = 0;
+        try {
+            Map<String, Future<Integer>> results = new HashMap<>();
+            for (String siteKey : sites) {
+                results.put(siteKey, executor.submit(() -> updateSite(siteKey)));
+            }
+            for (Map.Entry<String, Future<Integer>> result : results.entrySet()) {
+                try {
+                    updated += result.getValue().get();
+                } catch (ExecutionException e) {
+                    logger.error("[HEATMAP] Could not update heatmaps of site " + result.getKey(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("[HEATMAP] Interrupted while updating heatmaps");
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("[HEATMAP] Updated heatmaps of {} site(s), {} metrics series changed", sites.size(), updated);
+        return updated;
+    }
+
+    @Override
+    public PostingHeatmap getHeatmap(String siteKey, String platform) throws RepositoryException {
+        String[] platforms = platform != null ? new String[]{platform.toLowerCase()} : PLATFORMS;
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            long[] posts = new long[PostingHeatmap.SLOTS];
+            long[] engagement = new long[PostingHeatmap.SLOTS];
+            String timeZone = null;
+            long updatedAt = 0;
+            for (String p : platforms) {
+                String path = AnalyticsFolder.path(siteKey) + "/heatmap-" + p;
+                if (!session.nodeExists(path)) {
+                    continue;
+                }
+                Node heatmap = session.getNode(path);
+                add(posts, readSlots(heatmap, "social:posts"));
+                add(engagement, readSlots(heatmap, "social:engagement"));
+                timeZone = heatmap.getProperty("social:timeZone").getString();
+                updatedAt = Math.max(updatedAt, heatmap.getProperty("social:updatedAt").getDate().getTimeInMillis());
+            }
+            return timeZone != null
+                ? new PostingHeatmap(siteKey, platform != null ? platform.toLowerCase() : null, timeZone, updatedAt, posts, engagement)
+                : null;
+        });
+    }
+
+    /**
+     * Apply the engagement changes of one site's recent posts to its heatmaps.
+     *
+     * @return number of metrics series whose contribution changed
+     */
+    private int updateSite(String siteKey) throws RepositoryException {
+        long start = System.currentTimeMillis();
+        ZoneId zone = ZoneId.of(heatmapTimeZone);
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            String folderPath = AnalyticsFolder.path(siteKey);
+            // platform -> {posts, engagement} per slot
+            Map<String, long[][]> heatmaps = new HashMap<>();
+            boolean full = true;
+            long since = Long.MAX_VALUE;
+            if (session.nodeExists(folderPath)) {
+                Node folder = session.getNode(folderPath);
+                for (String platform : PLATFORMS) {
+                    if (!folder.hasNode("heatmap-" + platform)) {
+                        continue;
+                    }
+                    Node heatmap = folder.getNode("heatmap-" + platform);
+                    full = !heatmapTimeZone.equals(heatmap.getProperty("social:timeZone").getString());
+                    if (full) {
+                        break;
+                    }
+                    heatmaps.put(platform, new long[][]{readSlots(heatmap, "social:posts"), readSlots(heatmap, "social:engagement")});
+                    since = Math.min(since, heatmap.getProperty("social:updatedAt").getDate().getTimeInMillis());
+                }
+            }
+            if (full) {
+                heatmaps.clear();
+            }
+
+            String sql2Query = String.format(
+                "SELECT * FROM [%s] WHERE ISDESCENDANTNODE('/sites/%s') AND [social:publishedAt] IS NOT NULL",
+                SOCIAL_POST_TYPE, siteKey);
+            if (!full) {
+                sql2Query += String.format(" AND [social:publishedAt] >= CAST('%s' AS DATE)",
+                    new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS").format(new Date(since - (metricsMaxAgeDays + 1) * DAY)));
+            }
+            NodeIterator nodes = session.getWorkspace().getQueryManager()
+                .createQuery(sql2Query, Query.JCR_SQL2).execute().getNodes();
+
+            int changed = 0;
+            int unsaved = 0;
+            while (nodes.hasNext()) {
+                Node postNode = nodes.nextNode();
+                if (postNode.hasProperty("social:publishedAtEstimated")
+                        && postNode.getProperty("social:publishedAtEstimated").getBoolean()) {
+                    // Publish time unknown: the slot would reflect when the post was last edited
+                    continue;
+                }
+                ZonedDateTime publishedAt = postNode.getProperty("social:publishedAt").getDate().toInstant().atZone(zone);
+                int slot = PostingHeatmap.slot(publishedAt.getDayOfWeek().getValue(), publishedAt.getHour());
+                NodeIterator children = postNode.getNodes("metrics-*");
+                while (children.hasNext()) {
+                    Node series = children.nextNode();
+                    if (!series.isNodeType(SOCIAL_METRICS_SERIES_TYPE) || !series.hasProperty("social:platform")
+                            || !series.hasProperty("social:capturedAt")) {
+                        continue;
+                    }
+                    long engagement = getLong(series, "social:clicks") + getLong(series, "social:likes")
+                        + getLong(series, "social:comments") + getLong(series, "social:shares");
+                    Long previous = !full && series.hasProperty("social:heatmapEngagement")
+                        ? series.getProperty("social:heatmapEngagement").getLong() : null;
+                    if (previous != null && previous == engagement) {
+                        continue;
+                    }
+                    long[][] heatmap = heatmaps.computeIfAbsent(series.getProperty("social:platform").getString(),
+                        k -> new long[][]{new long[PostingHeatmap.SLOTS], new long[PostingHeatmap.SLOTS]});
+                    contribute(heatmap, slot, engagement, previous);
+                    series.setProperty("social:heatmapEngagement", engagement);
+                    changed++;
+                    if (++unsaved >= metricsSaveBatchSize) {
+                        // Heatmaps are saved along with the contributions, so the two stay consistent
+                        writeHeatmaps(session, siteKey, heatmaps, start);
+                        session.save();
+                        unsaved = 0;
+                    }
+                }
+            }
+            if (!heatmaps.isEmpty()) {
+                writeHeatmaps(session, siteKey, heatmaps, start);
+                session.save();
+            }
+            logger.debug("[HEATMAP] Site {}: {} metrics series changed ({} update)", siteKey, changed, full ? "full" : "incremental");
+            return changed;
+        });
+    }
+
+    /**
+     * Add a metrics series to a heatmap slot: its post is counted the first time, after that only the
+     * engagement change since its previous contribution is added.
+     *
+     * @param heatmap  {posts, engagement} per slot
+     * @param previous engagement the series contributed last, or null if it was not counted yet
+     */
+    static void contribute(long[][] heatmap, int slot, long engagement, Long previous) {
+        if (previous == null) {
+            heatmap[0][slot]++;
+            heatmap[1][slot] += engagement;
+        } else {
+            heatmap[1][slot] += engagement - previous;
+        }
+    }
+
+    private void writeHeatmaps(Session session, String siteKey, Map<String, long[][]> heatmaps, long updatedAt)
+            throws RepositoryException {
+        Node folder = AnalyticsFolder.getOrCreate(session, siteKey);
+        if (folder == null) {
+            throw new PathNotFoundException("/sites/" + siteKey);
+        }
+        Calendar updated = Calendar.getInstance();
+        updated.setTimeInMillis(updatedAt);
+        for (Map.Entry<String, long[][]> entry : heatmaps.entrySet()) {
+            String name = "heatmap-" + entry.getKey();
+            Node heatmap;
+            if (folder.hasNode(name)) {
+                heatmap = folder.getNode(name);
+            } else {
+                heatmap = folder.addNode(name, SOCIAL_METRICS_HEATMAP_TYPE);
+                heatmap.setProperty("social:platform", entry.getKey());
+            }
+            heatmap.setProperty("social:timeZone", heatmapTimeZone);
+            heatmap.setProperty("social:updatedAt", updated);
+            heatmap.setProperty("social:posts", toValues(session, entry.getValue()[0]));
+            heatmap.setProperty("social:engagement", toValues(session, entry.getValue()[1]));
+        }
+    }
+
+    private static Value[] toValues(Session session, long[] slots) throws RepositoryException {
+        Value[] values = new Value[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = session.getValueFactory().createValue(slots[i]);
+        }
+        return values;
+    }
+
+    private static long[] readSlots(Node heatmap, String property) throws RepositoryException {
+        long[] slots = new long[PostingHeatmap.SLOTS];
+        if (heatmap.hasProperty(property)) {
+            Value[] values = heatmap.getProperty(property).getValues();
+            for (int i = 0; i < Math.min(values.length, slots.length); i++) {
+                slots[i] = values[i].getLong();
+            }
+        }
+        return slots;
+    }
+
+    private static void add(long[] totals, long[] values) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += values[i];
+        }
+    }
+
+    private static long getLong(Node node, String property) throws RepositoryException {
+        return node.hasProperty(property) ? node.getProperty(property).getLong() : 0;
+    }
+
+    private static int getInt(Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("[HEATMAP] Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
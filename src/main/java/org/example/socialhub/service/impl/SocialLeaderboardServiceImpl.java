@@ -0,0 +1,358 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.LeaderboardEntry;
+import org.example.socialhub.service.MetricsSample;
+import org.example.socialhub.service.SocialLeaderboardService;
+import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of SocialLeaderboardService.
+ * Keeps, per site and platform, each post's counter changes in a 30-slot ring of daily buckets.
+ * refreshLeaderboards() streams the posts through one bounded min-heap of leaderboardSize entries
+ * per metric and window, and stores the sorted results as a socialnt:metricsLeaderboard node per site
+ * and platform under /sites/<site>/social-analytics, named leaderboard-{platform}. The counter history
+ * only lives on the processing server that collects metrics; every cluster node reads the stored
+ * rankings, cached in memory and reloaded at most once per RELOAD_INTERVAL.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ */
+@Component(
+    service = SocialLeaderboardService.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
+public class SocialLeaderboardServiceImpl implements SocialLeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialLeaderboardServiceImpl.class);
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    // The metrics job refreshes the rankings every 5 minutes
+    private static final long RELOAD_INTERVAL = 5 * 60 * 1000L;
+    private static final String SOCIAL_METRICS_LEADERBOARD_TYPE = "socialnt:metricsLeaderboard";
+    private static final String[] PLATFORMS = {"facebook", "instagram", "linkedin"};
+    private static final int RING_DAYS = 30;
+    private static final String[] METRICS = {METRIC_ENGAGEMENT_RATE, METRIC_LIKES, METRIC_SHARES};
+    private static final Map<String, Integer> WINDOWS = new LinkedHashMap<>();
+    static {
+        WINDOWS.put(WINDOW_DAY, 1);
+        WINDOWS.put(WINDOW_WEEK, 7);
+        WINDOWS.put(WINDOW_MONTH, RING_DAYS);
+    }
+    private static final Comparator<LeaderboardEntry> BY_SCORE = Comparator.comparingDouble(LeaderboardEntry::getScore);
+
+    private int leaderboardSize = 20;
+
+    @Reference
+    private JCRTemplate jcrTemplate;
+
+    // "siteKey/platform" -> board, filled on the node that collects metrics
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    // "siteKey/platform" -> stored rankings
+    private final Map<String, CachedRankings> rankings = new ConcurrentHashMap<>();
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        Object value = properties.get("leaderboardSize");
+        if (value != null) {
+            try {
+                leaderboardSize = Math.max(1, Integer.parseInt(value.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("[LEADERBOARD] Invalid value '{}' for leaderboardSize, using default {}", value, leaderboardSize);
+            }
+        }
+        logger.info("[LEADERBOARD] SocialLeaderboardServiceImpl activated - size: {}", leaderboardSize);
+    }
+
+    @Override
+    public void recordMetrics(String siteKey, String platform, String postUuid, MetricsSample change) {
+        Board board = boards.computeIfAbsent(siteKey + "/" + platform, k -> new Board(platform));
+        synchronized (board) {
+            board.posts.computeIfAbsent(postUuid, k -> new PostStats())
+                .add(Math.floorDiv(change.getCapturedAt(), DAY), MetricsRollups.counters(change));
+        }
+    }
+
+    @Override
+    public void refreshLeaderboards() throws RepositoryException {
+        long today = Math.floorDiv(System.currentTimeMillis(), DAY);
+        // "siteKey/platform" -> "metric/window" -> ranking
+        Map<String, Map<String, List<LeaderboardEntry>>> refreshed = new HashMap<>();
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            Map<String, List<LeaderboardEntry>> boardRankings = new HashMap<>();
+            synchronized (board) {
+                Map<String, PriorityQueue<LeaderboardEntry>> heaps = new HashMap<>();
+                Iterator<Map.Entry<String, PostStats>> posts = board.posts.entrySet().iterator();
+                while (posts.hasNext()) {
+                    Map.Entry<String, PostStats> post = posts.next();
+                    if (!post.getValue().hasDataSince(today - RING_DAYS + 1)) {
+                        posts.remove();
+                        continue;
+                    }
+                    for (Map.Entry<String, Integer> window : WINDOWS.entrySet()) {
+                        long[] sums = post.getValue().sum(today, window.getValue());
+                        for (String metric : METRICS) {
+                            Double score = score(metric, sums);
+                            if (score == null) {
+                                continue;
+                            }
+                            offer(heaps.computeIfAbsent(metric + "/" + window.getKey(),
+                                k -> new PriorityQueue<>(leaderboardSize + 1, BY_SCORE)),
+                                new LeaderboardEntry(post.getKey(), board.platform, score,
+                                    sums[0], sums[1], sums[2], sums[3], sums[4]));
+                        }
+                    }
+                }
+                for (Map.Entry<String, PriorityQueue<LeaderboardEntry>> heap : heaps.entrySet()) {
+                    List<LeaderboardEntry> ranking = new ArrayList<>(heap.getValue());
+                    ranking.sort(BY_SCORE.reversed());
+                    boardRankings.put(heap.getKey(), Collections.unmodifiableList(ranking));
+                }
+            }
+            refreshed.put(entry.getKey(), boardRankings);
+        }
+        if (!refreshed.isEmpty()) {
+            storeRankings(refreshed);
+        }
+    }
+
+    private void storeRankings(Map<String, Map<String, List<LeaderboardEntry>>> refreshed) throws RepositoryException {
+        long now = System.currentTimeMillis();
+        jcrTemplate.doExecuteWithSystemSession(session -> {
+            Calendar updatedAt = Calendar.getInstance();
+            updatedAt.setTimeInMillis(now);
+            for (Map.Entry<String, Map<String, List<LeaderboardEntry>>> entry : refreshed.entrySet()) {
+                String[] parts = entry.getKey().split("/");
+                Node folder = AnalyticsFolder.getOrCreate(session, parts[0]);
+                if (folder == null) {
+                    continue;
+                }
+                String name = "leaderboard-" + parts[1];
+                Node leaderboard;
+                if (folder.hasNode(name)) {
+                    leaderboard = folder.getNode(name);
+                } else {
+                    leaderboard = folder.addNode(name, SOCIAL_METRICS_LEADERBOARD_TYPE);
+                    leaderboard.setProperty("social:platform", parts[1]);
+                }
+                leaderboard.setProperty("social:updatedAt", updatedAt);
+                leaderboard.setProperty("social:rankings", encode(entry.getValue()));
+            }
+            session.save();
+            return null;
+        });
+        for (Map.Entry<String, Map<String, List<LeaderboardEntry>>> entry : refreshed.entrySet()) {
+            rankings.put(entry.getKey(), new CachedRankings(entry.getValue(), now));
+        }
+    }
+
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(String siteKey, String platform, String metric, String window, int limit)
+            throws RepositoryException {
+        if (!WINDOWS.containsKey(window)) {
+            throw new IllegalArgumentException("Unknown leaderboard window: " + window);
+        }
+        if (!METRIC_ENGAGEMENT_RATE.equals(metric) && !METRIC_LIKES.equals(metric) && !METRIC_SHARES.equals(metric)) {
+            throw new IllegalArgumentException("Unknown leaderboard metric: " + metric);
+        }
+        String key = metric + "/" + window;
+        int size = Math.max(0, Math.min(limit, leaderboardSize));
+        if (platform != null) {
+            List<LeaderboardEntry> ranking = getRankings(siteKey, platform.toLowerCase()).get(key);
+            return ranking != null ? ranking.subList(0, Math.min(size, ranking.size())) : Collections.emptyList();
+        }
+        // All platforms: merge the per-platform top lists
+        List<LeaderboardEntry> merged = new ArrayList<>();
+        for (String p : PLATFORMS) {
+            List<LeaderboardEntry> ranking = getRankings(siteKey, p).get(key);
+            if (ranking != null) {
+                merged.addAll(ranking);
+            }
+        }
+        merged.sort(BY_SCORE.reversed());
+        return merged.subList(0, Math.min(size, merged.size()));
+    }
+
+    /**
+     * Stored rankings of a site and platform by "metric/window", empty if none were stored yet.
+     */
+    private Map<String, List<LeaderboardEntry>> getRankings(String siteKey, String platform) throws RepositoryException {
+        String key = siteKey + "/" + platform;
+        long now = System.currentTimeMillis();
+        CachedRankings cached = rankings.get(key);
+        if (cached != null && now - cached.loadedAt < RELOAD_INTERVAL) {
+            return cached.rankings;
+        }
+        Map<String, List<LeaderboardEntry>> loaded = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String path = AnalyticsFolder.path(siteKey) + "/leaderboard-" + platform;
+            if (!session.nodeExists(path) || !session.getNode(path).hasProperty("social:rankings")) {
+                return Collections.<String, List<LeaderboardEntry>>emptyMap();
+            }
+            Value[] values = session.getNode(path).getProperty("social:rankings").getValues();
+            String[] lines = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                lines[i] = values[i].getString();
+            }
+            return decode(platform, lines);
+        });
+        rankings.put(key, new CachedRankings(loaded, now));
+        return loaded;
+    }
+
+    /**
+     * One line per ranked post, in ranking order: "metric/window postUuid impressions clicks likes comments shares".
+     * Scores are recomputed from the counters when read.
+     */
+    static String[] encode(Map<String, List<LeaderboardEntry>> boardRankings) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, List<LeaderboardEntry>> ranking : boardRankings.entrySet()) {
+            for (LeaderboardEntry entry : ranking.getValue()) {
+                lines.add(ranking.getKey() + " " + entry.getPostUuid() + " " + entry.getImpressions() + " "
+                    + entry.getClicks() + " " + entry.getLikes() + " " + entry.getComments() + " " + entry.getShares());
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    static Map<String, List<LeaderboardEntry>> decode(String platform, String[] lines) {
+        Map<String, List<LeaderboardEntry>> decoded = new HashMap<>();
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            if (fields.length != 7) {
+                continue;
+            }
+            long[] sums = new long[5];
+            try {
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] = Long.parseLong(fields[i + 2]);
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Double score = score(fields[0].substring(0, Math.max(0, fields[0].indexOf('/'))), sums);
+            if (score != null) {
+                decoded.computeIfAbsent(fields[0], k -> new ArrayList<>()).add(new LeaderboardEntry(fields[1], platform,
+                    score, sums[0], sums[1], sums[2], sums[3], sums[4]));
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Keep the heap at leaderboardSize entries, dropping the lowest score.
+     */
+    void offer(PriorityQueue<LeaderboardEntry> heap, LeaderboardEntry entry) {
+        if (heap.size() < leaderboardSize) {
+            heap.add(entry);
+        } else if (entry.getScore() > heap.peek().getScore()) {
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * Score of window sums (impressions, clicks, likes, comments, shares), or null if the post is not ranked.
+     */
+    static Double score(String metric, long[] sums) {
+        switch (metric) {
+            case METRIC_ENGAGEMENT_RATE:
+                return sums[0] > 0 ? (double) (sums[1] + sums[2] + sums[3] + sums[4]) / sums[0] : null;
+            case METRIC_LIKES:
+                return sums[2] > 0 ? (double) sums[2] : null;
+            case METRIC_SHARES:
+                return sums[4] > 0 ? (double) sums[4] : null;
+            default:
+                return null;
+        }
+    }
+
+    private static final class Board {
+        private final String platform;
+        private final Map<String, PostStats> posts = new HashMap<>();
+
+        private Board(String platform) {
+            this.platform = platform;
+        }
+    }
+
+    private static final class CachedRankings {
+        // "metric/window" -> ranking
+        private final Map<String, List<LeaderboardEntry>> rankings;
+        private final long loadedAt;
+
+        private CachedRankings(Map<String, List<LeaderboardEntry>> rankings, long loadedAt) {
+            this.rankings = rankings;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Counter changes of one post in daily buckets, ring-indexed by epoch day.
+     */
+    static final class PostStats {
+        private final long[] days = new long[RING_DAYS];
+        private final long[][] counters = new long[RING_DAYS][5];
+
+        PostStats() {
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        void add(long day, long[] change) {
+            int slot = (int) Math.floorMod(day, (long) RING_DAYS);
+            if (days[slot] != day) {
+                if (days[slot] > day) {
+                    // Older than what the ring holds
+                    return;
+                }
+                days[slot] = day;
+                Arrays.fill(counters[slot], 0);
+            }
+            for (int i = 0; i < change.length; i++) {
+                counters[slot][i] += change[i];
+            }
+        }
+
+        long[] sum(long today, int windowDays) {
+            long[] sums = new long[5];
+            for (int slot = 0; slot < RING_DAYS; slot++) {
+                long age = today - days[slot];
+                if (days[slot] != Long.MIN_VALUE && age >= 0 && age < windowDays) {
+                    for (int i = 0; i < sums.length; i++) {
+                        sums[i] += counters[slot][i];
+                    }
+                }
+            }
+            return sums;
+        }
+
+        boolean hasDataSince(long day) {
+            for (long d : days) {
+                if (d != Long.MIN_VALUE && d >= day) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,54 +1,255 @@
 package org.example.socialhub.service.impl;
 
+import org.example.socialhub.service.MetricsAggregate;
+import org.example.socialhub.service.MetricsRollup;
+import org.example.socialhub.service.MetricsSample;
+import org.example.socialhub.service.ActivityLogService;
+import org.example.socialhub.service.SocialAccountService;
+import org.example.socialhub.service.SocialAnalyticsService;
+import org.example.socialhub.service.SocialBenchmarkService;
+import org.example.socialhub.service.SocialLeaderboardService;
 import org.example.socialhub.service.SocialMetricsService;
+import org.example.socialhub.util.JsonStreamParser;
 import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.Binary;
+import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.Value;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of SocialMetricsService using OSGi Declarative Services.
  * Fetches analytics data from external platforms and stores as JCR nodes.
+ * 
+ * Targets are grouped by platform and account and fetched in multi-ID requests
+ * (Graph API ?ids=, LinkedIn socialActions batch GET), in parallel on one bounded pool
+ * per platform; results are handed to a single writer that applies them in one session
+ * with batched saves.
+ * 
+ * Each post carries its own social:metricsNextRefresh, derived from the post's age and
+ * whether its engagement still moves, so only due posts are fetched; posts older than
+ * metricsMaxAgeDays are no longer refreshed.
+ * 
+ * Samples are kept as one socialnt:metricsSeries child per post and platform: the series
+ * holds the latest values, and delta-encoded socialnt:metricsBlock children of up to
+ * BLOCK_SIZE samples each hold the history (see MetricsSeriesCodec). compactMetrics() rolls
+ * raw blocks past metricsRawRetentionDays into hourly, then daily, then weekly socialnt:metricsRollup
+ * children (see MetricsRollups), so long ranges read a few hundred buckets.
+ * 
+ * A sample is only appended when a counter changed since the last stored one (kept in a
+ * small LRU cache); otherwise the series' social:lastCheckedAt is moved forward, at most
+ * once per LAST_CHECKED_INTERVAL. The change of each stored sample is added to the site's
+ * daily aggregates through SocialAnalyticsService, and to the post leaderboards through
+ * SocialLeaderboardService. compactMetrics() also feeds every post's latest sample to
+ * SocialBenchmarkService, which rebuilds the per-site percentile sketches.
+ * 
+ * Every fetch, changed or not, also goes through MetricsAnomalyDetector; spikes and flatlines
+ * are recorded as metrics_anomaly activity log entries.
+ * 
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
  */
-@Component(service = SocialMetricsService.class, immediate = true)
+@Component(
+    service = SocialMetricsService.class,
+    immediate = true,
+    configurationPid = "org.example.socialhub.servlet.SocialProxyServlet"
+)
 public class SocialMetricsServiceImpl implements SocialMetricsService {
     
     private static final Logger logger = LoggerFactory.getLogger(SocialMetricsServiceImpl.class);
     
     private static final String SOCIAL_POST_TYPE = "socialnt:post";
     private static final String SOCIAL_METRICS_TYPE = "socialnt:metrics";
+    private static final String SOCIAL_METRICS_SERIES_TYPE = "socialnt:metricsSeries";
+    private static final String SOCIAL_METRICS_BLOCK_TYPE = "socialnt:metricsBlock";
+    // Samples per block: bounds the binary rewritten on each append (a few KB)
+    private static final int BLOCK_SIZE = 256;
+    private static final String SOCIAL_METRICS_ROLLUP_TYPE = "socialnt:metricsRollup";
+    // Unchanged fetches only persist social:lastCheckedAt when the stored one is older than this
+    private static final long LAST_CHECKED_INTERVAL = 60 * 60 * 1000L;
     private static final String STATUS_PUBLISHED = "published";
     
-    // External API configuration
-    private static final String EXTERNAL_API_BASE = "https://api.example.com/social";
-    private static final String API_TOKEN = "your-api-token-here";
+    private static final List<String> PLATFORMS = Arrays.asList("facebook", "instagram", "linkedin");
+    // Maximum number of objects per multi-ID request
+    private static final int GRAPH_IDS_LIMIT = 50;
+    private static final int LINKEDIN_IDS_LIMIT = 20;
+    
+    private static final String FACEBOOK_FIELDS =
+        "likes.summary(true).limit(0),comments.summary(true).limit(0),shares,insights.metric(post_impressions,post_clicks)";
+    private static final String INSTAGRAM_FIELDS = "like_count,comments_count";
+    
+    private String facebookBaseUrl = "https://graph.facebook.com";
+    private String facebookApiVersion = "v21.0";
+    private String instagramBaseUrl = "https://graph.facebook.com";
+    private String linkedinBaseUrl = "https://api.linkedin.com";
+    private String linkedinApiVersion = "v2";
+    // Upper bound for one fetch (connect + read timeout) before the writer gives up waiting
+    private static final long RESULT_WAIT_SECONDS = 90;
+    
+    private int metricsSaveBatchSize = 50;
+    
+    // Refresh cadence by post age: every 5 minutes in the first hour, hourly on day one,
+    // every 6 hours during the first week, then daily until metricsMaxAgeDays
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // Unchanged refreshes in a row double the interval, up to 2^MAX_BACKOFF_STEPS times (never beyond a day)
+    private static final int MAX_BACKOFF_STEPS = 3;
+    
+    private int metricsMaxAgeDays = 30;
+    // Retention per resolution: raw samples, then hourly, then daily buckets; weekly buckets are kept
+    private int metricsRawRetentionDays = 7;
+    private int metricsHourlyRetentionDays = 90;
+    private int metricsDailyRetentionDays = 730;
+    // Published posts from before adaptive scheduling get a next refresh date on the first run
+    private volatile boolean scheduleBackfilled;
+    // Snapshot nodes written before the series storage are folded into series on the first run
+    private volatile boolean legacyMetricsMigrated;
+    // The in-memory leaderboards are filled from the stored series on the first run after activation
+    private volatile boolean leaderboardsSeeded;
+    
+    // Metrics fetch pools, keyed by platform, each sized to the platform's concurrency cap
+    private final Map<String, ExecutorService> fetchExecutors = new ConcurrentHashMap<>();
+    
+    // Last stored sample per "postUuid/platform", so unchanged fetches are recognised without reading the series
+    private Map<String, MetricsSample> lastStored;
+    // Growth rate state per post and platform, sized like lastStored
+    private MetricsAnomalyDetector anomalyDetector;
+    
+    // Requests made during the current refresh, for the cycle summary
+    private final AtomicInteger apiCalls = new AtomicInteger();
     
     @Reference
     private JCRTemplate jcrTemplate;
     
+    @Reference
+    private SocialAccountService socialAccountService;
+    
+    @Reference
+    private SocialAnalyticsService socialAnalyticsService;
+    
+    @Reference
+    private SocialLeaderboardService socialLeaderboardService;
+    
+    @Reference
+    private SocialBenchmarkService socialBenchmarkService;
+    
+    @Reference
+    private ActivityLogService activityLogService;
+    
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (properties.get("facebookBaseUrl") != null) {
+            facebookBaseUrl = (String) properties.get("facebookBaseUrl");
+        }
+        if (properties.get("facebookApiVersion") != null) {
+            facebookApiVersion = (String) properties.get("facebookApiVersion");
+        }
+        if (properties.get("instagramBaseUrl") != null) {
+            instagramBaseUrl = (String) properties.get("instagramBaseUrl");
+        }
+        if (properties.get("linkedinBaseUrl") != null) {
+            linkedinBaseUrl = (String) properties.get("linkedinBaseUrl");
+        }
+        if (properties.get("linkedinApiVersion") != null) {
+            linkedinApiVersion = (String) properties.get("linkedinApiVersion");
+        }
+        metricsSaveBatchSize = Math.max(1, getInt(properties, "metricsSaveBatchSize", metricsSaveBatchSize));
+        metricsMaxAgeDays = Math.max(1, getInt(properties, "metricsMaxAgeDays", metricsMaxAgeDays));
+        int metricsCacheSize = Math.max(1, getInt(properties, "metricsCacheSize", 10000));
+        lastStored = Collections.synchronizedMap(new LruCache<>(metricsCacheSize));
+        anomalyDetector = new MetricsAnomalyDetector(metricsCacheSize);
+        metricsRawRetentionDays = Math.max(1, getInt(properties, "metricsRawRetentionDays", metricsRawRetentionDays));
+        metricsHourlyRetentionDays = Math.max(metricsRawRetentionDays,
+            getInt(properties, "metricsHourlyRetentionDays", metricsHourlyRetentionDays));
+        metricsDailyRetentionDays = Math.max(metricsHourlyRetentionDays,
+            getInt(properties, "metricsDailyRetentionDays", metricsDailyRetentionDays));
+        for (String platform : PLATFORMS) {
+            int concurrency = Math.max(1, getInt(properties, platform + "MetricsConcurrency", 4));
+            fetchExecutors.put(platform, Executors.newFixedThreadPool(concurrency, new MetricsThreadFactory(platform)));
+            logger.info("[METRICS] {} metrics concurrency: {}", platform, concurrency);
+        }
+        logger.info("[METRICS] SocialMetricsServiceImpl activated - save batch size: {}, max age: {} days",
+            metricsSaveBatchSize, metricsMaxAgeDays);
+    }
+    
+    @Deactivate
+    protected void deactivate() {
+        for (ExecutorService executor : fetchExecutors.values()) {
+            executor.shutdownNow();
+        }
+        fetchExecutors.clear();
+        logger.info("[METRICS] SocialMetricsServiceImpl deactivated");
+    }
+    
     @Override
     public void refreshMetricsForPublishedPosts() throws RepositoryException {
-        logger.info("Refreshing metrics for all published posts...");
+        logger.info("Refreshing metrics for posts due for refresh...");
         
-        jcrTemplate.doExecuteWithSystemSession(session -> {
+        if (!scheduleBackfilled) {
+            backfillRefreshSchedule();
+            scheduleBackfilled = true;
+        }
+        if (!legacyMetricsMigrated) {
+            migrateLegacyMetrics();
+            legacyMetricsMigrated = true;
+        }
+        if (!leaderboardsSeeded) {
+            seedLeaderboards();
+            leaderboardsSeeded = true;
+        }
+        
+        List<MetricsTarget> targets = jcrTemplate.doExecuteWithSystemSession(session -> {
             String sql2Query = String.format(
-                "SELECT * FROM [%s] WHERE [social:status] = '%s' AND [social:externalId] IS NOT NULL",
+                "SELECT * FROM [%s] WHERE [social:status] = '%s' AND [social:metricsNextRefresh] <= CAST('%s' AS DATE)",
                 SOCIAL_POST_TYPE,
-                STATUS_PUBLISHED
+                STATUS_PUBLISHED,
+                formatTimestamp(System.currentTimeMillis())
             );
             
             logger.debug("Executing query: {}", sql2Query);
@@ -58,158 +259,1308 @@ public class SocialMetricsServiceImpl implements SocialMetricsService {
             QueryResult result = query.execute();
             NodeIterator nodes = result.getNodes();
             
+            List<MetricsTarget> found = new ArrayList<>();
+            boolean unscheduled = false;
+            while (nodes.hasNext()) {
+                Node postNode = nodes.nextNode();
+                int before = found.size();
+                collectTargets(postNode, found);
+                if (found.size() == before) {
+                    // Nothing to fetch for this post, so stop it from coming back every run
+                    postNode.getProperty("social:metricsNextRefresh").remove();
+                    unscheduled = true;
+                }
+            }
+            if (unscheduled) {
+                session.save();
+            }
+            return found;
+        });
+        
+        apiCalls.set(0);
+        int count = collectMetrics(targets);
+        socialLeaderboardService.refreshLeaderboards();
+        logger.info("Refreshed metrics for {} due post metric target(s) in {} API call(s), {} changed",
+            targets.size(), apiCalls.get(), count);
+    }
+    
+    /**
+     * Give published posts that predate adaptive scheduling a publish date and a next refresh date,
+     * so the due-post query finds them. The publish date is only estimated from the last modification,
+     * and flagged as such.
+     */
+    private void backfillRefreshSchedule() throws RepositoryException {
+        int scheduled = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String sql2Query = String.format(
+                "SELECT * FROM [%s] WHERE [social:status] = '%s' AND [social:externalId] IS NOT NULL"
+                    + " AND [social:metricsNextRefresh] IS NULL AND [social:publishedAt] IS NULL",
+                SOCIAL_POST_TYPE,
+                STATUS_PUBLISHED
+            );
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            NodeIterator nodes = queryManager.createQuery(sql2Query, Query.JCR_SQL2).execute().getNodes();
+            
+            Calendar now = Calendar.getInstance();
             int count = 0;
             while (nodes.hasNext()) {
                 Node postNode = nodes.nextNode();
-                String uuid = postNode.getIdentifier();
-                
-                try {
-                    logger.debug("Refreshing metrics for post: {}", uuid);
-                    refreshMetricsForPost(uuid);
+                Calendar publishedAt = postNode.hasProperty("jcr:lastModified")
+                    ? postNode.getProperty("jcr:lastModified").getDate() : now;
+                postNode.setProperty("social:publishedAt", publishedAt);
+                postNode.setProperty("social:publishedAtEstimated", true);
+                postNode.setProperty("social:metricsNextRefresh", now);
+                if (++count % metricsSaveBatchSize == 0) {
+                    session.save();
+                }
+            }
+            if (count % metricsSaveBatchSize != 0) {
+                session.save();
+            }
+            return count;
+        });
+        if (scheduled > 0) {
+            logger.info("[METRICS] Scheduled metrics refresh for {} previously published post(s)", scheduled);
+        }
+    }
+    
+    /**
+     * Replay the last 30 days of changes of posts still on the refresh schedule into the leaderboards.
+     * Raw samples only cover metricsRawRetentionDays, so older days are replayed from the rollup buckets
+     * (weekly buckets land on their first day), followed by the raw samples after them.
+     */
+    private void seedLeaderboards() throws RepositoryException {
+        long from = System.currentTimeMillis() - 31 * DAY;
+        int seeded = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String sql2Query = String.format(
+                "SELECT * FROM [%s] WHERE [social:status] = '%s' AND [social:metricsNextRefresh] IS NOT NULL",
+                SOCIAL_POST_TYPE,
+                STATUS_PUBLISHED
+            );
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            NodeIterator nodes = queryManager.createQuery(sql2Query, Query.JCR_SQL2).execute().getNodes();
+            
+            int count = 0;
+            while (nodes.hasNext()) {
+                Node postNode = nodes.nextNode();
+                String siteKey = extractSiteFromPath(postNode.getPath());
+                NodeIterator children = postNode.getNodes("metrics-*");
+                while (children.hasNext()) {
+                    Node series = children.nextNode();
+                    if (!series.isNodeType(SOCIAL_METRICS_SERIES_TYPE) || !series.hasProperty("social:platform")) {
+                        continue;
+                    }
+                    String platform = series.getProperty("social:platform").getString();
+                    // Buckets chain their deltas from the previous bucket, oldest resolution first
+                    MetricsSample previous = null;
+                    for (String resolution : new String[]{RESOLUTION_WEEKLY, RESOLUTION_DAILY, RESOLUTION_HOURLY}) {
+                        for (MetricsRollup rollup : readRollups(series, resolution)) {
+                            if (rollup.getStart() >= from) {
+                                socialLeaderboardService.recordMetrics(siteKey, platform, postNode.getIdentifier(),
+                                    rollup.getDelta());
+                            }
+                            previous = rollup.getLast();
+                        }
+                    }
+                    for (MetricsSample sample : readSamples(series, from, Long.MAX_VALUE)) {
+                        if (previous != null) {
+                            socialLeaderboardService.recordMetrics(siteKey, platform, postNode.getIdentifier(),
+                                difference(sample, previous));
+                        }
+                        previous = sample;
+                    }
                     count++;
-                } catch (Exception e) {
-                    logger.error("Failed to refresh metrics for post " + uuid, e);
+                }
+            }
+            return count;
+        });
+        socialLeaderboardService.refreshLeaderboards();
+        logger.info("[METRICS] Seeded leaderboards from {} metrics series", seeded);
+    }
+    
+    /**
+     * Fold the one-node-per-snapshot socialnt:metrics children written by earlier versions
+     * into the post's metrics series, saving every metricsSaveBatchSize posts.
+     */
+    private void migrateLegacyMetrics() throws RepositoryException {
+        int migrated = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String sql2Query = String.format(
+                "SELECT * FROM [%s] WHERE [jcr:primaryType] = '%s'",
+                SOCIAL_METRICS_TYPE,
+                SOCIAL_METRICS_TYPE
+            );
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            NodeIterator nodes = queryManager.createQuery(sql2Query, Query.JCR_SQL2).execute().getNodes();
+            
+            // post UUID -> platforms with legacy snapshots
+            Map<String, Set<String>> legacy = new LinkedHashMap<>();
+            while (nodes.hasNext()) {
+                Node metricsNode = nodes.nextNode();
+                if (metricsNode.hasProperty("social:platform")) {
+                    legacy.computeIfAbsent(metricsNode.getParent().getIdentifier(), k -> new LinkedHashSet<>())
+                        .add(metricsNode.getProperty("social:platform").getString().toLowerCase());
                 }
             }
             
-            logger.info("Refreshed metrics for {} post(s)", count);
-            return null;
+            int posts = 0;
+            for (Map.Entry<String, Set<String>> entry : legacy.entrySet()) {
+                Node postNode = session.getNodeByIdentifier(entry.getKey());
+                for (String platform : entry.getValue()) {
+                    String seriesName = seriesNodeName(platform);
+                    if (postNode.hasNode(seriesName)) {
+                        migrateLegacyMetrics(postNode.getNode(seriesName), postNode, platform);
+                    } else {
+                        getOrCreateSeries(postNode, platform);
+                    }
+                }
+                if (++posts % metricsSaveBatchSize == 0) {
+                    session.save();
+                }
+            }
+            if (session.hasPendingChanges()) {
+                session.save();
+            }
+            return posts;
         });
+        if (migrated > 0) {
+            logger.info("[METRICS] Migrated metrics snapshot nodes of {} post(s) into metrics series", migrated);
+        }
     }
     
     @Override
     public void refreshMetricsForPost(String postUuid) throws RepositoryException {
         logger.info("Refreshing metrics for post: {}", postUuid);
         
-        jcrTemplate.doExecuteWithSystemSession(session -> {
+        List<MetricsTarget> targets = jcrTemplate.doExecuteWithSystemSession(session -> {
             Node postNode = session.getNodeByIdentifier(postUuid);
             
             if (!postNode.isNodeType(SOCIAL_POST_TYPE)) {
                 throw new RepositoryException("Node is not a socialnt:post: " + postUuid);
             }
             
-            // Get external IDs (format: "platform:externalId")
-            if (!postNode.hasProperty("social:externalId")) {
-                logger.debug("Post {} has no external IDs, skipping metrics", postUuid);
+            List<MetricsTarget> found = new ArrayList<>();
+            collectTargets(postNode, found);
+            return found;
+        });
+        
+        collectMetrics(targets);
+    }
+    
+    @Override
+    public MetricsSample getLatestMetrics(String siteKey, String postUuid, String platform, String externalId)
+            throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            Node postNode = session.getNodeByIdentifier(postUuid);
+            String seriesName = seriesNodeName(platform);
+            if (!postNode.isNodeType(SOCIAL_POST_TYPE) || !postNode.getPath().startsWith("/sites/" + siteKey + "/")
+                    || !postNode.hasNode(seriesName)) {
                 return null;
             }
+            // The series records the platform post it was fetched for; older series fall back to the post's IDs
+            Node series = postNode.getNode(seriesName);
+            boolean matches = series.hasProperty("social:externalId")
+                ? series.getProperty("social:externalId").getString().equals(externalId)
+                : hasExternalId(postNode, platform, externalId);
+            if (!matches) {
+                logger.debug("Stored metrics of post {} are not for {} post {}", postUuid, platform, externalId);
+                return null;
+            }
+            return latestSample(series);
+        });
+    }
+    
+    /**
+     * Whether social:externalId of the post holds the given platform post ID, bare or as "{platform}:{id}".
+     */
+    private static boolean hasExternalId(Node postNode, String platform, String externalId) throws RepositoryException {
+        if (!postNode.hasProperty("social:externalId")) {
+            return false;
+        }
+        Property property = postNode.getProperty("social:externalId");
+        Value[] values = property.isMultiple() ? property.getValues() : new Value[]{property.getValue()};
+        String prefix = platform + ":";
+        for (Value value : values) {
+            String id = value.getString();
+            if (id.equals(externalId) || (id.regionMatches(true, 0, prefix, 0, prefix.length())
+                    && id.substring(prefix.length()).equals(externalId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public List<MetricsSample> getMetricsHistory(String postUuid, String platform, long from, long to)
+            throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            Node postNode = session.getNodeByIdentifier(postUuid);
+            String seriesName = seriesNodeName(platform);
+            if (!postNode.hasNode(seriesName)) {
+                return new ArrayList<MetricsSample>();
+            }
+            return readSamples(postNode.getNode(seriesName), from, to);
+        });
+    }
+    
+    /**
+     * Samples of a series captured in a time range, oldest first, decoding only the blocks overlapping it.
+     */
+    private static List<MetricsSample> readSamples(Node series, long from, long to) throws RepositoryException {
+        List<MetricsSample> samples = new ArrayList<>();
+        NodeIterator blocks = series.getNodes();
+        while (blocks.hasNext()) {
+            Node block = blocks.nextNode();
+            if (!block.isNodeType(SOCIAL_METRICS_BLOCK_TYPE)
+                    || block.getProperty("social:lastCapturedAt").getDate().getTimeInMillis() < from
+                    || block.getProperty("social:firstCapturedAt").getDate().getTimeInMillis() > to) {
+                continue;
+            }
+            for (MetricsSample sample : readBlock(block)) {
+                if (sample.getCapturedAt() >= from && sample.getCapturedAt() <= to) {
+                    samples.add(sample);
+                }
+            }
+        }
+        return samples;
+    }
+    
+    @Override
+    public int compactMetrics() throws RepositoryException {
+        long now = System.currentTimeMillis();
+        long rawCutoff = now - metricsRawRetentionDays * DAY;
+        // Whole days / weeks only, so a rolled-up bucket is never split across resolutions
+        long hourlyCutoff = MetricsRollups.bucketStart(now - metricsHourlyRetentionDays * DAY, DAY);
+        long dailyCutoff = MetricsRollups.bucketStart(now - metricsDailyRetentionDays * DAY, MetricsRollups.WEEK);
+        
+        int compacted = jcrTemplate.doExecuteWithSystemSession(session -> {
+            String sql2Query = String.format("SELECT * FROM [%s]", SOCIAL_METRICS_SERIES_TYPE);
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            NodeIterator nodes = queryManager.createQuery(sql2Query, Query.JCR_SQL2).execute().getNodes();
             
-            javax.jcr.Value[] externalIdValues = postNode.getProperty("social:externalId").getValues();
+            int count = 0;
+            int unsaved = 0;
+            while (nodes.hasNext()) {
+                Node series = nodes.nextNode();
+                MetricsSample latest = latestSample(series);
+                if (latest != null && series.hasProperty("social:platform")) {
+                    socialBenchmarkService.addPostMetrics(extractSiteFromPath(series.getPath()),
+                        series.getProperty("social:platform").getString(), latest);
+                }
+                if (compactSeries(series, rawCutoff, hourlyCutoff, dailyCutoff)) {
+                    count++;
+                    if (++unsaved >= metricsSaveBatchSize) {
+                        session.save();
+                        unsaved = 0;
+                    }
+                }
+            }
+            if (unsaved > 0) {
+                session.save();
+            }
+            return count;
+        });
+        logger.info("[METRICS] Compacted {} metrics series (raw {} days, hourly {} days, daily {} days)",
+            compacted, metricsRawRetentionDays, metricsHourlyRetentionDays, metricsDailyRetentionDays);
+        socialBenchmarkService.publishSketches();
+        return compacted;
+    }
+    
+    @Override
+    public List<MetricsRollup> getMetricsRollups(String postUuid, String platform, String resolution, long from, long to)
+            throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            Node postNode = session.getNodeByIdentifier(postUuid);
+            String seriesName = seriesNodeName(platform);
+            List<MetricsRollup> rollups = new ArrayList<>();
+            if (!postNode.hasNode(seriesName)) {
+                return rollups;
+            }
+            for (MetricsRollup rollup : readRollups(postNode.getNode(seriesName), resolution)) {
+                if (rollup.getStart() + rollup.getResolution() > from && rollup.getStart() <= to) {
+                    rollups.add(rollup);
+                }
+            }
+            return rollups;
+        });
+    }
+    
+    /**
+     * Roll raw blocks older than rawCutoff into hourly buckets and delete them, then move hourly
+     * buckets older than hourlyCutoff into daily ones and daily buckets older than dailyCutoff into weekly ones.
+     * 
+     * @return true if the series was changed
+     */
+    private boolean compactSeries(Node series, long rawCutoff, long hourlyCutoff, long dailyCutoff)
+            throws RepositoryException {
+        List<Node> expiredBlocks = new ArrayList<>();
+        List<MetricsSample> expiredSamples = new ArrayList<>();
+        NodeIterator children = series.getNodes();
+        while (children.hasNext()) {
+            Node block = children.nextNode();
+            if (block.isNodeType(SOCIAL_METRICS_BLOCK_TYPE)
+                    && block.getProperty("social:lastCapturedAt").getDate().getTimeInMillis() < rawCutoff) {
+                expiredBlocks.add(block);
+                expiredSamples.addAll(readBlock(block));
+            }
+        }
+        
+        List<MetricsRollup> hourly = readRollups(series, RESOLUTION_HOURLY);
+        List<MetricsRollup> daily = readRollups(series, RESOLUTION_DAILY);
+        List<MetricsRollup> weekly = readRollups(series, RESOLUTION_WEEKLY);
+        boolean changed = false;
+        
+        if (!expiredBlocks.isEmpty()) {
+            expiredSamples.sort(Comparator.comparingLong(MetricsSample::getCapturedAt));
+            MetricsSample previous = lastOf(weekly, daily, hourly);
+            List<MetricsRollup> merged = new ArrayList<>(hourly);
+            merged.addAll(MetricsRollups.rollUp(expiredSamples, MetricsRollups.HOUR, previous));
+            hourly = MetricsRollups.coarsen(merged, MetricsRollups.HOUR);
+            for (Node block : expiredBlocks) {
+                block.remove();
+            }
+            changed = true;
+        }
+        if (!hourly.isEmpty() && hourly.get(0).getStart() < hourlyCutoff) {
+            daily = moveOlder(hourly, daily, hourlyCutoff, MetricsRollups.DAY);
+            changed = true;
+        }
+        if (!daily.isEmpty() && daily.get(0).getStart() < dailyCutoff) {
+            weekly = moveOlder(daily, weekly, dailyCutoff, MetricsRollups.WEEK);
+            changed = true;
+        }
+        if (changed) {
+            writeRollups(series, RESOLUTION_HOURLY, hourly);
+            writeRollups(series, RESOLUTION_DAILY, daily);
+            writeRollups(series, RESOLUTION_WEEKLY, weekly);
+        }
+        return changed;
+    }
+    
+    /**
+     * Remove the buckets older than cutoff from finer and merge them into coarser.
+     * 
+     * @return the new coarser buckets
+     */
+    private static List<MetricsRollup> moveOlder(List<MetricsRollup> finer, List<MetricsRollup> coarser, long cutoff,
+                                                 long resolution) {
+        List<MetricsRollup> merged = new ArrayList<>(coarser);
+        while (!finer.isEmpty() && finer.get(0).getStart() < cutoff) {
+            merged.add(finer.remove(0));
+        }
+        return MetricsRollups.coarsen(merged, resolution);
+    }
+    
+    /**
+     * Last sample already rolled up, checked from the finest resolution down.
+     */
+    @SafeVarargs
+    private static MetricsSample lastOf(List<MetricsRollup>... coarsestFirst) {
+        for (int i = coarsestFirst.length - 1; i >= 0; i--) {
+            if (!coarsestFirst[i].isEmpty()) {
+                return coarsestFirst[i].get(coarsestFirst[i].size() - 1).getLast();
+            }
+        }
+        return null;
+    }
+    
+    private static long resolutionMillis(String resolution) {
+        switch (resolution) {
+            case RESOLUTION_HOURLY:
+                return MetricsRollups.HOUR;
+            case RESOLUTION_DAILY:
+                return MetricsRollups.DAY;
+            case RESOLUTION_WEEKLY:
+                return MetricsRollups.WEEK;
+            default:
+                throw new IllegalArgumentException("Unknown metrics resolution: " + resolution);
+        }
+    }
+    
+    private static List<MetricsRollup> readRollups(Node series, String resolution) throws RepositoryException {
+        String nodeName = "rollup-" + resolution;
+        if (!series.hasNode(nodeName) || !series.getNode(nodeName).hasProperty("social:buckets")) {
+            return new ArrayList<>();
+        }
+        Node rollupNode = series.getNode(nodeName);
+        Binary binary = rollupNode.getProperty("social:buckets").getBinary();
+        try (InputStream in = binary.getStream()) {
+            return MetricsSeriesCodec.decodeRollups(in, resolutionMillis(resolution));
+        } catch (IOException e) {
+            throw new RepositoryException("Could not read metrics rollup " + rollupNode.getPath(), e);
+        } finally {
+            binary.dispose();
+        }
+    }
+    
+    private static void writeRollups(Node series, String resolution, List<MetricsRollup> rollups)
+            throws RepositoryException {
+        String nodeName = "rollup-" + resolution;
+        if (rollups.isEmpty()) {
+            if (series.hasNode(nodeName)) {
+                series.getNode(nodeName).remove();
+            }
+            return;
+        }
+        Node rollupNode = series.hasNode(nodeName)
+            ? series.getNode(nodeName) : series.addNode(nodeName, SOCIAL_METRICS_ROLLUP_TYPE);
+        rollupNode.setProperty("social:resolution", resolution);
+        rollupNode.setProperty("social:bucketCount", (long) rollups.size());
+        rollupNode.setProperty("social:buckets", series.getSession().getValueFactory()
+            .createBinary(new ByteArrayInputStream(MetricsSeriesCodec.encodeRollups(rollups))));
+    }
+    
+    /**
+     * Read the platform/external ID pairs of a post.
+     * social:externalId holds the ID returned by the post's platform; the legacy "platform:externalId"
+     * form, single or multi-valued, is still understood.
+     */
+    private void collectTargets(Node postNode, List<MetricsTarget> targets) throws RepositoryException {
+        if (!postNode.hasProperty("social:externalId")) {
+            logger.debug("Post {} has no external IDs, skipping metrics", postNode.getIdentifier());
+            return;
+        }
+        String postPlatform = postNode.hasProperty("social:platform")
+            ? postNode.getProperty("social:platform").getString().toLowerCase() : null;
+        String siteKey = extractSiteFromPath(postNode.getPath());
+        String accountId = getReferencedAccountId(postNode);
+        
+        Property property = postNode.getProperty("social:externalId");
+        Value[] externalIdValues = property.isMultiple() ? property.getValues() : new Value[]{property.getValue()};
+        
+        for (Value value : externalIdValues) {
+            String externalIdString = value.getString();
+            String platform = postPlatform;
+            String externalId = externalIdString;
             
-            for (javax.jcr.Value value : externalIdValues) {
-                String externalIdString = value.getString();
-                String[] parts = externalIdString.split(":", 2);
-                
-                if (parts.length != 2) {
-                    logger.warn("Invalid externalId format: {}", externalIdString);
+            // Only a known platform prefix marks the legacy form; LinkedIn IDs are URNs containing ':'
+            int separator = externalIdString.indexOf(':');
+            if (separator > 0 && PLATFORMS.contains(externalIdString.substring(0, separator).toLowerCase())) {
+                platform = externalIdString.substring(0, separator).toLowerCase();
+                externalId = externalIdString.substring(separator + 1);
+            }
+            if (platform == null || platform.isEmpty() || externalId.isEmpty()) {
+                logger.warn("Invalid externalId format: {}", externalIdString);
+                continue;
+            }
+            targets.add(new MetricsTarget(postNode.getIdentifier(), siteKey, platform, accountId, externalId));
+        }
+    }
+    
+    /**
+     * Platform ID of the account referenced by social:account, or null to use the site's default account.
+     */
+    private String getReferencedAccountId(Node postNode) throws RepositoryException {
+        if (!postNode.hasProperty("social:account")) {
+            return null;
+        }
+        try {
+            Node accountNode = postNode.getProperty("social:account").getNode();
+            if (accountNode.hasProperty("social:accountId")) {
+                return accountNode.getProperty("social:accountId").getString();
+            }
+            return accountNode.hasProperty("social:pageId") ? accountNode.getProperty("social:pageId").getString() : null;
+        } catch (ItemNotFoundException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Fetch metrics for all targets on the per-platform pools and store them from the calling thread,
+     * in a single session saved every metricsSaveBatchSize nodes.
+     * Targets sharing a platform and account are fetched together, as many IDs per request as the platform allows.
+     * Fetches still queued or running when the wait for results ends are cancelled, so a run that gave up
+     * does not keep the pools busy for the next one.
+     * 
+     * @return number of metrics nodes stored
+     */
+    private int collectMetrics(List<MetricsTarget> targets) throws RepositoryException {
+        Map<String, List<MetricsTarget>> groups = new LinkedHashMap<>();
+        for (MetricsTarget target : targets) {
+            groups.computeIfAbsent(target.platform + "/" + target.siteKey + "/" + target.accountId,
+                k -> new ArrayList<>()).add(target);
+        }
+        
+        BlockingQueue<MetricsResult> results = new LinkedBlockingQueue<>();
+        List<Future<?>> fetches = new ArrayList<>();
+        int submitted = 0;
+        for (List<MetricsTarget> group : groups.values()) {
+            String platform = group.get(0).platform;
+            ExecutorService executor = fetchExecutors.get(platform);
+            if (executor == null) {
+                logger.warn("No metrics support for platform {}, skipping {} post(s)", platform, group.size());
+                continue;
+            }
+            int limit = "linkedin".equals(platform) ? LINKEDIN_IDS_LIMIT : GRAPH_IDS_LIMIT;
+            for (int start = 0; start < group.size(); start += limit) {
+                List<MetricsTarget> batch = group.subList(start, Math.min(start + limit, group.size()));
+                try {
+                    fetches.add(executor.submit(() -> {
+                        Map<String, MetricsData> metrics = Collections.emptyMap();
+                        try {
+                            metrics = fetchMetricsBatch(batch);
+                        } finally {
+                            for (MetricsTarget target : batch) {
+                                results.add(new MetricsResult(target, metrics.get(target.externalId)));
+                            }
+                        }
+                    }));
+                    submitted += batch.size();
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Metrics pool for {} is shutting down, skipping {} post(s)", platform, batch.size());
+                }
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        
+        final int expected = submitted;
+        try {
+            return storeResults(targets, results, expected);
+        } finally {
+            // Queued fetches are dropped and running ones interrupted; a blocked read ends at its read timeout
+            for (Future<?> fetch : fetches) {
+                fetch.cancel(true);
+            }
+        }
+    }
+    
+    private int storeResults(List<MetricsTarget> targets, BlockingQueue<MetricsResult> results, int expected)
+            throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            int stored = 0;
+            int unchanged = 0;
+            int unsaved = 0;
+            // Engagement per post summed over its targets, for the next refresh date
+            Map<String, Long> engagement = new HashMap<>();
+            // Stored changes per site, platform and day, for the site aggregates
+            Map<String, MetricsAggregate> deltas = new LinkedHashMap<>();
+            // Changes not saved yet, recorded in the leaderboards once they are
+            List<Map.Entry<MetricsTarget, MetricsSample>> unrecorded = new ArrayList<>();
+            // Anomalies are logged once the metrics are saved, with the post titles read here
+            List<MetricsAnomalyDetector.Anomaly> anomalies = new ArrayList<>();
+            Map<String, String> titles = new HashMap<>();
+            for (int received = 0; received < expected; received++) {
+                MetricsResult result;
+                try {
+                    result = results.poll(RESULT_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Interrupted while waiting for metrics, {} result(s) not applied", expected - received);
+                    break;
+                }
+                if (result == null) {
+                    logger.warn("Timed out waiting for metrics, {} result(s) not applied", expected - received);
+                    break;
+                }
+                if (result.metrics == null) {
                     continue;
                 }
                 
-                String platform = parts[0];
-                String externalId = parts[1];
-                
+                MetricsTarget target = result.target;
                 try {
-                    // Fetch metrics from external API
-                    MetricsData metrics = fetchMetricsFromPlatform(platform, externalId);
-                    
-                    if (metrics != null) {
-                        // Store metrics as child node
-                        storeMetrics(postNode, platform, externalId, metrics);
-                        logger.info("Stored metrics for post {} on platform {}", postUuid, platform);
+                    Node postNode = session.getNodeByIdentifier(target.postUuid);
+                    engagement.merge(target.postUuid, result.metrics.engagement(), Long::sum);
+                    List<MetricsAnomalyDetector.Anomaly> found = anomalyDetector.observe(target.postUuid, target.platform,
+                        result.metrics.toSample(System.currentTimeMillis()));
+                    if (!found.isEmpty()) {
+                        anomalies.addAll(found);
+                        titles.put(target.postUuid, postNode.hasProperty("social:title")
+                            ? postNode.getProperty("social:title").getString() : "(no title)");
+                    }
+                    MetricsSample change = storeMetrics(postNode, target.platform, target.externalId, result.metrics);
+                    if (change != null) {
+                        addDelta(deltas, target, change);
+                        unrecorded.add(new AbstractMap.SimpleImmutableEntry<>(target, change));
+                        stored++;
+                        logger.debug("Stored metrics for post {} on platform {}", target.postUuid, target.platform);
+                    } else {
+                        unchanged++;
+                        continue;
                     }
-                    
-                } catch (Exception e) {
-                    logger.error("Error fetching metrics for " + platform + ":" + externalId, e);
+                } catch (ItemNotFoundException e) {
+                    logger.debug("Post {} was removed before its metrics were stored", target.postUuid);
+                    continue;
+                }
+                
+                if (++unsaved >= metricsSaveBatchSize) {
+                    // Aggregates are saved along with the samples, so they cannot drift apart
+                    socialAnalyticsService.addMetrics(session, deltas.values());
+                    deltas.clear();
+                    session.save();
+                    recordLeaderboardChanges(unrecorded);
+                    unsaved = 0;
                 }
             }
+            socialAnalyticsService.addMetrics(session, deltas.values());
             
-            session.save();
-            return null;
+            Set<String> postUuids = new LinkedHashSet<>();
+            for (MetricsTarget target : targets) {
+                postUuids.add(target.postUuid);
+            }
+            long now = System.currentTimeMillis();
+            for (String postUuid : postUuids) {
+                try {
+                    scheduleNextRefresh(session.getNodeByIdentifier(postUuid), engagement.get(postUuid), now);
+                } catch (ItemNotFoundException e) {
+                    continue;
+                }
+                if (++unsaved >= metricsSaveBatchSize) {
+                    session.save();
+                    unsaved = 0;
+                }
+            }
+            if (unsaved > 0 || session.hasPendingChanges()) {
+                session.save();
+            }
+            recordLeaderboardChanges(unrecorded);
+            logger.debug("Metrics writes: {} sample(s) stored, {} unchanged", stored, unchanged);
+            for (MetricsAnomalyDetector.Anomaly anomaly : anomalies) {
+                logger.info("[METRICS] Post {}: {}", anomaly.postUuid, anomaly.describe());
+                try {
+                    activityLogService.logMetricsAnomaly(anomaly.postUuid, titles.get(anomaly.postUuid),
+                        anomaly.platform, anomaly.describe());
+                } catch (RepositoryException e) {
+                    logger.warn("[METRICS] Could not log metrics anomaly for post {}: {}", anomaly.postUuid, e.getMessage());
+                }
+            }
+            return stored;
         });
     }
     
+    private void recordLeaderboardChanges(List<Map.Entry<MetricsTarget, MetricsSample>> saved) {
+        for (Map.Entry<MetricsTarget, MetricsSample> change : saved) {
+            MetricsTarget target = change.getKey();
+            socialLeaderboardService.recordMetrics(target.siteKey, target.platform, target.postUuid, change.getValue());
+        }
+        saved.clear();
+    }
+    
+    /**
+     * Set social:metricsNextRefresh from the post's age, backed off while its engagement stays flat,
+     * or remove it once the post is older than metricsMaxAgeDays.
+     * 
+     * @param engagement engagement just fetched for the post, or null if the fetch failed
+     */
+    void scheduleNextRefresh(Node postNode, Long engagement, long now) throws RepositoryException {
+        long publishedAt;
+        if (postNode.hasProperty("social:publishedAt")) {
+            publishedAt = postNode.getProperty("social:publishedAt").getDate().getTimeInMillis();
+        } else {
+            postNode.setProperty("social:publishedAt", Calendar.getInstance());
+            publishedAt = now;
+        }
+        long age = now - publishedAt;
+        if (age >= metricsMaxAgeDays * DAY) {
+            if (postNode.hasProperty("social:metricsNextRefresh")) {
+                postNode.getProperty("social:metricsNextRefresh").remove();
+                logger.debug("Post {} is {} days old, metrics refresh stopped", postNode.getIdentifier(), age / DAY);
+            }
+            return;
+        }
+        
+        long stableRuns = postNode.hasProperty("social:metricsStableRuns")
+            ? postNode.getProperty("social:metricsStableRuns").getLong() : 0;
+        if (engagement != null) {
+            boolean unchanged = postNode.hasProperty("social:metricsEngagement")
+                && postNode.getProperty("social:metricsEngagement").getLong() == engagement;
+            if (!unchanged) {
+                postNode.setProperty("social:metricsEngagement", engagement);
+                stableRuns = 0;
+                postNode.setProperty("social:metricsStableRuns", stableRuns);
+            } else if (stableRuns < MAX_BACKOFF_STEPS) {
+                stableRuns++;
+                postNode.setProperty("social:metricsStableRuns", stableRuns);
+            }
+        }
+        
+        long interval = refreshInterval(age) << Math.min(stableRuns, MAX_BACKOFF_STEPS);
+        Calendar next = Calendar.getInstance();
+        next.setTimeInMillis(now + Math.min(interval, DAY));
+        postNode.setProperty("social:metricsNextRefresh", next);
+    }
+    
+    private static long refreshInterval(long age) {
+        if (age < HOUR) {
+            return 5 * MINUTE;
+        }
+        if (age < DAY) {
+            return HOUR;
+        }
+        if (age < 7 * DAY) {
+            return 6 * HOUR;
+        }
+        return DAY;
+    }
+    
+    private static String formatTimestamp(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS").format(new Date(millis));
+    }
+    
     /**
-     * Fetch metrics from external platform API.
+     * Fetch the metrics of up to one request's worth of posts sharing a platform and account.
+     * 
+     * @return metrics keyed by the targets' external IDs; posts missing from the response are absent
      */
-    private MetricsData fetchMetricsFromPlatform(String platform, String externalId) {
+    private Map<String, MetricsData> fetchMetricsBatch(List<MetricsTarget> batch) {
+        MetricsTarget first = batch.get(0);
+        try {
+            Map<String, String> account = socialAccountService.getAccount(first.siteKey, first.platform, first.accountId);
+            if (account == null) {
+                logger.warn("No {} account connected on site {}, skipping metrics for {} post(s)",
+                    first.platform, first.siteKey, batch.size());
+                return Collections.emptyMap();
+            }
+            switch (first.platform) {
+                case "facebook":
+                    return fetchFacebookMetrics(batch, account);
+                case "instagram":
+                    return fetchInstagramMetrics(batch, account);
+                case "linkedin":
+                    return fetchLinkedInMetrics(batch, account);
+                default:
+                    return Collections.emptyMap();
+            }
+        } catch (Exception e) {
+            logger.error("Error fetching metrics from platform " + first.platform, e);
+            return Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * Facebook Page posts: one Graph call with ?ids= for up to 50 posts, reactions, comments
+     * and shares from field summaries, impressions and clicks from the insights edge.
+     */
+    private Map<String, MetricsData> fetchFacebookMetrics(List<MetricsTarget> batch, Map<String, String> account)
+            throws IOException {
+        String pageId = account.get("pageId");
+        // Post IDs are stored without their Page prefix; Graph object IDs are {page-id}_{post-id}
+        Map<String, String> objectIds = new LinkedHashMap<>();
+        for (MetricsTarget target : batch) {
+            String objectId = target.externalId.contains("_") ? target.externalId : pageId + "_" + target.externalId;
+            objectIds.put(objectId, target.externalId);
+        }
+        String url = String.format("%s/%s/?ids=%s&fields=%s&access_token=%s",
+            facebookBaseUrl, facebookApiVersion,
+            URLEncoder.encode(String.join(",", objectIds.keySet()), "UTF-8"),
+            URLEncoder.encode(FACEBOOK_FIELDS, "UTF-8"),
+            URLEncoder.encode(account.get("pageToken"), "UTF-8"));
+        
+        Map<String, MetricsData> metrics = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : getBatch(url, Collections.emptyMap(), null, "facebook").entrySet()) {
+            String externalId = objectIds.get(entry.getKey());
+            if (externalId == null) {
+                continue;
+            }
+            Map<String, String> fields = entry.getValue();
+            MetricsData data = new MetricsData();
+            data.likes = getLong(fields, "likes.summary.total_count");
+            data.comments = getLong(fields, "comments.summary.total_count");
+            data.shares = getLong(fields, "shares.count");
+            for (int i = 0; fields.containsKey("insights.data." + i + ".name"); i++) {
+                String metric = fields.get("insights.data." + i + ".name");
+                long value = getLong(fields, "insights.data." + i + ".values.0.value");
+                if ("post_impressions".equals(metric)) {
+                    data.impressions = value;
+                } else if ("post_clicks".equals(metric)) {
+                    data.clicks = value;
+                }
+            }
+            metrics.put(externalId, data);
+        }
+        return metrics;
+    }
+    
+    /**
+     * Instagram media: one Graph call with ?ids= for up to 50 media objects.
+     */
+    private Map<String, MetricsData> fetchInstagramMetrics(List<MetricsTarget> batch, Map<String, String> account)
+            throws IOException {
+        List<String> mediaIds = new ArrayList<>();
+        for (MetricsTarget target : batch) {
+            mediaIds.add(target.externalId);
+        }
+        String url = String.format("%s/%s/?ids=%s&fields=%s&access_token=%s",
+            instagramBaseUrl, facebookApiVersion,
+            URLEncoder.encode(String.join(",", mediaIds), "UTF-8"),
+            URLEncoder.encode(INSTAGRAM_FIELDS, "UTF-8"),
+            URLEncoder.encode(account.get("accessToken"), "UTF-8"));
+        
+        Map<String, MetricsData> metrics = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : getBatch(url, Collections.emptyMap(), null, "instagram").entrySet()) {
+            MetricsData data = new MetricsData();
+            data.likes = getLong(entry.getValue(), "like_count");
+            data.comments = getLong(entry.getValue(), "comments_count");
+            metrics.put(entry.getKey(), data);
+        }
+        return metrics;
+    }
+    
+    /**
+     * LinkedIn shares: one socialActions batch GET for up to 20 URNs.
+     */
+    private Map<String, MetricsData> fetchLinkedInMetrics(List<MetricsTarget> batch, Map<String, String> account)
+            throws IOException {
+        StringBuilder ids = new StringBuilder();
+        for (MetricsTarget target : batch) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(URLEncoder.encode(target.externalId, "UTF-8"));
+        }
+        String url = String.format("%s/%s/socialActions?ids=List(%s)", linkedinBaseUrl, linkedinApiVersion, ids);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer " + account.get("accessToken"));
+        headers.put("X-Restli-Protocol-Version", "2.0.0");
+        
+        Map<String, MetricsData> metrics = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : getBatch(url, headers, "results", "linkedin").entrySet()) {
+            MetricsData data = new MetricsData();
+            data.likes = getLong(entry.getValue(), "likesSummary.totalLikes");
+            data.comments = getLong(entry.getValue(), "commentsSummary.aggregatedTotalComments");
+            metrics.put(entry.getKey(), data);
+        }
+        return metrics;
+    }
+    
+    /**
+     * GET a multi-ID response and stream-parse it into one flattened field map per object.
+     * Nested members are keyed by dotted path, array elements by index (e.g. "insights.data.0.name").
+     * 
+     * @param resultsField member holding the per-ID objects, or null if they are at the top level
+     */
+    private Map<String, Map<String, String>> getBatch(String url, Map<String, String> headers, String resultsField,
+                                                      String platform) throws IOException {
+        apiCalls.incrementAndGet();
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
         try {
-            String endpoint = EXTERNAL_API_BASE + "/metrics/" + platform.toLowerCase() + "/" + externalId;
-            URL url = new URL(endpoint);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            
             conn.setRequestMethod("GET");
-            conn.setRequestProperty("Authorization", "Bearer " + API_TOKEN);
             conn.setRequestProperty("Accept", "application/json");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
             conn.setConnectTimeout(10000);
             conn.setReadTimeout(30000);
             
             int responseCode = conn.getResponseCode();
+            if (responseCode < 200 || responseCode >= 300) {
+                logger.error("Failed to fetch metrics from {}: HTTP {} - {}", platform, responseCode, readErrorBody(conn));
+                return Collections.emptyMap();
+            }
             
-            if (responseCode >= 200 && responseCode < 300) {
-                try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        response.append(line);
-                    }
-                    
-                    String responseBody = response.toString();
-                    logger.debug("Metrics response from {}: {}", platform, responseBody);
-                    
-                    // Parse JSON response (simplified - real implementation would use JSON parser)
-                    return parseMetricsResponse(responseBody);
+            Map<String, Map<String, String>> objects = new LinkedHashMap<>();
+            try (InputStream inputStream = conn.getInputStream();
+                 JsonStreamParser parser = new JsonStreamParser(inputStream)) {
+                if (parser.nextToken() != JsonStreamParser.Token.START_OBJECT) {
+                    return objects;
+                }
+                readObjects(parser, resultsField, objects);
+            }
+            logger.debug("Metrics response from {}: {} object(s)", platform, objects.size());
+            return objects;
+        } finally {
+            conn.disconnect();
+        }
+    }
+    
+    private static void readObjects(JsonStreamParser parser, String resultsField,
+                                    Map<String, Map<String, String>> objects) throws IOException {
+        JsonStreamParser.Token token;
+        while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+            String name = parser.getText();
+            token = parser.nextToken();
+            if (token != JsonStreamParser.Token.START_OBJECT) {
+                if (token == JsonStreamParser.Token.START_ARRAY) {
+                    parser.skipChildren();
+                }
+            } else if (resultsField != null) {
+                if (resultsField.equals(name)) {
+                    readObjects(parser, null, objects);
+                } else {
+                    parser.skipChildren();
                 }
             } else {
-                logger.error("Failed to fetch metrics from {}: HTTP {}", platform, responseCode);
+                Map<String, String> fields = new HashMap<>();
+                flatten(parser, "", fields);
+                objects.put(name, fields);
+            }
+        }
+    }
+    
+    /**
+     * Read the object or array the parser is positioned on into dotted-path scalar fields.
+     */
+    private static void flatten(JsonStreamParser parser, String prefix, Map<String, String> fields) throws IOException {
+        boolean array = parser.currentToken() == JsonStreamParser.Token.START_ARRAY;
+        int index = 0;
+        JsonStreamParser.Token token;
+        while ((token = parser.nextToken()) != null
+                && token != JsonStreamParser.Token.END_OBJECT && token != JsonStreamParser.Token.END_ARRAY) {
+            String key;
+            if (array) {
+                key = prefix + index++;
+            } else {
+                key = prefix + parser.getText();
+                token = parser.nextToken();
+            }
+            if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                flatten(parser, key + ".", fields);
+            } else if (token != JsonStreamParser.Token.VALUE_NULL) {
+                fields.put(key, parser.getText());
+            }
+        }
+    }
+    
+    private static long getLong(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static String readErrorBody(HttpURLConnection conn) {
+        InputStream errorStream = conn.getErrorStream();
+        if (errorStream == null) {
+            return "";
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+            StringBuilder response = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                response.append(line);
+            }
+            return response.toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+    
+    private String extractSiteFromPath(String path) {
+        // Extract site key from path like /sites/jsmod/contents/...
+        if (path != null && path.startsWith("/sites/")) {
+            String[] parts = path.split("/");
+            if (parts.length > 2) {
+                return parts[2];
+            }
+        }
+        return "systemsite";
+    }
+    
+    private static void addDelta(Map<String, MetricsAggregate> deltas, MetricsTarget target, MetricsSample change) {
+        long day = MetricsRollups.bucketStart(change.getCapturedAt(), MetricsRollups.DAY);
+        deltas.merge(target.siteKey + "/" + target.platform + "/" + day,
+            new MetricsAggregate(target.siteKey, target.platform, day, change.getImpressions(), change.getClicks(),
+                change.getLikes(), change.getComments(), change.getShares()),
+            (a, b) -> new MetricsAggregate(a.getSiteKey(), a.getPlatform(), a.getDay(),
+                a.getImpressions() + b.getImpressions(), a.getClicks() + b.getClicks(), a.getLikes() + b.getLikes(),
+                a.getComments() + b.getComments(), a.getShares() + b.getShares()));
+    }
+    
+    /**
+     * Append a sample to the post's metrics series for the platform if any counter changed since the last one,
+     * otherwise only move the series' last checked date forward (at most once per LAST_CHECKED_INTERVAL).
+     * 
+     * @return the change since the previously stored sample (the sample itself for the first one),
+     *         or null if nothing changed
+     */
+    private MetricsSample storeMetrics(Node postNode, String platform, String externalId, MetricsData metrics) throws RepositoryException {
+        long now = System.currentTimeMillis();
+        MetricsSample sample = metrics.toSample(now);
+        String cacheKey = postNode.getIdentifier() + "/" + platform.toLowerCase();
+        String seriesName = seriesNodeName(platform);
+        
+        MetricsSample latest = null;
+        if (postNode.hasNode(seriesName)) {
+            Node series = postNode.getNode(seriesName);
+            latest = lastStored.get(cacheKey);
+            if (latest == null) {
+                latest = latestSample(series);
+            }
+            if (latest != null && sameCounters(latest, sample)) {
+                lastStored.put(cacheKey, latest);
+                long lastChecked = series.hasProperty("social:lastCheckedAt")
+                    ? series.getProperty("social:lastCheckedAt").getDate().getTimeInMillis() : latest.getCapturedAt();
+                if (now - lastChecked >= LAST_CHECKED_INTERVAL) {
+                    Calendar checkedAt = Calendar.getInstance();
+                    checkedAt.setTimeInMillis(now);
+                    series.setProperty("social:lastCheckedAt", checkedAt);
+                }
                 return null;
             }
-            
-        } catch (Exception e) {
-            logger.error("Error fetching metrics from platform " + platform, e);
+        }
+        
+        Node series = getOrCreateSeries(postNode, platform);
+        if (latest == null) {
+            // New series, possibly just filled from legacy snapshot nodes
+            latest = latestSample(series);
+        }
+        appendSample(series, externalId, sample);
+        Calendar checkedAt = Calendar.getInstance();
+        checkedAt.setTimeInMillis(now);
+        series.setProperty("social:lastCheckedAt", checkedAt);
+        lastStored.put(cacheKey, sample);
+        logger.debug("Appended metrics sample to {}", series.getPath());
+        return latest != null ? difference(sample, latest) : sample;
+    }
+    
+    /**
+     * Counter changes from previous to sample, at the capture time of sample.
+     */
+    private static MetricsSample difference(MetricsSample sample, MetricsSample previous) {
+        return new MetricsSample(sample.getCapturedAt(), sample.getImpressions() - previous.getImpressions(),
+            sample.getClicks() - previous.getClicks(), sample.getLikes() - previous.getLikes(),
+            sample.getComments() - previous.getComments(), sample.getShares() - previous.getShares());
+    }
+    
+    private static boolean sameCounters(MetricsSample a, MetricsSample b) {
+        return a.getImpressions() == b.getImpressions() && a.getClicks() == b.getClicks()
+            && a.getLikes() == b.getLikes() && a.getComments() == b.getComments() && a.getShares() == b.getShares();
+    }
+    
+    private static String seriesNodeName(String platform) {
+        return "metrics-" + platform.toLowerCase();
+    }
+    
+    /**
+     * Get the post's series node for the platform, creating it (and folding in any legacy snapshot nodes) if needed.
+     */
+    private Node getOrCreateSeries(Node postNode, String platform) throws RepositoryException {
+        String seriesName = seriesNodeName(platform);
+        if (postNode.hasNode(seriesName)) {
+            return postNode.getNode(seriesName);
+        }
+        Node series = postNode.addNode(seriesName, SOCIAL_METRICS_SERIES_TYPE);
+        series.setProperty("social:platform", platform.toLowerCase());
+        series.setProperty("social:sampleCount", 0L);
+        migrateLegacyMetrics(series, postNode, platform);
+        return series;
+    }
+    
+    /**
+     * Append the post's metrics-{platform}-{millis} snapshot nodes to the series in capture order and remove them.
+     * Blocks are append-only, so snapshots captured before the series' latest sample are dropped rather than
+     * appended after it, which would make older values the series' latest.
+     * 
+     * @return number of snapshot nodes migrated
+     */
+    private int migrateLegacyMetrics(Node series, Node postNode, String platform) throws RepositoryException {
+        List<Node> snapshots = new ArrayList<>();
+        NodeIterator children = postNode.getNodes(seriesNodeName(platform) + "-*");
+        while (children.hasNext()) {
+            Node child = children.nextNode();
+            if (child.isNodeType(SOCIAL_METRICS_TYPE) && !child.isNodeType(SOCIAL_METRICS_SERIES_TYPE)
+                    && child.hasProperty("social:capturedAt")) {
+                snapshots.add(child);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        
+        MetricsSample latest = latestSample(series);
+        long after = latest != null ? latest.getCapturedAt() : Long.MIN_VALUE;
+        List<MetricsSample> samples = new ArrayList<>();
+        String externalId = null;
+        for (Node snapshot : snapshots) {
+            long capturedAt = snapshot.getProperty("social:capturedAt").getDate().getTimeInMillis();
+            if (capturedAt > after) {
+                samples.add(new MetricsSample(capturedAt,
+                    getLong(snapshot, "social:impressions"), getLong(snapshot, "social:clicks"),
+                    getLong(snapshot, "social:likes"), getLong(snapshot, "social:comments"),
+                    getLong(snapshot, "social:shares")));
+            }
+            if (snapshot.hasProperty("social:externalId")) {
+                externalId = snapshot.getProperty("social:externalId").getString();
+            }
+        }
+        samples.sort(Comparator.comparingLong(MetricsSample::getCapturedAt));
+        for (MetricsSample sample : samples) {
+            appendSample(series, externalId, sample);
+        }
+        for (Node snapshot : snapshots) {
+            snapshot.remove();
+        }
+        logger.debug("Migrated {} metrics snapshot(s) of post {} into {}, {} older than the series dropped",
+            snapshots.size(), postNode.getIdentifier(), series.getName(), snapshots.size() - samples.size());
+        return snapshots.size();
+    }
+    
+    /**
+     * Append a sample to the series' head block, starting a new block once it holds BLOCK_SIZE samples,
+     * and make it the series' latest values.
+     */
+    private void appendSample(Node series, String externalId, MetricsSample sample) throws RepositoryException {
+        Node head = null;
+        MetricsSample previous = null;
+        if (series.hasProperty("social:headBlock") && series.hasNode(series.getProperty("social:headBlock").getString())) {
+            head = series.getNode(series.getProperty("social:headBlock").getString());
+            if (head.getProperty("social:sampleCount").getLong() < BLOCK_SIZE) {
+                previous = latestSample(series);
+            } else {
+                head = null;
+            }
+        }
+        Calendar capturedAt = Calendar.getInstance();
+        capturedAt.setTimeInMillis(sample.getCapturedAt());
+        if (head == null) {
+            String blockName = "block-" + sample.getCapturedAt();
+            for (int i = 1; series.hasNode(blockName); i++) {
+                blockName = "block-" + sample.getCapturedAt() + "-" + i;
+            }
+            head = series.addNode(blockName, SOCIAL_METRICS_BLOCK_TYPE);
+            head.setProperty("social:firstCapturedAt", capturedAt);
+            head.setProperty("social:sampleCount", 0L);
+            series.setProperty("social:headBlock", blockName);
+        }
+        
+        // JCR binaries are immutable: rewrite the head block (at most BLOCK_SIZE records) with the new record
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        if (head.hasProperty("social:samples")) {
+            Binary binary = head.getProperty("social:samples").getBinary();
+            try (InputStream in = binary.getStream()) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    data.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new RepositoryException("Could not read metrics block " + head.getPath(), e);
+            } finally {
+                binary.dispose();
+            }
+        }
+        byte[] record = MetricsSeriesCodec.encode(previous, sample);
+        data.write(record, 0, record.length);
+        head.setProperty("social:samples",
+            series.getSession().getValueFactory().createBinary(new ByteArrayInputStream(data.toByteArray())));
+        head.setProperty("social:sampleCount", head.getProperty("social:sampleCount").getLong() + 1);
+        head.setProperty("social:lastCapturedAt", capturedAt);
+        
+        if (externalId != null) {
+            series.setProperty("social:externalId", externalId);
+        }
+        series.setProperty("social:capturedAt", capturedAt);
+        series.setProperty("social:impressions", sample.getImpressions());
+        series.setProperty("social:clicks", sample.getClicks());
+        series.setProperty("social:likes", sample.getLikes());
+        series.setProperty("social:comments", sample.getComments());
+        series.setProperty("social:shares", sample.getShares());
+        series.setProperty("social:sampleCount", getLong(series, "social:sampleCount") + 1);
+    }
+    
+    /**
+     * Latest sample of a series, read from its properties without decoding any block.
+     */
+    private static MetricsSample latestSample(Node series) throws RepositoryException {
+        if (!series.hasProperty("social:capturedAt")) {
             return null;
         }
+        return new MetricsSample(series.getProperty("social:capturedAt").getDate().getTimeInMillis(),
+            getLong(series, "social:impressions"), getLong(series, "social:clicks"),
+            getLong(series, "social:likes"), getLong(series, "social:comments"), getLong(series, "social:shares"));
+    }
+    
+    private static List<MetricsSample> readBlock(Node block) throws RepositoryException {
+        if (!block.hasProperty("social:samples")) {
+            return Collections.emptyList();
+        }
+        Binary binary = block.getProperty("social:samples").getBinary();
+        try (InputStream in = binary.getStream()) {
+            return MetricsSeriesCodec.decode(in);
+        } catch (IOException e) {
+            throw new RepositoryException("Could not read metrics block " + block.getPath(), e);
+        } finally {
+            binary.dispose();
+        }
+    }
+    
+    private static long getLong(Node node, String property) throws RepositoryException {
+        return node.hasProperty(property) ? node.getProperty(property).getLong() : 0;
+    }
+    
+    private static int getInt(Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("[METRICS] Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
     }
     
     /**
-     * Parse metrics from JSON response.
-     * Simplified implementation - real code would use JSON parser like Jackson or Gson.
+     * A post external ID to collect metrics for.
      */
-    private MetricsData parseMetricsResponse(String jsonResponse) {
-        // Mock implementation - returns random metrics
-        // Real implementation would parse actual JSON
-        MetricsData data = new MetricsData();
-        data.impressions = (long) (Math.random() * 10000);
-        data.clicks = (long) (Math.random() * 500);
-        data.likes = (long) (Math.random() * 200);
-        data.comments = (long) (Math.random() * 50);
-        data.shares = (long) (Math.random() * 100);
-        return data;
+    private static final class MetricsTarget {
+        private final String postUuid;
+        private final String siteKey;
+        private final String platform;
+        private final String accountId;
+        private final String externalId;
+        
+        private MetricsTarget(String postUuid, String siteKey, String platform, String accountId, String externalId) {
+            this.postUuid = postUuid;
+            this.siteKey = siteKey;
+            this.platform = platform;
+            this.accountId = accountId;
+            this.externalId = externalId;
+        }
     }
     
     /**
-     * Store metrics as a child node under the post.
+     * Fetch outcome handed to the writer; metrics is null when the fetch failed or the post was not in the response.
      */
-    private void storeMetrics(Node postNode, String platform, String externalId, MetricsData metrics) throws RepositoryException {
-        // Create unique node name based on platform and timestamp
-        String nodeName = "metrics-" + platform.toLowerCase() + "-" + System.currentTimeMillis();
+    private static final class MetricsResult {
+        private final MetricsTarget target;
+        private final MetricsData metrics;
         
-        Node metricsNode;
-        if (postNode.hasNode(nodeName)) {
-            metricsNode = postNode.getNode(nodeName);
-        } else {
-            metricsNode = postNode.addNode(nodeName, SOCIAL_METRICS_TYPE);
+        private MetricsResult(MetricsTarget target, MetricsData metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+    }
+    
+    /**
+     * Access-ordered map dropping its least recently used entry beyond maxEntries.
+     */
+    private static final class LruCache<K, V> extends LinkedHashMap<K, V> {
+        private final int maxEntries;
+        
+        LruCache(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
         }
         
-        metricsNode.setProperty("social:platform", platform);
-        metricsNode.setProperty("social:externalId", externalId);
-        metricsNode.setProperty("social:capturedAt", Calendar.getInstance());
-        metricsNode.setProperty("social:impressions", metrics.impressions);
-        metricsNode.setProperty("social:clicks", metrics.clicks);
-        metricsNode.setProperty("social:likes", metrics.likes);
-        metricsNode.setProperty("social:comments", metrics.comments);
-        metricsNode.setProperty("social:shares", metrics.shares);
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+    
+    /**
+     * Names metrics threads after their platform and keeps them from blocking shutdown.
+     */
+    private static final class MetricsThreadFactory implements ThreadFactory {
+        private final String platform;
+        private final AtomicInteger counter = new AtomicInteger();
         
-        logger.debug("Created metrics node: {}", metricsNode.getPath());
+        MetricsThreadFactory(String platform) {
+            this.platform = platform;
+        }
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "social-metrics-" + platform + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
     
     /**
@@ -221,5 +1572,13 @@ public class SocialMetricsServiceImpl implements SocialMetricsService {
         long likes;
         long comments;
         long shares;
+        
+        long engagement() {
+            return likes + comments + shares + clicks;
+        }
+        
+        MetricsSample toSample(long capturedAt) {
+            return new MetricsSample(capturedAt, impressions, clicks, likes, comments, shares);
+        }
     }
 }
@@ -0,0 +1,725 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.ActivityLogService;
+import org.example.socialhub.service.SocialAccountService;
+import org.example.socialhub.service.SocialTokenService;
+import org.example.socialhub.service.TokenHealth;
+import org.example.socialhub.util.JsonStreamParser;
+import org.jahia.services.content.JCRTemplate;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of SocialTokenService.
+ * Builds a priority queue of socialnt:account nodes ordered by social:tokenExpiry and renews
+ * the tokens inside the refresh window concurrently, each call delayed by a random jitter:
+ * - LinkedIn: OAuth refresh_token grant
+ * - Facebook: fb_exchange_token on the long-lived user token, then the Page token is re-read
+ *
+ * Token health is checked separately: Facebook tokens through debug_token, up to 50 per
+ * Graph batch request, LinkedIn tokens through concurrent introspection calls. Results are
+ * cached for tokenHealthTtlMinutes and tokens found invalid are flagged on the account.
+ *
+ * Configuration is read from: org.example.socialhub.servlet.SocialProxyServlet.cfg
+ * (API URLs, refresh policy) and org.example.socialhub.servlet.SocialOAuthCallbackServlet.cfg
+ * (app credentials).
+ */
+@Component(
+    service = SocialTokenService.class,
+    immediate = true,
+    configurationPid = {
+        "org.example.socialhub.servlet.SocialProxyServlet",
+        "org.example.socialhub.servlet.SocialOAuthCallbackServlet"
+    }
+)
+public class SocialTokenServiceImpl implements SocialTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocialTokenServiceImpl.class);
+
+    private static final String SOCIAL_ACCOUNT_TYPE = "socialnt:account";
+    private static final String LINKEDIN_TOKEN_URL = "https://www.linkedin.com/oauth/v2/accessToken";
+    private static final String LINKEDIN_INTROSPECT_URL = "https://www.linkedin.com/oauth/v2/introspectToken";
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int GRAPH_BATCH_LIMIT = 50;
+
+    static final String TOKEN_VALID = "valid";
+    static final String TOKEN_EXPIRING = "expiring";
+    static final String TOKEN_REFRESH_FAILED = "refresh_failed";
+    static final String TOKEN_INVALID = "invalid";
+
+    private String facebookBaseUrl = "https://graph.facebook.com";
+    private String facebookApiVersion = "v21.0";
+    private String facebookAppId;
+    private String facebookAppSecret;
+    private String linkedinClientId;
+    private String linkedinClientSecret;
+
+    private int refreshWindowDays = 7;
+    private int refreshConcurrency = 4;
+    private long refreshJitterMillis = 5000;
+    private long healthTtlMillis = 120 * 60 * 1000L;
+
+    private ExecutorService refreshExecutor;
+
+    // Last health check result per {siteKey}/{platform}/{accountId}
+    private final Map<String, TokenHealth> healthCache = new ConcurrentHashMap<>();
+
+    @Reference
+    private JCRTemplate jcrTemplate;
+
+    @Reference
+    private ActivityLogService activityLogService;
+
+    @Reference
+    private SocialAccountService socialAccountService;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        facebookBaseUrl = getString(properties, "facebookBaseUrl", facebookBaseUrl);
+        facebookApiVersion = getString(properties, "facebookApiVersion", facebookApiVersion);
+        facebookAppId = getString(properties, "facebook.appId", null);
+        facebookAppSecret = getString(properties, "facebook.appSecret", null);
+        linkedinClientId = getString(properties, "linkedinClientId", getString(properties, "linkedin.clientId", null));
+        linkedinClientSecret = getString(properties, "linkedinClientSecret", getString(properties, "linkedin.clientSecret", null));
+
+        refreshWindowDays = Integer.parseInt(getString(properties, "tokenRefreshWindowDays", String.valueOf(refreshWindowDays)));
+        refreshConcurrency = Math.max(1, Integer.parseInt(getString(properties, "tokenRefreshConcurrency", String.valueOf(refreshConcurrency))));
+        refreshJitterMillis = Long.parseLong(getString(properties, "tokenRefreshJitterMs", String.valueOf(refreshJitterMillis)));
+        healthTtlMillis = Long.parseLong(getString(properties, "tokenHealthTtlMinutes", "120")) * 60 * 1000L;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(refreshConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "social-token-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        logger.info("[TOKEN] SocialTokenServiceImpl activated - window: {} day(s), concurrency: {}, jitter: {}ms",
+            refreshWindowDays, refreshConcurrency, refreshJitterMillis);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public int refreshExpiringTokens() throws RepositoryException {
+        PriorityQueue<TokenEntry> queue = expiryQueue(loadAccounts());
+        List<TokenEntry> due = pollDue(queue, System.currentTimeMillis() + refreshWindowDays * DAY_MILLIS);
+        if (!queue.isEmpty()) {
+            logger.info("[TOKEN] Next token outside the refresh window expires at {} ({} {})",
+                new java.util.Date(queue.peek().expiry), queue.peek().platform, queue.peek().label);
+        }
+        if (due.isEmpty()) {
+            logger.info("[TOKEN] No token expires within {} day(s)", refreshWindowDays);
+            return 0;
+        }
+
+        logger.info("[TOKEN] {} token(s) expire within {} day(s) - refreshing", due.size(), refreshWindowDays);
+        List<Future<Boolean>> results = new ArrayList<>(due.size());
+        for (TokenEntry entry : due) {
+            results.add(refreshExecutor.submit(() -> refreshWithJitter(entry)));
+        }
+
+        int refreshed = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (Boolean.TRUE.equals(result.get())) {
+                    refreshed++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("[TOKEN] Token refresh task failed", e.getCause());
+            }
+        }
+        logger.info("[TOKEN] Refreshed {}/{} token(s)", refreshed, due.size());
+        return refreshed;
+    }
+
+    /**
+     * Accounts with a known token expiry, soonest expiry first.
+     */
+    static PriorityQueue<TokenEntry> expiryQueue(List<TokenEntry> entries) {
+        PriorityQueue<TokenEntry> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.expiry));
+        for (TokenEntry entry : entries) {
+            if (entry.expiry > 0) {
+                queue.add(entry);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Take the accounts whose token expires by the horizon off the head of the queue, soonest first.
+     */
+    static List<TokenEntry> pollDue(PriorityQueue<TokenEntry> queue, long horizon) {
+        List<TokenEntry> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().expiry <= horizon) {
+            due.add(queue.poll());
+        }
+        return due;
+    }
+
+    /**
+     * Read the token state of every active account, across all sites.
+     */
+    private List<TokenEntry> loadAccounts() throws RepositoryException {
+        return jcrTemplate.doExecuteWithSystemSession(session -> {
+            List<TokenEntry> entries = new ArrayList<>();
+            QueryManager queryManager = session.getWorkspace().getQueryManager();
+            Query query = queryManager.createQuery("SELECT * FROM [" + SOCIAL_ACCOUNT_TYPE + "]", Query.JCR_SQL2);
+            NodeIterator nodes = query.execute().getNodes();
+
+            while (nodes.hasNext()) {
+                Node accountNode = nodes.nextNode();
+                if (!accountNode.hasProperty("social:platform")
+                        || (accountNode.hasProperty("social:isActive") && !accountNode.getProperty("social:isActive").getBoolean())) {
+                    continue;
+                }
+                TokenEntry entry = new TokenEntry();
+                entry.uuid = accountNode.getIdentifier();
+                entry.siteKey = extractSiteFromPath(accountNode.getPath());
+                entry.platform = accountNode.getProperty("social:platform").getString();
+                entry.label = getPropertyValue(accountNode, "social:label");
+                entry.accountId = "facebook".equals(entry.platform)
+                    ? getPropertyValue(accountNode, "social:pageId")
+                    : getPropertyValue(accountNode, "social:accountId");
+                entry.pageId = getPropertyValue(accountNode, "social:pageId");
+                entry.accessToken = getPropertyValue(accountNode, "social:accessToken");
+                entry.pageToken = getPropertyValue(accountNode, "social:pageToken");
+                entry.refreshToken = getPropertyValue(accountNode, "social:refreshToken");
+                entry.status = getPropertyValue(accountNode, "social:tokenStatus");
+                entry.expiry = accountNode.hasProperty("social:tokenExpiry")
+                    ? accountNode.getProperty("social:tokenExpiry").getDate().getTimeInMillis() : 0;
+                entries.add(entry);
+            }
+            return entries;
+        });
+    }
+
+    private boolean refreshWithJitter(TokenEntry entry) {
+        try {
+            // Spread the calls so accounts expiring together do not hit the platform at once
+            if (refreshJitterMillis > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(refreshJitterMillis + 1));
+            }
+
+            String error;
+            switch (entry.platform) {
+                case "linkedin":
+                    error = refreshLinkedIn(entry);
+                    break;
+                case "facebook":
+                case "instagram":
+                    // Instagram business accounts publish with the token of their linked Facebook Page
+                    error = refreshFacebook(entry);
+                    break;
+                default:
+                    error = "Token refresh not supported for platform " + entry.platform;
+                    break;
+            }
+
+            if (error == null) {
+                logger.info("[TOKEN] ✓ Refreshed {} token for '{}' on site {}", entry.platform, entry.label, entry.siteKey);
+                healthCache.remove(healthKey(entry.siteKey, entry.platform, entry.accountId));
+                return true;
+            }
+            flagAccount(entry, error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("[TOKEN] Error refreshing " + entry.platform + " token for '" + entry.label + "'", e);
+            flagAccount(entry, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * @return null on success, otherwise the reason the token could not be refreshed
+     */
+    private String refreshLinkedIn(TokenEntry entry) throws IOException, RepositoryException {
+        if (isEmpty(entry.refreshToken)) {
+            return "No refresh token stored - the account must be reconnected";
+        }
+        if (isEmpty(linkedinClientId) || isEmpty(linkedinClientSecret)) {
+            return "LinkedIn client credentials not configured";
+        }
+        String body = "grant_type=refresh_token" +
+            "&refresh_token=" + URLEncoder.encode(entry.refreshToken, "UTF-8") +
+            "&client_id=" + URLEncoder.encode(linkedinClientId, "UTF-8") +
+            "&client_secret=" + URLEncoder.encode(linkedinClientSecret, "UTF-8");
+
+        Map<String, String> fields = call("POST", LINKEDIN_TOKEN_URL, body, "access_token", "expires_in", "refresh_token");
+        if (fields == null || isEmpty(fields.get("access_token"))) {
+            return "LinkedIn refresh_token grant failed";
+        }
+
+        String newRefreshToken = fields.get("refresh_token");
+        storeRefreshedToken(entry.uuid, fields.get("access_token"), null,
+            isEmpty(newRefreshToken) ? null : newRefreshToken, expiryFrom(fields.get("expires_in")));
+        return null;
+    }
+
+    /**
+     * @return null on success, otherwise the reason the token could not be refreshed
+     */
+    private String refreshFacebook(TokenEntry entry) throws IOException, RepositoryException {
+        if (isEmpty(entry.accessToken)) {
+            return "No user access token stored - the account must be reconnected";
+        }
+        if (isEmpty(facebookAppId) || isEmpty(facebookAppSecret)) {
+            return "Facebook app credentials not configured";
+        }
+        String exchangeUrl = String.format("%s/%s/oauth/access_token?grant_type=fb_exchange_token&client_id=%s&client_secret=%s&fb_exchange_token=%s",
+            facebookBaseUrl, facebookApiVersion,
+            URLEncoder.encode(facebookAppId, "UTF-8"),
+            URLEncoder.encode(facebookAppSecret, "UTF-8"),
+            URLEncoder.encode(entry.accessToken, "UTF-8"));
+
+        Map<String, String> fields = call("GET", exchangeUrl, null, "access_token", "expires_in");
+        if (fields == null || isEmpty(fields.get("access_token"))) {
+            return "Facebook token exchange failed";
+        }
+        String userToken = fields.get("access_token");
+
+        // Page tokens derived from a long-lived user token are re-read so they follow the new user token
+        String pageToken = null;
+        if (!isEmpty(entry.pageId)) {
+            String pageUrl = String.format("%s/%s/%s?fields=access_token&access_token=%s",
+                facebookBaseUrl, facebookApiVersion,
+                URLEncoder.encode(entry.pageId, "UTF-8"), URLEncoder.encode(userToken, "UTF-8"));
+            Map<String, String> pageFields = call("GET", pageUrl, null, "access_token");
+            if (pageFields == null || isEmpty(pageFields.get("access_token"))) {
+                return "Facebook Page token could not be re-read for page " + entry.pageId;
+            }
+            pageToken = pageFields.get("access_token");
+        }
+
+        // Long-lived user tokens last about 60 days when expires_in is not returned
+        Calendar expiry = fields.get("expires_in") != null ? expiryFrom(fields.get("expires_in")) : null;
+        if (expiry == null) {
+            expiry = Calendar.getInstance();
+            expiry.add(Calendar.DAY_OF_MONTH, 60);
+        }
+        storeRefreshedToken(entry.uuid, userToken, pageToken, null, expiry);
+        return null;
+    }
+
+    @Override
+    public int checkTokenHealth() throws RepositoryException {
+        List<TokenEntry> facebook = new ArrayList<>();
+        Map<TokenEntry, Future<TokenHealth>> linkedin = new LinkedHashMap<>();
+        for (TokenEntry entry : loadAccounts()) {
+            if ("facebook".equals(entry.platform) || "instagram".equals(entry.platform)) {
+                facebook.add(entry);
+            } else if ("linkedin".equals(entry.platform)) {
+                linkedin.put(entry, refreshExecutor.submit(() -> introspectLinkedIn(entry)));
+            }
+        }
+
+        Map<TokenEntry, TokenHealth> results = new LinkedHashMap<>();
+        for (int start = 0; start < facebook.size(); start += GRAPH_BATCH_LIMIT) {
+            List<TokenEntry> batch = facebook.subList(start, Math.min(start + GRAPH_BATCH_LIMIT, facebook.size()));
+            try {
+                List<TokenHealth> batchResults = debugFacebookTokens(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (batchResults.get(i) != null) {
+                        results.put(batch.get(i), batchResults.get(i));
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("[TOKEN] Facebook debug_token batch of {} failed: {}", batch.size(), e.getMessage());
+            }
+        }
+        for (Map.Entry<TokenEntry, Future<TokenHealth>> entry : linkedin.entrySet()) {
+            try {
+                TokenHealth health = entry.getValue().get();
+                if (health != null) {
+                    results.put(entry.getKey(), health);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.warn("[TOKEN] LinkedIn introspection failed for '{}': {}", entry.getKey().label, e.getCause().getMessage());
+            }
+        }
+
+        int invalid = 0;
+        for (Map.Entry<TokenEntry, TokenHealth> result : results.entrySet()) {
+            if (!result.getValue().isValid()) {
+                invalid++;
+            }
+            recordHealth(result.getKey(), result.getValue());
+        }
+        logger.info("[TOKEN] Health check: {} Facebook/Instagram and {} LinkedIn token(s) checked, {} result(s), {} invalid",
+            facebook.size(), linkedin.size(), results.size(), invalid);
+        return invalid;
+    }
+
+    @Override
+    public TokenHealth getTokenHealth(String siteKey, String platform, String accountId) {
+        if (accountId == null) {
+            try {
+                accountId = socialAccountService.getDefaultAccountId(siteKey, platform);
+            } catch (RepositoryException e) {
+                logger.debug("[TOKEN] Could not resolve {} account for site {}: {}", platform, siteKey, e.getMessage());
+                return null;
+            }
+        }
+        if (accountId == null) {
+            return null;
+        }
+        TokenHealth health = healthCache.get(healthKey(siteKey, platform, accountId));
+        if (health == null || System.currentTimeMillis() - health.getCheckedAt() > healthTtlMillis) {
+            return null;
+        }
+        return health;
+    }
+
+    /**
+     * Validate up to 50 Facebook tokens in a single Graph batch request of debug_token calls,
+     * authenticated with the app access token.
+     *
+     * @return one result per entry, in order; null where the individual call failed
+     */
+    private List<TokenHealth> debugFacebookTokens(List<TokenEntry> batch) throws IOException {
+        List<TokenHealth> results = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        if (isEmpty(facebookAppId) || isEmpty(facebookAppSecret)) {
+            logger.warn("[TOKEN] Facebook app credentials not configured - skipping debug_token checks");
+            return results;
+        }
+
+        StringBuilder operations = new StringBuilder("[");
+        for (int i = 0; i < batch.size(); i++) {
+            TokenEntry entry = batch.get(i);
+            String token = !isEmpty(entry.pageToken) ? entry.pageToken : entry.accessToken;
+            if (i > 0) {
+                operations.append(',');
+            }
+            operations.append("{\"method\":\"GET\",\"relative_url\":\"debug_token?input_token=")
+                .append(URLEncoder.encode(token, "UTF-8")).append("\"}");
+        }
+        operations.append(']');
+
+        String body = "access_token=" + URLEncoder.encode(facebookAppId + "|" + facebookAppSecret, "UTF-8") +
+            "&include_headers=false" +
+            "&batch=" + URLEncoder.encode(operations.toString(), "UTF-8");
+
+        long checkedAt = System.currentTimeMillis();
+        HttpURLConnection conn = (HttpURLConnection) new URL(facebookBaseUrl + "/" + facebookApiVersion + "/").openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(10000);
+            conn.setReadTimeout(30000);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            int responseCode = conn.getResponseCode();
+            if (responseCode != 200) {
+                throw new IOException("Graph batch request returned HTTP " + responseCode);
+            }
+
+            // Response: [{"code":200,"body":"{\"data\":{...}}"}, null, ...] in request order
+            try (JsonStreamParser parser = new JsonStreamParser(conn.getInputStream())) {
+                if (parser.nextToken() != JsonStreamParser.Token.START_ARRAY) {
+                    throw new IOException("Unexpected Graph batch response");
+                }
+                int index = 0;
+                JsonStreamParser.Token token;
+                while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_ARRAY) {
+                    if (token == JsonStreamParser.Token.START_OBJECT) {
+                        String code = null;
+                        String responseBody = null;
+                        while ((token = parser.nextToken()) != null && token != JsonStreamParser.Token.END_OBJECT) {
+                            String name = parser.getText();
+                            token = parser.nextToken();
+                            if (token == JsonStreamParser.Token.START_OBJECT || token == JsonStreamParser.Token.START_ARRAY) {
+                                parser.skipChildren();
+                            } else if ("code".equals(name)) {
+                                code = parser.getText();
+                            } else if ("body".equals(name)) {
+                                responseBody = parser.getText();
+                            }
+                        }
+                        if (index < results.size()) {
+                            if ("200".equals(code) && responseBody != null) {
+                                results.set(index, parseDebugToken(responseBody, checkedAt));
+                            } else {
+                                logger.warn("[TOKEN] debug_token for '{}' returned HTTP {}", batch.get(index).label, code);
+                            }
+                        }
+                    }
+                    index++;
+                }
+            }
+        } finally {
+            conn.disconnect();
+        }
+        return results;
+    }
+
+    /**
+     * Read is_valid, scopes and error.message from a debug_token response body.
+     */
+    private TokenHealth parseDebugToken(String body, long checkedAt) throws IOException {
+        boolean valid = false;
+        List<String> scopes = new ArrayList<>();
+        String error = null;
+        try (JsonStreamParser parser = new JsonStreamParser(new StringReader(body))) {
+            JsonStreamParser.Token token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonStreamParser.Token.FIELD_NAME) {
+                    continue;
+                }
+                String name = parser.getText();
+                token = parser.nextToken();
+                if ("is_valid".equals(name)) {
+                    valid = token == JsonStreamParser.Token.VALUE_TRUE;
+                } else if ("scopes".equals(name) && token == JsonStreamParser.Token.START_ARRAY) {
+                    while ((token = parser.nextToken()) == JsonStreamParser.Token.VALUE_STRING) {
+                        scopes.add(parser.getText());
+                    }
+                } else if ("message".equals(name) && error == null && token == JsonStreamParser.Token.VALUE_STRING) {
+                    error = parser.getText();
+                }
+            }
+        }
+        return new TokenHealth(valid, scopes, valid ? null : (error != null ? error : "Token is not valid"), checkedAt);
+    }
+
+    /**
+     * Check a LinkedIn token through OAuth token introspection.
+     *
+     * @return the health, or null if the check itself failed
+     */
+    private TokenHealth introspectLinkedIn(TokenEntry entry) throws IOException {
+        if (isEmpty(linkedinClientId) || isEmpty(linkedinClientSecret) || isEmpty(entry.accessToken)) {
+            return null;
+        }
+        String body = "client_id=" + URLEncoder.encode(linkedinClientId, "UTF-8") +
+            "&client_secret=" + URLEncoder.encode(linkedinClientSecret, "UTF-8") +
+            "&token=" + URLEncoder.encode(entry.accessToken, "UTF-8");
+        Map<String, String> fields = call("POST", LINKEDIN_INTROSPECT_URL, body, "active", "scope", "status");
+        if (fields == null) {
+            return null;
+        }
+        boolean active = "true".equals(fields.get("active"));
+        List<String> scopes = isEmpty(fields.get("scope"))
+            ? Collections.emptyList() : Arrays.asList(fields.get("scope").split("[,\\s]+"));
+        return new TokenHealth(active, scopes, active ? null : "Token " + fields.getOrDefault("status", "inactive"),
+            System.currentTimeMillis());
+    }
+
+    /**
+     * Cache a health result and mirror validity changes on social:tokenStatus.
+     */
+    private void recordHealth(TokenEntry entry, TokenHealth health) {
+        healthCache.put(healthKey(entry.siteKey, entry.platform, entry.accountId), health);
+
+        String status;
+        if (!health.isValid()) {
+            status = TOKEN_INVALID;
+        } else if (TOKEN_INVALID.equals(entry.status)) {
+            // Token was re-granted or fixed outside the refresh flow
+            status = TOKEN_VALID;
+        } else {
+            return;
+        }
+        if (status.equals(entry.status)) {
+            return;
+        }
+        try {
+            jcrTemplate.doExecuteWithSystemSession(session -> {
+                session.getNodeByIdentifier(entry.uuid).setProperty("social:tokenStatus", status);
+                session.save();
+                return null;
+            });
+            if (TOKEN_INVALID.equals(status)) {
+                logger.warn("[TOKEN] ✗ {} token for '{}' on site {} is invalid: {}",
+                    entry.platform, entry.label, entry.siteKey, health.getError());
+                activityLogService.logAccountAlert(entry.siteKey, entry.platform, entry.label,
+                    "Token is no longer valid: " + health.getError());
+            }
+        } catch (RepositoryException e) {
+            logger.error("[TOKEN] Failed to update token status of account " + entry.uuid, e);
+        }
+    }
+
+    private static String healthKey(String siteKey, String platform, String accountId) {
+        return siteKey + "/" + platform + "/" + accountId;
+    }
+
+    private void storeRefreshedToken(String uuid, String accessToken, String pageToken, String refreshToken,
+                                     Calendar expiry) throws RepositoryException {
+        jcrTemplate.doExecuteWithSystemSession(session -> {
+            Node accountNode = session.getNodeByIdentifier(uuid);
+            accountNode.setProperty("social:accessToken", accessToken);
+            if (pageToken != null) {
+                accountNode.setProperty("social:pageToken", pageToken);
+            }
+            if (refreshToken != null) {
+                accountNode.setProperty("social:refreshToken", refreshToken);
+            }
+            accountNode.setProperty("social:tokenExpiry", expiry);
+            accountNode.setProperty("social:tokenStatus", TOKEN_VALID);
+            session.save();
+            return null;
+        });
+    }
+
+    /**
+     * Mark an account whose token could not be refreshed, and raise an alert the first time it happens.
+     * Tokens that have not expired yet are marked 'expiring' so their posts can still go out meanwhile.
+     */
+    private void flagAccount(TokenEntry entry, String reason) {
+        String status = entry.expiry > System.currentTimeMillis() ? TOKEN_EXPIRING : TOKEN_REFRESH_FAILED;
+        logger.warn("[TOKEN] ✗ Could not refresh {} token for '{}' on site {} (expires {}): {}",
+            entry.platform, entry.label, entry.siteKey, new java.util.Date(entry.expiry), reason);
+        if (status.equals(entry.status)) {
+            return;
+        }
+        try {
+            jcrTemplate.doExecuteWithSystemSession(session -> {
+                session.getNodeByIdentifier(entry.uuid).setProperty("social:tokenStatus", status);
+                session.save();
+                return null;
+            });
+            activityLogService.logAccountAlert(entry.siteKey, entry.platform, entry.label,
+                String.format("Token expires %s and could not be refreshed: %s", new java.util.Date(entry.expiry), reason));
+        } catch (RepositoryException e) {
+            logger.error("[TOKEN] Failed to flag account " + entry.uuid, e);
+        }
+    }
+
+    /**
+     * Call an OAuth endpoint and stream-parse the wanted fields.
+     *
+     * @return the parsed fields, or null on HTTP error
+     */
+    private Map<String, String> call(String method, String endpoint, String formBody, String... fields) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(10000);
+            conn.setReadTimeout(30000);
+            if (formBody != null) {
+                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                conn.setDoOutput(true);
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(formBody.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int responseCode = conn.getResponseCode();
+            if (responseCode < 200 || responseCode >= 300) {
+                logger.warn("[TOKEN] {} {} returned HTTP {}", method, stripQuery(endpoint), responseCode);
+                return null;
+            }
+            try (InputStream inputStream = conn.getInputStream()) {
+                return JsonStreamParser.readFields(inputStream, fields);
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private Calendar expiryFrom(String expiresIn) {
+        Calendar expiry = Calendar.getInstance();
+        try {
+            expiry.add(Calendar.SECOND, expiresIn != null ? Integer.parseInt(expiresIn) : 5184000); // Default 60 days
+        } catch (NumberFormatException e) {
+            expiry.add(Calendar.SECOND, 5184000);
+        }
+        return expiry;
+    }
+
+    private static String stripQuery(String url) {
+        int query = url.indexOf('?');
+        return query >= 0 ? url.substring(0, query) : url;
+    }
+
+    private static String getString(Map<String, Object> properties, String key, String defaultValue) {
+        Object value = properties.get(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private String getPropertyValue(Node node, String propertyName) throws RepositoryException {
+        if (node.hasProperty(propertyName)) {
+            return node.getProperty(propertyName).getString();
+        }
+        return "";
+    }
+
+    private String extractSiteFromPath(String path) {
+        // Extract site key from path like /sites/jsmod/contents/...
+        if (path != null && path.startsWith("/sites/")) {
+            String[] parts = path.split("/");
+            if (parts.length > 2) {
+                return parts[2];
+            }
+        }
+        return "systemsite";
+    }
+
+    /**
+     * Token state of one account, as read when the queue was built.
+     */
+    static final class TokenEntry {
+        String uuid;
+        String siteKey;
+        String platform;
+        String label;
+        String accountId;
+        String pageId;
+        String accessToken;
+        String pageToken;
+        String refreshToken;
+        String status;
+        long expiry;
+    }
+}
@@ -0,0 +1,319 @@
+package org.example.socialhub.servlet;
+
+import org.example.socialhub.service.LeaderboardEntry;
+import org.example.socialhub.service.MetricsAggregate;
+import org.example.socialhub.service.PostingHeatmap;
+import org.example.socialhub.service.SocialAnalyticsService;
+import org.example.socialhub.service.SocialHeatmapService;
+import org.example.socialhub.service.SocialLeaderboardService;
+import org.jahia.bin.filters.AbstractServletFilter;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Social Analytics Servlet - Serves site-level metrics aggregates, post leaderboards and posting
+ * heatmaps to dashboards. Reads the daily aggregates maintained by SocialAnalyticsService, the in-memory
+ * rankings of SocialLeaderboardService and the heatmaps of SocialHeatmapService; never calls the platforms.
+ * 
+ * Registered at: /modules/api/social/analytics/{siteKey}
+ * 
+ * Query parameters (all optional):
+ * - platform: facebook, instagram or linkedin (default: all platforms)
+ * - from, to: UTC dates as yyyy-MM-dd, inclusive (default: the last 30 days)
+ * 
+ * Example: GET /modules/api/social/analytics/digitall?platform=facebook&from=2025-01-01&to=2025-01-31
+ * Returns: JSON with totals and one entry per platform and day
+ * 
+ * Leaderboard: /modules/api/social/analytics/{siteKey}/leaderboard
+ * - platform: as above
+ * - metric: engagementRate, likes or shares (default: engagementRate)
+ * - window: 1d, 7d or 30d (default: 7d)
+ * - limit: number of posts (default: 10)
+ * 
+ * Example: GET /modules/api/social/analytics/digitall/leaderboard?metric=likes&window=30d
+ * Returns: JSON with the top posts, best first
+ * 
+ * Heatmap: /modules/api/social/analytics/{siteKey}/heatmap
+ * - platform: as above
+ * - limit: number of recommended slots (default: 5)
+ * 
+ * Example: GET /modules/api/social/analytics/digitall/heatmap?platform=linkedin
+ * Returns: JSON with post count and engagement per publication weekday (1 = Monday) and hour,
+ * and the slots with the best average engagement per post
+ */
+@Component(
+    service = AbstractServletFilter.class,
+    immediate = true
+)
+public class SocialAnalyticsServlet extends AbstractServletFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SocialAnalyticsServlet.class);
+    
+    private static final String URL_PREFIX = "/modules/api/social/analytics/";
+    private static final int DEFAULT_DAYS = 30;
+    // Slots with fewer posts are not recommended
+    private static final int MIN_POSTS_PER_SLOT = 2;
+    
+    @Reference
+    private SocialAnalyticsService socialAnalyticsService;
+    
+    @Reference
+    private SocialLeaderboardService socialLeaderboardService;
+    
+    @Reference
+    private SocialHeatmapService socialHeatmapService;
+    
+    @Activate
+    public void activate() {
+        logger.info("[SocialAnalyticsServlet] Activating with /modules/api/social/analytics/*");
+        setUrlPatterns(new String[]{"/modules/api/social/analytics/*"});
+    }
+    
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        logger.info("[SocialAnalyticsServlet] Initialized - Registered at /modules/api/social/analytics/{siteKey}");
+    }
+    
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        
+        String requestURI = httpRequest.getRequestURI();
+        if (requestURI == null || !requestURI.contains(URL_PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        if (!"GET".equalsIgnoreCase(httpRequest.getMethod())) {
+            httpResponse.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Only GET requests are supported");
+            return;
+        }
+        
+        // {siteKey}, {siteKey}/leaderboard or {siteKey}/heatmap
+        String[] parts = requestURI.substring(requestURI.indexOf(URL_PREFIX) + URL_PREFIX.length()).split("/");
+        String view = parts.length == 2 ? parts[1] : null;
+        if (parts[0].isEmpty() || parts.length > 2 || (view != null && !"leaderboard".equals(view) && !"heatmap".equals(view))) {
+            logger.error("[SocialAnalyticsServlet] Invalid URI format: {}", requestURI);
+            httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URI format");
+            return;
+        }
+        String siteKey = parts[0];
+        
+        String platform = httpRequest.getParameter("platform");
+        if (platform != null && platform.isEmpty()) {
+            platform = null;
+        }
+        if ("leaderboard".equals(view)) {
+            writeLeaderboard(httpRequest, httpResponse, siteKey, platform);
+            return;
+        }
+        if ("heatmap".equals(view)) {
+            writeHeatmap(httpRequest, httpResponse, siteKey, platform);
+            return;
+        }
+        LocalDate to;
+        LocalDate from;
+        try {
+            to = httpRequest.getParameter("to") != null
+                ? LocalDate.parse(httpRequest.getParameter("to")) : LocalDate.now(ZoneOffset.UTC);
+            from = httpRequest.getParameter("from") != null
+                ? LocalDate.parse(httpRequest.getParameter("from")) : to.minusDays(DEFAULT_DAYS - 1);
+        } catch (DateTimeParseException e) {
+            httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Dates must be formatted as yyyy-MM-dd");
+            return;
+        }
+        
+        try {
+            long fromMillis = from.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            long toMillis = to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() - 1;
+            List<MetricsAggregate> days = socialAnalyticsService.getDailyMetrics(siteKey, platform, fromMillis, toMillis);
+            
+            // Totals from the daily entries already read, rather than a second pass over the aggregates
+            long[] totals = new long[5];
+            StringBuilder json = new StringBuilder();
+            json.append("{\"site\":\"").append(escapeJson(siteKey)).append("\"");
+            json.append(",\"platform\":").append(platform != null ? "\"" + escapeJson(platform) + "\"" : "null");
+            json.append(",\"from\":\"").append(from).append("\",\"to\":\"").append(to).append("\"");
+            json.append(",\"days\":[");
+            for (int i = 0; i < days.size(); i++) {
+                MetricsAggregate day = days.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"date\":\"").append(Instant.ofEpochMilli(day.getDay()).atZone(ZoneOffset.UTC).toLocalDate())
+                    .append("\",\"platform\":\"").append(escapeJson(day.getPlatform())).append("\",");
+                appendCounters(json, day.getImpressions(), day.getClicks(), day.getLikes(), day.getComments(), day.getShares());
+                json.append('}');
+                totals[0] += day.getImpressions();
+                totals[1] += day.getClicks();
+                totals[2] += day.getLikes();
+                totals[3] += day.getComments();
+                totals[4] += day.getShares();
+            }
+            json.append("],\"totals\":{");
+            appendCounters(json, totals[0], totals[1], totals[2], totals[3], totals[4]);
+            json.append("}}");
+            
+            httpResponse.setContentType("application/json");
+            httpResponse.setCharacterEncoding("UTF-8");
+            httpResponse.getWriter().write(json.toString());
+            httpResponse.setStatus(HttpServletResponse.SC_OK);
+        } catch (Exception e) {
+            logger.error("[SocialAnalyticsServlet] Error reading analytics for site " + siteKey, e);
+            httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                "Failed to read analytics: " + e.getMessage());
+        }
+    }
+    
+    private void writeLeaderboard(HttpServletRequest httpRequest, HttpServletResponse httpResponse, String siteKey,
+                                  String platform) throws IOException {
+        String metric = httpRequest.getParameter("metric") != null
+            ? httpRequest.getParameter("metric") : SocialLeaderboardService.METRIC_ENGAGEMENT_RATE;
+        String window = httpRequest.getParameter("window") != null
+            ? httpRequest.getParameter("window") : SocialLeaderboardService.WINDOW_WEEK;
+        List<LeaderboardEntry> entries;
+        try {
+            int limit = httpRequest.getParameter("limit") != null ? Integer.parseInt(httpRequest.getParameter("limit")) : 10;
+            entries = socialLeaderboardService.getLeaderboard(siteKey, platform, metric, window, limit);
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException for limit
+            httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (RepositoryException e) {
+            logger.error("[SocialAnalyticsServlet] Error reading leaderboard for site " + siteKey, e);
+            httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                "Failed to read leaderboard: " + e.getMessage());
+            return;
+        }
+        
+        StringBuilder json = new StringBuilder();
+        json.append("{\"site\":\"").append(escapeJson(siteKey)).append("\"");
+        json.append(",\"platform\":").append(platform != null ? "\"" + escapeJson(platform) + "\"" : "null");
+        json.append(",\"metric\":\"").append(escapeJson(metric)).append("\",\"window\":\"").append(escapeJson(window)).append("\"");
+        json.append(",\"posts\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            LeaderboardEntry entry = entries.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"rank\":").append(i + 1)
+                .append(",\"postUuid\":\"").append(escapeJson(entry.getPostUuid()))
+                .append("\",\"platform\":\"").append(escapeJson(entry.getPlatform()))
+                .append("\",\"score\":").append(entry.getScore()).append(',');
+            appendCounters(json, entry.getImpressions(), entry.getClicks(), entry.getLikes(), entry.getComments(),
+                entry.getShares());
+            json.append('}');
+        }
+        json.append("]}");
+        
+        httpResponse.setContentType("application/json");
+        httpResponse.setCharacterEncoding("UTF-8");
+        httpResponse.getWriter().write(json.toString());
+        httpResponse.setStatus(HttpServletResponse.SC_OK);
+    }
+    
+    private void writeHeatmap(HttpServletRequest httpRequest, HttpServletResponse httpResponse, String siteKey,
+                              String platform) throws IOException {
+        PostingHeatmap heatmap;
+        int limit;
+        try {
+            limit = httpRequest.getParameter("limit") != null ? Integer.parseInt(httpRequest.getParameter("limit")) : 5;
+            heatmap = socialHeatmapService.getHeatmap(siteKey, platform);
+        } catch (NumberFormatException e) {
+            httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be a number");
+            return;
+        } catch (RepositoryException e) {
+            logger.error("[SocialAnalyticsServlet] Error reading posting heatmap: ", e);
+            httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to read heatmap: " + e.getMessage());
+            return;
+        }
+        
+        StringBuilder json = new StringBuilder();
+        json.append("{\"site\":\"").append(escapeJson(siteKey)).append("\"");
+        json.append(",\"platform\":").append(platform != null ? "\"" + escapeJson(platform) + "\"" : "null");
+        if (heatmap == null) {
+            // Not computed yet
+            json.append(",\"timeZone\":null,\"updatedAt\":null,\"slots\":[],\"best\":[]}");
+        } else {
+            json.append(",\"timeZone\":\"").append(escapeJson(heatmap.getTimeZone())).append("\"");
+            json.append(",\"updatedAt\":\"").append(Instant.ofEpochMilli(heatmap.getUpdatedAt())).append("\"");
+            json.append(",\"slots\":[");
+            boolean first = true;
+            for (int slot = 0; slot < PostingHeatmap.SLOTS; slot++) {
+                if (heatmap.getPosts(slot) == 0) {
+                    continue;
+                }
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendSlot(json, heatmap, slot);
+            }
+            json.append("],\"best\":[");
+            List<Integer> best = heatmap.getBestSlots(limit, MIN_POSTS_PER_SLOT);
+            for (int i = 0; i < best.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendSlot(json, heatmap, best.get(i));
+            }
+            json.append("]}");
+        }
+        
+        httpResponse.setContentType("application/json");
+        httpResponse.setCharacterEncoding("UTF-8");
+        httpResponse.getWriter().write(json.toString());
+        httpResponse.setStatus(HttpServletResponse.SC_OK);
+    }
+    
+    private static void appendSlot(StringBuilder json, PostingHeatmap heatmap, int slot) {
+        json.append("{\"day\":").append(PostingHeatmap.dayOfWeek(slot))
+            .append(",\"hour\":").append(PostingHeatmap.hour(slot))
+            .append(",\"posts\":").append(heatmap.getPosts(slot))
+            .append(",\"engagement\":").append(heatmap.getEngagement(slot))
+            .append(",\"average\":").append(String.format(Locale.ROOT, "%.1f", heatmap.getAverageEngagement(slot)))
+            .append('}');
+    }
+    
+    private static void appendCounters(StringBuilder json, long impressions, long clicks, long likes,
+                                       long comments, long shares) {
+        json.append("\"impressions\":").append(impressions)
+            .append(",\"clicks\":").append(clicks)
+            .append(",\"likes\":").append(likes)
+            .append(",\"comments\":").append(comments)
+            .append(",\"shares\":").append(shares);
+    }
+    
+    private static String escapeJson(String input) {
+        if (input == null) return "";
+        return input
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n")
+            .replace("\r", "\\r")
+            .replace("\t", "\\t");
+    }
+    
+    @Override
+    public void destroy() {
+        logger.info("[SocialAnalyticsServlet] Destroyed");
+    }
+}
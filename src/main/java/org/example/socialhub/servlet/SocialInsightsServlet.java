@@ -1,23 +1,47 @@
 package org.example.socialhub.servlet;
 
 import org.apache.commons.io.IOUtils;
+import org.example.socialhub.service.MetricsSample;
 import org.example.socialhub.service.SocialAccountService;
+import org.example.socialhub.service.SocialBenchmarkService;
+import org.example.socialhub.service.SocialMetricsService;
 import org.jahia.bin.filters.AbstractServletFilter;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.RepositoryException;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Social Insights Servlet - Fetches insights/analytics from social media platforms.
@@ -26,8 +50,32 @@ import java.nio.charset.StandardCharsets;
  * 
  * Platforms supported: facebook, instagram, linkedin
  * 
- * Example: GET /modules/api/social/insights/facebook/1216046853914613
- * Returns: JSON with insights data (impressions, reach, clicks, likes, comments, shares)
+ * Query parameters (all optional):
+ * - site: site key (default: taken from the referer)
+ * - account: Page ID / person ID the post was published with
+ * - post: UUID of the socialnt:post node; answers from its stored metrics when they are recent enough
+ * - fresh: true to skip stored metrics and the cache and call the platform
+ * 
+ * Example: GET /modules/api/social/insights/facebook/1216046853914613?post=0f6c...
+ * Returns: JSON with insights data (impressions, reach, clicks, likes, comments, shares), and the post's
+ * percentile rank among the site's posts on the platform once SocialBenchmarkService has built its sketches
+ * 
+ * With a post UUID, the latest sample stored by SocialMetricsService is served if it is not older than
+ * insightsSnapshotMaxAge seconds, so UI traffic needs no platform call at all. Every response carries
+ * "source" (snapshot, cache or live), "capturedAt" and "ageSeconds".
+ * 
+ * Platform responses are cached per platform, site and post (LRU, insightsCacheSize entries). Within
+ * insightsCacheTtl seconds they are served as is; for insightsCacheStaleTtl seconds more they are
+ * still served while one background refresh fetches them again; after that the request waits for a live fetch.
+ * Concurrent live fetches of the same platform, site and post are coalesced: one platform call is made and
+ * every waiting request, background refresh or bulk entry gets its result.
+ * 
+ * Bulk: POST /modules/api/social/insights/batch?site=&fresh= with a JSON body
+ * {"posts":[{"platform":"facebook","postId":"...","account":"...","post":"uuid"}, ...]}
+ * Returns {"count":n,"errors":n,"results":[...]} in request order; an entry that could not be fetched is
+ * {"platform","postId","error"} and does not fail the others. Entries are answered from stored metrics and
+ * the cache first; Facebook misses are fetched per Page with one ids= request per FACEBOOK_BATCH_SIZE posts,
+ * at most insightsBatchConcurrency platform calls at a time.
  */
 @Component(
     service = AbstractServletFilter.class,
@@ -38,16 +86,83 @@ public class SocialInsightsServlet extends AbstractServletFilter {
     
     private static final Logger logger = LoggerFactory.getLogger(SocialInsightsServlet.class);
     
+    private static final String[] FACEBOOK_REACTIONS = {"like", "love", "wow", "haha", "sorry", "anger"};
+    // Insights metrics and engagement counts of a post, fetched in one Graph API call
+    private static final String FACEBOOK_INSIGHTS_FIELDS =
+        "insights.metric(post_impressions,post_impressions_unique,post_clicks"
+            + ",post_reactions_like_total,post_reactions_love_total,post_reactions_wow_total"
+            + ",post_reactions_haha_total,post_reactions_sorry_total,post_reactions_anger_total)"
+            + ",likes.summary(true).limit(0),comments.summary(true).limit(0),shares";
+    private static final int CONNECTION_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 20000;
+    // Longest a request waits for a fetch of the same post started by another one
+    private static final long FLIGHT_TIMEOUT = CONNECTION_TIMEOUT + READ_TIMEOUT + 5000L;
+    // Graph API limit on the number of IDs per ids= request
+    private static final int FACEBOOK_BATCH_SIZE = 50;
+    
     @Reference
     private SocialAccountService socialAccountService;
     
+    @Reference
+    private SocialBenchmarkService socialBenchmarkService;
+    
+    @Reference
+    private SocialMetricsService socialMetricsService;
+    
+    private String facebookBaseUrl = "https://graph.facebook.com";
     private String facebookApiVersion = "v21.0";
+    private long insightsCacheTtl = 5 * 60 * 1000L;
+    private long insightsCacheStaleTtl = 60 * 60 * 1000L;
+    private long insightsSnapshotMaxAge = 2 * 60 * 60 * 1000L;
+    private int insightsBatchMaxPosts = 100;
+    private long insightsBatchTimeout = 30 * 1000L;
+    
+    // "platform/siteKey/postId" -> last response
+    private Map<String, CachedInsights> insightsCache;
+    private ExecutorService refreshExecutor;
+    // "platform/siteKey/postId" -> platform fetch in progress, shared by concurrent identical requests
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    // Platform calls of bulk requests, shared by all of them
+    private ExecutorService batchExecutor;
     
     @Activate
     public void activate(java.util.Map<String, Object> properties) {
         logger.info("[SocialInsightsServlet] Activating with /modules/api/social/insights/*");
         setUrlPatterns(new String[]{"/modules/api/social/insights/*"});
         
+        insightsCacheTtl = getInt(properties, "insightsCacheTtl", (int) (insightsCacheTtl / 1000)) * 1000L;
+        insightsCacheStaleTtl = getInt(properties, "insightsCacheStaleTtl", (int) (insightsCacheStaleTtl / 1000)) * 1000L;
+        int insightsCacheSize = Math.max(1, getInt(properties, "insightsCacheSize", 1000));
+        insightsSnapshotMaxAge = getInt(properties, "insightsSnapshotMaxAge", (int) (insightsSnapshotMaxAge / 1000)) * 1000L;
+        insightsCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedInsights>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedInsights> eldest) {
+                return size() > insightsCacheSize;
+            }
+        });
+        AtomicInteger threads = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "social-insights-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("[SocialInsightsServlet] Insights cache: {} entries, TTL {}s, stale for {}s more",
+            insightsCacheSize, insightsCacheTtl / 1000, insightsCacheStaleTtl / 1000);
+        
+        insightsBatchMaxPosts = Math.max(1, getInt(properties, "insightsBatchMaxPosts", insightsBatchMaxPosts));
+        insightsBatchTimeout = getInt(properties, "insightsBatchTimeout", (int) (insightsBatchTimeout / 1000)) * 1000L;
+        int insightsBatchConcurrency = Math.max(1, getInt(properties, "insightsBatchConcurrency", 4));
+        AtomicInteger batchThreads = new AtomicInteger();
+        batchExecutor = Executors.newFixedThreadPool(insightsBatchConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "social-insights-batch-" + batchThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        if (properties != null && properties.get("facebookBaseUrl") != null) {
+            facebookBaseUrl = properties.get("facebookBaseUrl").toString();
+        }
+        
         // Load Facebook API version from OSGi configuration
         if (properties != null && properties.get("facebookApiVersion") != null) {
             facebookApiVersion = properties.get("facebookApiVersion").toString();
@@ -57,6 +172,16 @@ public class SocialInsightsServlet extends AbstractServletFilter {
         }
     }
     
+    @Deactivate
+    public void deactivate() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+    }
+    
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         logger.info("[SocialInsightsServlet] Initialized - Registered at /modules/api/social/insights/{platform}/{postId}");
@@ -77,6 +202,10 @@ public class SocialInsightsServlet extends AbstractServletFilter {
             
             // Extract platform and postId from URI
             String[] parts = requestURI.split("/");
+            if (parts.length == 6 && "batch".equals(parts[5])) {
+                handleBatchRequest(httpRequest, httpResponse);
+                return;
+            }
             if (parts.length < 7) {
                 logger.error("[SocialInsightsServlet] Invalid URI format: {}", requestURI);
                 httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid URI format");
@@ -93,12 +222,19 @@ public class SocialInsightsServlet extends AbstractServletFilter {
                 siteKey = extractSiteKeyFromRequest(httpRequest);
             }
             
-            logger.info("[SocialInsightsServlet] Platform: {}, PostId: {}, SiteKey: {}", platform, postId, siteKey);
+            // Optional account the post was published with (Page ID / person ID)
+            String accountId = httpRequest.getParameter("account");
+            // Optional post node, for its stored metrics
+            String postUuid = httpRequest.getParameter("post");
+            boolean fresh = "true".equalsIgnoreCase(httpRequest.getParameter("fresh"));
+            
+            logger.info("[SocialInsightsServlet] Platform: {}, PostId: {}, SiteKey: {}, Account: {}",
+                platform, postId, siteKey, accountId);
             
             // Handle GET requests only
             if ("GET".equalsIgnoreCase(httpRequest.getMethod())) {
                 try {
-                    String insightsJson = fetchInsights(platform, postId, siteKey);
+                    String insightsJson = getInsights(platform, postId, siteKey, accountId, postUuid, fresh);
                     
                     httpResponse.setContentType("application/json");
                     httpResponse.setCharacterEncoding("UTF-8");
@@ -166,16 +302,300 @@ public class SocialInsightsServlet extends AbstractServletFilter {
         return "digitall";
     }
     
+    /**
+     * Insights from the post's stored metrics if recent enough, else from the cache, refreshed in the
+     * background once older than insightsCacheTtl, else fetched live (also when fresh is requested).
+     */
+    String getInsights(String platform, String postId, String siteKey, String accountId, String postUuid,
+                       boolean fresh) throws Exception {
+        if (!fresh) {
+            String stored = getStoredInsights(platform, postId, siteKey, accountId, postUuid);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        return fetchAndCache(platform, postId, siteKey, accountId);
+    }
+    
+    /**
+     * Insights from the post's stored metrics or from the cache, starting a background refresh of a
+     * stale entry, or null if the platform has to be called.
+     */
+    private String getStoredInsights(String platform, String postId, String siteKey, String accountId,
+                                     String postUuid) {
+        if (postUuid != null && !postUuid.isEmpty()) {
+            String snapshot = getSnapshotInsights(platform, postId, siteKey, postUuid);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        String key = cacheKey(platform, siteKey, postId);
+        long now = System.currentTimeMillis();
+        CachedInsights cached = insightsCache.get(key);
+        if (cached != null) {
+            long age = now - cached.fetchedAt;
+            if (age < insightsCacheTtl) {
+                logger.debug("[SocialInsightsServlet] Serving cached insights for {} ({}s old)", key, age / 1000);
+                return withSource(cached.json, "cache", cached.fetchedAt);
+            }
+            if (age < insightsCacheTtl + insightsCacheStaleTtl) {
+                if (cached.refreshing.compareAndSet(false, true)) {
+                    refreshInBackground(key, cached, platform, postId, siteKey, accountId);
+                }
+                logger.debug("[SocialInsightsServlet] Serving stale insights for {} ({}s old) while refreshing", key, age / 1000);
+                return withSource(cached.json, "cache", cached.fetchedAt);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Fetch and cache a post's insights, or wait for the fetch of the same platform, site and post
+     * already in flight and share its result or failure.
+     */
+    private String fetchAndCache(String platform, String postId, String siteKey, String accountId) throws Exception {
+        String key = cacheKey(platform, siteKey, postId);
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            logger.debug("[SocialInsightsServlet] Joining in-flight fetch of {}", key);
+            return awaitFlight(existing);
+        }
+        try {
+            String json = cacheLive(platform, postId, siteKey, fetchInsights(platform, postId, siteKey, accountId));
+            flight.complete(json);
+            return json;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Cached before removal, so a request arriving after this finds the cache
+            inFlight.remove(key, flight);
+        }
+    }
+    
+    /**
+     * Result of another request's fetch; gives up after FLIGHT_TIMEOUT without cancelling it, since
+     * other requests may still be waiting on it.
+     */
+    private static String awaitFlight(CompletableFuture<String> flight) throws Exception {
+        try {
+            return flight.get(FLIGHT_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out after " + FLIGHT_TIMEOUT / 1000 + "s waiting for the fetch in progress");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+    
+    private String cacheLive(String platform, String postId, String siteKey, String json) {
+        long fetchedAt = System.currentTimeMillis();
+        insightsCache.put(cacheKey(platform, siteKey, postId), new CachedInsights(json, fetchedAt));
+        return withSource(json, "live", fetchedAt);
+    }
+    
+    private static String cacheKey(String platform, String siteKey, String postId) {
+        return platform.toLowerCase() + "/" + siteKey + "/" + postId;
+    }
+    
+    /**
+     * Insights built from the latest metrics sample stored for the post, or null if there is none
+     * or it is older than insightsSnapshotMaxAge.
+     */
+    private String getSnapshotInsights(String platform, String postId, String siteKey, String postUuid) {
+        MetricsSample latest;
+        try {
+            // Null unless the post belongs to the site and its metrics are for this platform post
+            latest = socialMetricsService.getLatestMetrics(siteKey, postUuid, platform.toLowerCase(), postId);
+        } catch (RepositoryException e) {
+            logger.debug("[SocialInsightsServlet] No stored metrics for post {}: {}", postUuid, e.getMessage());
+            return null;
+        }
+        if (latest == null || System.currentTimeMillis() - latest.getCapturedAt() > insightsSnapshotMaxAge) {
+            return null;
+        }
+        // Reach is not stored; the rate is taken over impressions where the platform reports them
+        long engagements = latest.getLikes() + latest.getComments() + latest.getShares();
+        double engagementRate = latest.getImpressions() > 0 ? (double) engagements / latest.getImpressions() * 100 : 0.0;
+        String json = String.format(Locale.ROOT,
+            "{\"postId\":\"%s\",\"platform\":\"%s\"," +
+            "\"impressions\":%d,\"reach\":0,\"clicks\":%d," +
+            "\"likes\":%d,\"comments\":%d,\"shares\":%d," +
+            "\"engagement\":{\"rate\":%.2f}%s}",
+            postId, platform.toLowerCase(), latest.getImpressions(), latest.getClicks(),
+            latest.getLikes(), latest.getComments(), latest.getShares(), engagementRate,
+            percentilesJson(siteKey, platform.toLowerCase(), latest.getClicks(), latest.getLikes(),
+                latest.getComments(), latest.getShares())
+        );
+        return withSource(json, "snapshot", latest.getCapturedAt());
+    }
+    
+    /**
+     * Add where the insights come from and how old they are to a JSON object.
+     */
+    private static String withSource(String json, String source, long capturedAt) {
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - capturedAt) / 1000);
+        return json.substring(0, json.lastIndexOf('}'))
+            + ",\"source\":\"" + source + "\",\"capturedAt\":\"" + Instant.ofEpochMilli(capturedAt)
+            + "\",\"ageSeconds\":" + ageSeconds + "}";
+    }
+    
+    private void refreshInBackground(String key, CachedInsights cached, String platform, String postId,
+                                     String siteKey, String accountId) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetchAndCache(platform, postId, siteKey, accountId);
+                } catch (Exception e) {
+                    // Keep serving the stale entry; the next request past the TTL tries again
+                    logger.warn("[SocialInsightsServlet] Background refresh of {} failed: {}", key, e.getMessage());
+                    cached.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cached.refreshing.set(false);
+        }
+    }
+    
+    /**
+     * POST /modules/api/social/insights/batch: insights of several posts in one combined response.
+     */
+    private void handleBatchRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Only POST requests are supported");
+            return;
+        }
+        String siteKey = request.getParameter("site");
+        if (siteKey == null || siteKey.isEmpty()) {
+            siteKey = extractSiteKeyFromRequest(request);
+        }
+        boolean fresh = "true".equalsIgnoreCase(request.getParameter("fresh"));
+        
+        List<BatchEntry> entries = new ArrayList<>();
+        try {
+            org.json.JSONArray posts = new org.json.JSONObject(readRequestBody(request))
+                .getJSONArray("posts");
+            for (int i = 0; i < posts.length(); i++) {
+                org.json.JSONObject post = posts.getJSONObject(i);
+                entries.add(new BatchEntry(post.getString("platform").toLowerCase(), post.getString("postId"),
+                    post.optString("account", null), post.optString("post", null)));
+            }
+        } catch (org.json.JSONException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                "Expected {\"posts\":[{\"platform\":...,\"postId\":...}, ...]}: " + e.getMessage());
+            return;
+        }
+        if (entries.size() > insightsBatchMaxPosts) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                "At most " + insightsBatchMaxPosts + " posts per request");
+            return;
+        }
+        logger.info("[SocialInsightsServlet] Batch of {} posts for site: {}", entries.size(), siteKey);
+        
+        try {
+            getBatchInsights(entries, siteKey, fresh);
+        } catch (RejectedExecutionException e) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Insights service is stopping");
+            return;
+        }
+        
+        StringBuilder json = new StringBuilder();
+        int errors = 0;
+        for (BatchEntry entry : entries) {
+            json.append(json.length() == 0 ? "" : ",");
+            if (entry.json != null) {
+                json.append(entry.json);
+            } else {
+                errors++;
+                json.append("{\"platform\":\"").append(escapeJson(entry.platform))
+                    .append("\",\"postId\":\"").append(escapeJson(entry.postId))
+                    .append("\",\"error\":\"").append(escapeJson(entry.error != null ? entry.error : "Timed out"))
+                    .append("\"}");
+            }
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"count\":" + entries.size() + ",\"errors\":" + errors
+            + ",\"results\":[" + json + "]}");
+    }
+    
+    /**
+     * Fill in each entry's insights or error. Entries are answered from stored metrics and the cache
+     * where possible; the others are fetched on batchExecutor, Facebook ones grouped per Page into
+     * ids= requests of up to FACEBOOK_BATCH_SIZE posts. Waits at most insightsBatchTimeout; fetches
+     * still queued or running then are cancelled, so they do not hold batchExecutor threads for later
+     * requests, and their entries are left without result.
+     */
+    private void getBatchInsights(List<BatchEntry> entries, String siteKey, boolean fresh) {
+        Map<String, List<BatchEntry>> facebookByPage = new LinkedHashMap<>();
+        List<Future<?>> fetches = new ArrayList<>();
+        for (BatchEntry entry : entries) {
+            if (!fresh) {
+                entry.json = getStoredInsights(entry.platform, entry.postId, siteKey, entry.accountId, entry.postUuid);
+                if (entry.json != null) {
+                    continue;
+                }
+            }
+            if ("facebook".equals(entry.platform)) {
+                String page = entry.accountId != null && !entry.accountId.isEmpty() ? entry.accountId
+                    : entry.postId.contains("_") ? entry.postId.substring(0, entry.postId.indexOf('_')) : "";
+                facebookByPage.computeIfAbsent(page, k -> new ArrayList<>()).add(entry);
+            } else {
+                fetches.add(batchExecutor.submit(() -> fetchEntry(entry, siteKey)));
+            }
+        }
+        for (Map.Entry<String, List<BatchEntry>> page : facebookByPage.entrySet()) {
+            List<BatchEntry> posts = page.getValue();
+            String accountId = page.getKey().isEmpty() ? null : page.getKey();
+            for (int i = 0; i < posts.size(); i += FACEBOOK_BATCH_SIZE) {
+                List<BatchEntry> chunk = posts.subList(i, Math.min(posts.size(), i + FACEBOOK_BATCH_SIZE));
+                fetches.add(batchExecutor.submit(() -> fetchFacebookBatch(chunk, siteKey, accountId)));
+            }
+        }
+        long deadline = System.currentTimeMillis() + insightsBatchTimeout;
+        try {
+            for (Future<?> fetch : fetches) {
+                try {
+                    fetch.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    // fetchEntry and fetchFacebookBatch record their failures on the entries
+                    logger.warn("[SocialInsightsServlet] Batch fetch failed: {}", e.getMessage());
+                }
+            }
+        } catch (TimeoutException e) {
+            logger.warn("[SocialInsightsServlet] Batch for site {} timed out after {}s", siteKey, insightsBatchTimeout / 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Queued fetches are dropped; running ones are interrupted, which also ends a wait on another
+            // request's fetch, and a blocked Graph read ends at READ_TIMEOUT at the latest
+            for (Future<?> fetch : fetches) {
+                fetch.cancel(true);
+            }
+        }
+    }
+    
+    private void fetchEntry(BatchEntry entry, String siteKey) {
+        try {
+            entry.json = fetchAndCache(entry.platform, entry.postId, siteKey, entry.accountId);
+        } catch (Exception e) {
+            logger.warn("[SocialInsightsServlet] Could not fetch {} insights for post {}: {}",
+                entry.platform, entry.postId, e.getMessage());
+            entry.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+    }
+    
     /**
      * Fetch insights from the appropriate social platform API
      */
-    private String fetchInsights(String platform, String postId, String siteKey) throws Exception {
+    String fetchInsights(String platform, String postId, String siteKey, String accountId) throws Exception {
         logger.info("[SocialInsightsServlet] Fetching insights for platform: {}, postId: {}, siteKey: {}", 
             platform, postId, siteKey);
         
         switch (platform.toLowerCase()) {
             case "facebook":
-                return fetchFacebookInsights(postId, siteKey);
+                return fetchFacebookInsights(postId, siteKey, accountId);
             case "instagram":
                 return fetchInstagramInsights(postId, siteKey);
             case "linkedin":
@@ -186,180 +606,299 @@ public class SocialInsightsServlet extends AbstractServletFilter {
     }
     
     /**
-     * Fetch insights from Facebook Graph API for Page Posts
-     * Endpoint: https://graph.facebook.com/{api-version}/{page-post-id}/insights
+     * Fetch insights from Facebook Graph API for Page Posts, in a single request using field expansion:
+     * GET https://graph.facebook.com/{api-version}/{page-post-id}?fields=insights.metric(...),likes.summary(true),...
      * 
      * Important: For Page Post insights, the post ID must be in format: {page-id}_{post-id}
      * Example: 101281515074354_1216046853914613
      * 
-     * Available metrics for Page Posts (period=lifetime):
-     * Reaction metrics:
-     * - post_reactions_like_total: Total Like reactions
-     * - post_reactions_love_total: Total Love reactions
-     * - post_reactions_wow_total: Total Wow reactions
-     * - post_reactions_haha_total: Total Haha reactions
-     * - post_reactions_sorry_total: Total Sorry reactions
-     * - post_reactions_anger_total: Total Anger reactions
+     * Requested Page Post insights (period=lifetime):
+     * - post_impressions, post_impressions_unique (reach), post_clicks
+     * - post_reactions_{like,love,wow,haha,sorry,anger}_total: reactions by type
+     * Likes, comments and shares come from the post's engagement fields.
      * 
-     * Note: Impressions/reach metrics (post_impressions, post_engaged_users) are NOT available
-     * via the insights endpoint - they must be fetched via the post's engagement fields
+     * The Page is taken from the account parameter, else from a {page-id}_{post-id} post ID,
+     * else the site's default Facebook account.
      */
-    private String fetchFacebookInsights(String postId, String siteKey) throws Exception {
+    private String fetchFacebookInsights(String postId, String siteKey, String accountId) throws Exception {
         logger.info("[SocialInsightsServlet] Fetching Facebook insights for post: {} on site: {}", postId, siteKey);
         
-        // Get Facebook accounts to find page ID
-        java.util.Map<String, java.util.Map<String, String>> accounts = socialAccountService.getFacebookAccounts(siteKey);
-        
-        if (accounts.isEmpty()) {
-            logger.warn("[SocialInsightsServlet] No Facebook accounts found for siteKey: {}", siteKey);
-            throw new IllegalStateException("No Facebook account found for site: " + siteKey);
-        }
-        
-        // Get first account's page ID and token
-        java.util.Map.Entry<String, java.util.Map<String, String>> firstAccount = accounts.entrySet().iterator().next();
-        String pageId = firstAccount.getKey();
-        String pageToken = firstAccount.getValue().get("pageToken");
-        
-        if (pageToken == null || pageToken.isEmpty()) {
-            logger.warn("[SocialInsightsServlet] No Facebook page token found for siteKey: {}", siteKey);
-            throw new IllegalStateException("No Facebook page token found for site: " + siteKey);
-        }
+        java.util.Map<String, String> account = getFacebookPage(postId, siteKey, accountId);
+        String pageToken = account.get("pageToken");
         
         // Build the full page-post ID format: {page-id}_{post-id}
-        String pagePostId = postId.contains("_") ? postId : pageId + "_" + postId;
+        String pagePostId = pagePostId(postId, account);
         logger.info("[SocialInsightsServlet] Using page-post ID: {}", pagePostId);
         
-        // Request only reaction metrics (these are the valid Page Post Insights metrics)
-        String metrics = URLEncoder.encode(
-            "post_reactions_like_total,post_reactions_love_total,post_reactions_wow_total,post_reactions_haha_total,post_reactions_sorry_total,post_reactions_anger_total", 
-            StandardCharsets.UTF_8.toString()
-        );
-        
         String apiUrl = String.format(
-            "https://graph.facebook.com/%s/%s/insights?metric=%s&access_token=%s",
-            facebookApiVersion, pagePostId, metrics, pageToken
+            "%s/%s/%s?fields=%s&access_token=%s",
+            facebookBaseUrl, facebookApiVersion, pagePostId,
+            URLEncoder.encode(FACEBOOK_INSIGHTS_FIELDS, StandardCharsets.UTF_8.toString()), pageToken
         );
         
-        logger.info("[SocialInsightsServlet] Calling Facebook Insights API: {}", 
-            apiUrl.replace(pageToken, "***TOKEN***"));
-        
-        // First, get reaction insights
-        URL insightsUrl = new URL(apiUrl);
-        HttpURLConnection insightsConnection = (HttpURLConnection) insightsUrl.openConnection();
-        insightsConnection.setRequestMethod("GET");
-        insightsConnection.setRequestProperty("Accept", "application/json");
-        
-        String insightsResponse = null;
-        int insightsResponseCode = insightsConnection.getResponseCode();
-        logger.info("[SocialInsightsServlet] Facebook Insights API response code: {}", insightsResponseCode);
-        
-        if (insightsResponseCode == HttpURLConnection.HTTP_OK) {
-            try (InputStream inputStream = insightsConnection.getInputStream()) {
-                insightsResponse = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                logger.info("[SocialInsightsServlet] Facebook Insights API response: {}", insightsResponse);
+        return parseFacebookInsights(graphGet(apiUrl, pageToken), postId, siteKey);
+    }
+    
+    /**
+     * Fetch the insights of several posts of the same Page with one ids= request and cache each of them.
+     * Posts already being fetched by another request are not requested again: their in-flight fetch is
+     * joined once the others are done. The posts requested here are registered as in flight until then.
+     */
+    private void fetchFacebookBatch(List<BatchEntry> entries, String siteKey, String accountId) {
+        if (entries.size() == 1) {
+            fetchEntry(entries.get(0), siteKey);
+            return;
+        }
+        Map<BatchEntry, CompletableFuture<String>> flights = new LinkedHashMap<>();
+        List<BatchEntry> joined = new ArrayList<>();
+        for (BatchEntry entry : entries) {
+            CompletableFuture<String> flight = new CompletableFuture<>();
+            if (inFlight.putIfAbsent(cacheKey("facebook", siteKey, entry.postId), flight) == null) {
+                flights.put(entry, flight);
+            } else {
+                joined.add(entry);
             }
-        } else {
-            try (InputStream errorStream = insightsConnection.getErrorStream()) {
-                String errorBody = errorStream != null ? 
-                    IOUtils.toString(errorStream, StandardCharsets.UTF_8) : "No error details";
-                logger.error("[SocialInsightsServlet] Facebook Insights API error: {}", errorBody);
+        }
+        try {
+            if (!flights.isEmpty()) {
+                fetchFacebookIds(new ArrayList<>(flights.keySet()), siteKey, accountId);
+            }
+        } finally {
+            for (Map.Entry<BatchEntry, CompletableFuture<String>> flight : flights.entrySet()) {
+                BatchEntry entry = flight.getKey();
+                if (entry.json != null) {
+                    flight.getValue().complete(entry.json);
+                } else {
+                    flight.getValue().completeExceptionally(new IOException(
+                        entry.error != null ? entry.error : "Facebook batch fetch failed"));
+                }
+                inFlight.remove(cacheKey("facebook", siteKey, entry.postId), flight.getValue());
             }
         }
+        // Answered by the in-flight fetch, or from the cache it filled; the wait is bounded by FLIGHT_TIMEOUT
+        // and ends early if the batch is cancelled
+        for (BatchEntry entry : joined) {
+            fetchEntry(entry, siteKey);
+        }
+    }
+    
+    /**
+     * The ids= request of fetchFacebookBatch, for posts it registered as in flight. The Graph API fails
+     * the whole request when one ID is unknown or not accessible, so the posts are then fetched one by
+     * one and only the faulty ones report an error.
+     */
+    private void fetchFacebookIds(List<BatchEntry> entries, String siteKey, String accountId) {
+        logger.info("[SocialInsightsServlet] Fetching Facebook insights for {} posts on site: {}", entries.size(), siteKey);
+        try {
+            java.util.Map<String, String> account = getFacebookPage(entries.get(0).postId, siteKey, accountId);
+            String pageToken = account.get("pageToken");
+            StringBuilder ids = new StringBuilder();
+            for (BatchEntry entry : entries) {
+                ids.append(ids.length() == 0 ? "" : ",").append(pagePostId(entry.postId, account));
+            }
+            String apiUrl = String.format(
+                "%s/%s/?ids=%s&fields=%s&access_token=%s",
+                facebookBaseUrl, facebookApiVersion,
+                URLEncoder.encode(ids.toString(), StandardCharsets.UTF_8.toString()),
+                URLEncoder.encode(FACEBOOK_INSIGHTS_FIELDS, StandardCharsets.UTF_8.toString()), pageToken
+            );
+            
+            // {"<page-post-id>":{...same fields as a single post...}, ...}
+            org.json.JSONObject posts = new org.json.JSONObject(graphGet(apiUrl, pageToken));
+            for (BatchEntry entry : entries) {
+                org.json.JSONObject post = posts.optJSONObject(pagePostId(entry.postId, account));
+                if (post == null) {
+                    entry.error = "Post not returned by Facebook";
+                    continue;
+                }
+                entry.json = cacheLive("facebook", entry.postId, siteKey,
+                    parseFacebookInsights(post.toString(), entry.postId, siteKey));
+            }
+        } catch (Exception e) {
+            logger.warn("[SocialInsightsServlet] Facebook batch of {} posts failed ({}), fetching them one by one",
+                entries.size(), e.getMessage());
+            for (BatchEntry entry : entries) {
+                // Not through fetchAndCache: these posts are in flight under this very fetch
+                try {
+                    entry.json = cacheLive("facebook", entry.postId, siteKey,
+                        fetchFacebookInsights(entry.postId, siteKey, entry.accountId != null ? entry.accountId : accountId));
+                    entry.error = null;
+                } catch (Exception single) {
+                    logger.warn("[SocialInsightsServlet] Could not fetch facebook insights for post {}: {}",
+                        entry.postId, single.getMessage());
+                    entry.error = single.getMessage() != null ? single.getMessage() : single.getClass().getSimpleName();
+                }
+            }
+        }
+    }
+    
+    /**
+     * The Facebook Page a post was published on: the account parameter, else the Page of a
+     * {page-id}_{post-id} post ID, else the site's default Facebook account.
+     */
+    private java.util.Map<String, String> getFacebookPage(String postId, String siteKey, String accountId)
+            throws RepositoryException {
+        if ((accountId == null || accountId.isEmpty()) && postId.contains("_")) {
+            accountId = postId.substring(0, postId.indexOf('_'));
+        }
         
-        // Second, get post engagement data (likes, comments, shares) from the post object
-        String postDataUrl = String.format(
-            "https://graph.facebook.com/%s/%s?fields=likes.summary(true),comments.summary(true),shares&access_token=%s",
-            facebookApiVersion, pagePostId, pageToken
-        );
+        // Look up only the Page the post belongs to
+        java.util.Map<String, String> account = socialAccountService.getAccount(siteKey, "facebook", accountId);
         
-        logger.info("[SocialInsightsServlet] Calling Facebook Post Data API: {}", 
-            postDataUrl.replace(pageToken, "***TOKEN***"));
+        if (account == null) {
+            logger.warn("[SocialInsightsServlet] No Facebook account found for siteKey: {} (account: {})", siteKey, accountId);
+            throw new IllegalStateException("No Facebook account found for site: " + siteKey);
+        }
         
-        URL postUrl = new URL(postDataUrl);
-        HttpURLConnection postConnection = (HttpURLConnection) postUrl.openConnection();
-        postConnection.setRequestMethod("GET");
-        postConnection.setRequestProperty("Accept", "application/json");
+        String pageToken = account.get("pageToken");
+        if (pageToken == null || pageToken.isEmpty()) {
+            logger.warn("[SocialInsightsServlet] No Facebook page token found for siteKey: {}", siteKey);
+            throw new IllegalStateException("No Facebook page token found for site: " + siteKey);
+        }
+        return account;
+    }
+    
+    private static String pagePostId(String postId, java.util.Map<String, String> account) {
+        return postId.contains("_") ? postId : account.get("pageId") + "_" + postId;
+    }
+    
+    /**
+     * GET a Graph API URL and return the response body.
+     *
+     * @throws IOException on a non-200 answer, rather than reporting zeros which would then be cached
+     */
+    private String graphGet(String apiUrl, String pageToken) throws IOException {
+        logger.info("[SocialInsightsServlet] Calling Facebook Graph API: {}", 
+            apiUrl.replace(pageToken, "***TOKEN***"));
         
-        String postDataResponse = null;
-        int postResponseCode = postConnection.getResponseCode();
-        logger.info("[SocialInsightsServlet] Facebook Post Data API response code: {}", postResponseCode);
+        HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl).openConnection();
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setConnectTimeout(CONNECTION_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
         
-        if (postResponseCode == HttpURLConnection.HTTP_OK) {
-            try (InputStream inputStream = postConnection.getInputStream()) {
-                postDataResponse = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                logger.info("[SocialInsightsServlet] Facebook Post Data API response: {}", postDataResponse);
-            }
-        } else {
-            try (InputStream errorStream = postConnection.getErrorStream()) {
+        int responseCode = connection.getResponseCode();
+        logger.info("[SocialInsightsServlet] Facebook Graph API response code: {}", responseCode);
+        
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            try (InputStream errorStream = connection.getErrorStream()) {
                 String errorBody = errorStream != null ? 
                     IOUtils.toString(errorStream, StandardCharsets.UTF_8) : "No error details";
-                logger.error("[SocialInsightsServlet] Facebook Post Data API error: {}", errorBody);
+                logger.error("[SocialInsightsServlet] Facebook Graph API error: {}", errorBody);
             }
+            throw new IOException("Facebook Graph API returned HTTP " + responseCode);
         }
         
-        // Parse and combine both responses
-        return parseFacebookInsights(insightsResponse, postDataResponse, postId);
+        try (InputStream inputStream = connection.getInputStream()) {
+            String body = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            logger.debug("[SocialInsightsServlet] Facebook Graph API response: {}", body);
+            return body;
+        }
     }
     
     /**
-     * Parse Facebook insights response and convert to standard format
-     * Combines insights data (reactions) with post engagement data (likes, comments, shares)
+     * Parse the field-expanded post response and convert it to the standard format:
+     * engagement fields (likes, comments, shares) and the insights metrics (impressions, reach,
+     * clicks and reactions by type).
      */
-    private String parseFacebookInsights(String insightsResponse, String postDataResponse, String postId) {
-        logger.info("[SocialInsightsServlet] Parsing Facebook insights and post data");
-        
-        int totalLikes = 0;
-        int totalComments = 0;
-        int totalShares = 0;
-        int impressions = 0;
-        int reach = 0;
-        int clicks = 0;
-        
-        // Parse post engagement data (likes, comments, shares)
-        if (postDataResponse != null) {
-            try {
-                org.json.JSONObject postData = new org.json.JSONObject(postDataResponse);
-                
-                if (postData.has("likes") && postData.getJSONObject("likes").has("summary")) {
-                    totalLikes = postData.getJSONObject("likes").getJSONObject("summary").optInt("total_count", 0);
-                }
-                
-                if (postData.has("comments") && postData.getJSONObject("comments").has("summary")) {
-                    totalComments = postData.getJSONObject("comments").getJSONObject("summary").optInt("total_count", 0);
-                }
-                
-                if (postData.has("shares")) {
-                    totalShares = postData.getJSONObject("shares").optInt("count", 0);
+    private String parseFacebookInsights(String postResponse, String postId, String siteKey) {
+        logger.info("[SocialInsightsServlet] Parsing Facebook post insights");
+        
+        org.json.JSONObject postData = new org.json.JSONObject(postResponse);
+        
+        long totalLikes = 0;
+        long totalComments = 0;
+        long totalShares = 0;
+        if (postData.has("likes") && postData.getJSONObject("likes").has("summary")) {
+            totalLikes = postData.getJSONObject("likes").getJSONObject("summary").optLong("total_count", 0);
+        }
+        if (postData.has("comments") && postData.getJSONObject("comments").has("summary")) {
+            totalComments = postData.getJSONObject("comments").getJSONObject("summary").optLong("total_count", 0);
+        }
+        if (postData.has("shares")) {
+            totalShares = postData.getJSONObject("shares").optLong("count", 0);
+        }
+        
+        // Insights metrics: {"insights":{"data":[{"name":"post_clicks","values":[{"value":12}]}, ...]}}
+        java.util.Map<String, Long> insights = new java.util.HashMap<>();
+        org.json.JSONObject insightsObject = postData.optJSONObject("insights");
+        org.json.JSONArray data = insightsObject != null ? insightsObject.optJSONArray("data") : null;
+        if (data != null) {
+            for (int i = 0; i < data.length(); i++) {
+                org.json.JSONObject metric = data.getJSONObject(i);
+                org.json.JSONArray values = metric.optJSONArray("values");
+                if (values != null && values.length() > 0) {
+                    // Lifetime metrics hold a single value
+                    insights.put(metric.optString("name", ""), values.getJSONObject(values.length() - 1).optLong("value", 0));
                 }
-                
-                logger.info("[SocialInsightsServlet] Parsed engagement: likes={}, comments={}, shares={}", 
-                    totalLikes, totalComments, totalShares);
-            } catch (Exception e) {
-                logger.error("[SocialInsightsServlet] Error parsing post data", e);
             }
         }
+        long impressions = insights.getOrDefault("post_impressions", 0L);
+        long reach = insights.getOrDefault("post_impressions_unique", 0L);
+        long clicks = insights.getOrDefault("post_clicks", 0L);
+        
+        logger.info("[SocialInsightsServlet] Parsed engagement: likes={}, comments={}, shares={}, impressions={}, reach={}, clicks={}", 
+            totalLikes, totalComments, totalShares, impressions, reach, clicks);
         
         // Calculate engagement rate
         double engagementRate = 0.0;
-        int totalEngagements = totalLikes + totalComments + totalShares;
+        long totalEngagements = totalLikes + totalComments + totalShares;
         if (reach > 0) {
             engagementRate = (double) totalEngagements / reach * 100;
         }
         
+        StringBuilder reactions = new StringBuilder();
+        for (String reaction : FACEBOOK_REACTIONS) {
+            reactions.append(reactions.length() == 0 ? "{" : ",")
+                .append('"').append(reaction).append("\":")
+                .append(insights.getOrDefault("post_reactions_" + reaction + "_total", 0L));
+        }
+        reactions.append('}');
+        
         // Return combined insights data
-        String json = String.format(
+        String json = String.format(Locale.ROOT,
             "{\"postId\":\"%s\",\"platform\":\"facebook\"," +
             "\"impressions\":%d,\"reach\":%d,\"clicks\":%d," +
             "\"likes\":%d,\"comments\":%d,\"shares\":%d," +
-            "\"engagement\":{\"rate\":%.2f}}",
+            "\"reactions\":%s," +
+            "\"engagement\":{\"rate\":%.2f}%s}",
             postId, impressions, reach, clicks,
-            totalLikes, totalComments, totalShares, engagementRate
+            totalLikes, totalComments, totalShares, reactions, engagementRate,
+            percentilesJson(siteKey, "facebook", clicks, totalLikes, totalComments, totalShares)
         );
         
         logger.info("[SocialInsightsServlet] Returning insights: {}", json);
         return json;
     }
     
+    /**
+     * Percentile ranks of the post's counters among the site's posts on the platform, as a
+     * ",\"percentiles\":{...}" member, or an empty string if no sketch has been built yet.
+     * Each rank is a lookup in a small in-memory sketch.
+     */
+    private String percentilesJson(String siteKey, String platform, long clicks, long likes, long comments, long shares) {
+        String[] metrics = {
+            SocialBenchmarkService.METRIC_LIKES, SocialBenchmarkService.METRIC_COMMENTS,
+            SocialBenchmarkService.METRIC_SHARES, SocialBenchmarkService.METRIC_ENGAGEMENT
+        };
+        long[] values = {likes, comments, shares, clicks + likes + comments + shares};
+        StringBuilder json = new StringBuilder();
+        try {
+            for (int i = 0; i < metrics.length; i++) {
+                Double rank = socialBenchmarkService.getPercentileRank(siteKey, platform, metrics[i], values[i]);
+                if (rank == null) {
+                    continue;
+                }
+                json.append(json.length() == 0 ? ",\"percentiles\":{" : ",")
+                    .append('"').append(metrics[i]).append("\":").append(String.format(Locale.ROOT, "%.1f", rank));
+            }
+        } catch (RepositoryException e) {
+            logger.warn("[SocialInsightsServlet] Could not read percentile sketches for site {}: {}", siteKey, e.getMessage());
+            return "";
+        }
+        return json.length() == 0 ? "" : json.append('}').toString();
+    }
+    
     /**
      * Fetch insights from Instagram Graph API (placeholder)
      */
@@ -392,6 +931,71 @@ public class SocialInsightsServlet extends AbstractServletFilter {
         );
     }
     
+    private static String readRequestBody(HttpServletRequest request) throws IOException {
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = request.getReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                body.append(line);
+            }
+        }
+        return body.toString();
+    }
+    
+    private static String escapeJson(String input) {
+        if (input == null) return "";
+        return input
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n")
+            .replace("\r", "\\r")
+            .replace("\t", "\\t");
+    }
+    
+    private static int getInt(java.util.Map<String, Object> properties, String key, int defaultValue) {
+        Object value = properties != null ? properties.get(key) : null;
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("[SocialInsightsServlet] Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    private static final class CachedInsights {
+        private final String json;
+        private final long fetchedAt;
+        // Set while a background refresh is pending, so concurrent stale hits start only one
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        
+        private CachedInsights(String json, long fetchedAt) {
+            this.json = json;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+    
+    /**
+     * One post of a bulk request; json or error is set by the thread that answers it.
+     */
+    private static final class BatchEntry {
+        private final String platform;
+        private final String postId;
+        private final String accountId;
+        private final String postUuid;
+        private volatile String json;
+        private volatile String error;
+        
+        private BatchEntry(String platform, String postId, String accountId, String postUuid) {
+            this.platform = platform;
+            this.postId = postId;
+            this.accountId = accountId;
+            this.postUuid = postUuid;
+        }
+    }
+    
     @Override
     public void destroy() {
         logger.info("[SocialInsightsServlet] Destroyed");
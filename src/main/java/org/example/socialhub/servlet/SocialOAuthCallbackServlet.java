@@ -1,9 +1,10 @@
 package org.example.socialhub.servlet;
 
 import org.apache.commons.codec.binary.Hex;
+import org.example.socialhub.service.AccountImportResult;
 import org.example.socialhub.service.SocialAccountService;
+import org.example.socialhub.util.JsonStreamParser;
 import org.jahia.bin.filters.AbstractServletFilter;
-import org.jahia.services.content.JCRTemplate;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -23,11 +24,8 @@ import java.util.Calendar;
 import java.util.Map;
 import java.util.UUID;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 
 /**
@@ -73,9 +71,6 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
     // - offline_access: Refresh tokens for long-lived access
     private String linkedinScopes = "openid,profile,email,w_member_social,r_organization_social,rw_organization_admin,offline_access";
 
-    @Reference
-    private JCRTemplate jcrTemplate;
-    
     @Reference
     private SocialAccountService socialAccountService;
 
@@ -226,13 +221,13 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
                     return;
                 }
 
+                // Instagram business accounts are reached through Facebook Login on the linked Pages
                 String redirectUri = resolveRedirectUri(instagramRedirectUri, request, "instagram");
-                String authUrl = "https://api.instagram.com/oauth/authorize"
+                String authUrl = "https://www.facebook.com/v20.0/dialog/oauth"
                     + "?client_id=" + urlEncode(instagramAppId)
                     + "&redirect_uri=" + urlEncode(redirectUri)
                     + "&state=" + urlEncode(state)
-                    + "&scope=" + urlEncode(instagramScopes)
-                    + "&response_type=code";
+                    + "&scope=" + urlEncode(instagramScopes);
 
                 logger.info("Redirecting to Instagram OAuth: {}", authUrl);
                 response.sendRedirect(authUrl);
@@ -328,56 +323,6 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
         }
     }
 
-    /**
-     * Persist a socialnt:account node for the given site and platform.
-     */
-    private void persistAccount(String siteKey, String platform, String label, String handle,
-                                String pageId, String accessToken, String refreshToken, Calendar expiry) throws RepositoryException {
-        String folderPath = "/sites/" + siteKey + "/contents/social-accounts";
-
-        jcrTemplate.doExecuteWithSystemSession(session -> {
-            Node folder;
-            if (session.itemExists(folderPath)) {
-                folder = (Node) session.getItem(folderPath);
-            } else {
-                // Create folder if it does not exist
-                String contentsPath = "/sites/" + siteKey + "/contents";
-                if (!session.itemExists(contentsPath)) {
-                    throw new RepositoryException("Contents folder does not exist for site: " + siteKey);
-                }
-                Node contents = (Node) session.getItem(contentsPath);
-                folder = contents.addNode("social-accounts", "jnt:contentFolder");
-            }
-
-            String nodeName = platform + "-" + System.currentTimeMillis();
-            Node account = folder.addNode(nodeName, "socialnt:account");
-
-            account.setProperty("social:platform", platform);
-            if (label != null) {
-                account.setProperty("social:label", label);
-            }
-            if (handle != null) {
-                account.setProperty("social:handle", handle);
-            }
-            if (pageId != null) {
-                account.setProperty("social:pageId", pageId);
-            }
-            if (accessToken != null) {
-                account.setProperty("social:accessToken", accessToken);
-            }
-            if (refreshToken != null) {
-                account.setProperty("social:refreshToken", refreshToken);
-            }
-            if (expiry != null) {
-                account.setProperty("social:tokenExpiry", expiry);
-            }
-            account.setProperty("social:isActive", true);
-
-            session.save();
-            return null;
-        });
-    }
-
     private String extractSiteFromState(String state) {
         if (state == null) {
             return null;
@@ -389,9 +334,10 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
     }
 
     /**
-     * Basic HTTP GET helper returning the response body as a string, or null on failure.
+     * Basic HTTP GET helper that stream-parses the wanted top-level fields from a JSON response.
+     * Returns null on failure; the body is never read into a String on the success path.
      */
-    private String httpGet(String url) {
+    private Map<String, String> httpGetFields(String url, String... fields) {
         HttpURLConnection connection = null;
         try {
             URL target = new URL(url);
@@ -401,16 +347,15 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             connection.setReadTimeout(20000);
 
             int status = connection.getResponseCode();
-            java.io.InputStream stream = status >= 200 && status < 400 ? connection.getInputStream() : connection.getErrorStream();
-            if (stream == null) {
+            if (status < 200 || status >= 400) {
+                logErrorBody("HTTP GET " + stripQuery(url), status, connection.getErrorStream());
                 return null;
             }
-            try (java.util.Scanner scanner = new java.util.Scanner(stream, StandardCharsets.UTF_8.name())) {
-                scanner.useDelimiter("\\A");
-                return scanner.hasNext() ? scanner.next() : null;
+            try (InputStream stream = connection.getInputStream()) {
+                return JsonStreamParser.readFields(stream, fields);
             }
         } catch (IOException e) {
-            logger.error("HTTP GET failed for {}", url, e);
+            logger.error("HTTP GET failed for {}", stripQuery(url), e);
             return null;
         } finally {
             if (connection != null) {
@@ -419,28 +364,23 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
         }
     }
 
-    private String extractJsonString(String json, String key) {
-        if (json == null || key == null) {
-            return null;
+    /**
+     * Logs an error response body. Error payloads are small, so they are read in full for diagnostics.
+     */
+    private void logErrorBody(String operation, int status, InputStream errorStream) {
+        if (errorStream == null) {
+            logger.error("{} failed with HTTP {}", operation, status);
+            return;
         }
-        String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-        Matcher m = Pattern.compile(pattern).matcher(json);
-        if (m.find()) {
-            return m.group(1);
+        try (Scanner scanner = new Scanner(errorStream, StandardCharsets.UTF_8.name())) {
+            scanner.useDelimiter("\\A");
+            logger.error("{} failed with HTTP {}: {}", operation, status, scanner.hasNext() ? scanner.next() : "");
         }
-        return null;
     }
 
-    private String extractJsonNumberAsString(String json, String key) {
-        if (json == null || key == null) {
-            return null;
-        }
-        String pattern = "\"" + key + "\"\\s*:\\s*([0-9]+)";
-        Matcher m = Pattern.compile(pattern).matcher(json);
-        if (m.find()) {
-            return m.group(1);
-        }
-        return null;
+    private String stripQuery(String url) {
+        int queryStart = url.indexOf('?');
+        return queryStart >= 0 ? url.substring(0, queryStart) : url;
     }
 
     /**
@@ -631,7 +571,7 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             + "&client_secret=" + urlEncode(facebookAppSecret)
             + "&code=" + urlEncode(code);
 
-        String shortTokenResponse = httpGet(shortTokenUrl);
+        Map<String, String> shortTokenResponse = httpGetFields(shortTokenUrl, "access_token", "expires_in");
         if (shortTokenResponse == null) {
             response.setContentType("text/html");
             response.getWriter().write(generateErrorPage("Facebook",
@@ -640,8 +580,8 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             return;
         }
 
-        String shortToken = extractJsonString(shortTokenResponse, "access_token");
-        String expiresInStr = extractJsonNumberAsString(shortTokenResponse, "expires_in");
+        String shortToken = shortTokenResponse.get("access_token");
+        String expiresInStr = shortTokenResponse.get("expires_in");
         if (shortToken == null || shortToken.isEmpty()) {
             response.setContentType("text/html");
             response.getWriter().write(generateErrorPage("Facebook",
@@ -657,7 +597,7 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             + "&client_secret=" + urlEncode(facebookAppSecret)
             + "&fb_exchange_token=" + urlEncode(shortToken);
 
-        String longTokenResponse = httpGet(longTokenUrl);
+        Map<String, String> longTokenResponse = httpGetFields(longTokenUrl, "access_token", "expires_in");
         if (longTokenResponse == null) {
             response.setContentType("text/html");
             response.getWriter().write(generateErrorPage("Facebook",
@@ -666,8 +606,8 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             return;
         }
 
-        String longToken = extractJsonString(longTokenResponse, "access_token");
-        String longExpiresInStr = extractJsonNumberAsString(longTokenResponse, "expires_in");
+        String longToken = longTokenResponse.get("access_token");
+        String longExpiresInStr = longTokenResponse.get("expires_in");
         if (longToken == null || longToken.isEmpty()) {
             logger.warn("Long-lived token missing; will fall back to short-lived token.");
         }
@@ -696,12 +636,13 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             logger.warn("Unable to parse expires_in: {}", e.getMessage());
         }
 
+        AccountImportResult importResult;
         try {
             // Use the user token to call /me/accounts and store page tokens
             String userToken = longToken != null ? longToken : shortToken;
             logger.info("[SERVLET] >>> Calling connectFacebookAccount with user token for site: {}", siteKey);
-            socialAccountService.connectFacebookAccount(userToken, siteKey);
-            logger.info("[SERVLET] >>> Successfully connected Facebook account(s)");
+            importResult = socialAccountService.connectFacebookAccount(userToken, siteKey);
+            logger.info("[SERVLET] >>> Successfully connected Facebook account(s): {}", importResult);
         } catch (RepositoryException e) {
             logger.error("Failed to connect Facebook account", e);
             response.setContentType("text/html");
@@ -714,22 +655,94 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
         // 4. Redirect to success page
         response.setContentType("text/html");
         response.getWriter().write(generateSuccessPage("Facebook",
-            "Facebook account(s) connected successfully! You can now close this window."));
+            "Facebook Pages connected successfully (" + importResult + "). You can now close this window."));
     }
     
     /**
      * Handle Instagram OAuth callback
+     * 
+     * Instagram business accounts use Facebook Login:
+     * 1. Exchange authorization code for a user token, then for a long-lived one
+     * 2. Import the Instagram business accounts linked to the user's Pages
      */
     private void handleInstagramCallback(String code, String state, 
                                         HttpServletRequest request, 
                                         HttpServletResponse response) throws IOException {
         logger.info("Processing Instagram OAuth callback");
         
-        // TODO: Implement Instagram token exchange
+        if (instagramAppId == null || instagramAppSecret == null || instagramAppId.isEmpty() || instagramAppSecret.isEmpty()) {
+            response.setContentType("text/html");
+            response.getWriter().write(generateErrorPage("Instagram",
+                "Missing configuration",
+                "instagram.appId or instagram.appSecret is not configured."));
+            return;
+        }
+        
+        // 1. Exchange code for short-lived token
+        String redirectUri = resolveRedirectUri(instagramRedirectUri, request, "instagram");
+        String shortTokenUrl = "https://graph.facebook.com/v20.0/oauth/access_token"
+            + "?client_id=" + urlEncode(instagramAppId)
+            + "&redirect_uri=" + urlEncode(redirectUri)
+            + "&client_secret=" + urlEncode(instagramAppSecret)
+            + "&code=" + urlEncode(code);
+        
+        Map<String, String> shortTokenResponse = httpGetFields(shortTokenUrl, "access_token");
+        String shortToken = shortTokenResponse != null ? shortTokenResponse.get("access_token") : null;
+        if (shortToken == null || shortToken.isEmpty()) {
+            response.setContentType("text/html");
+            response.getWriter().write(generateErrorPage("Instagram",
+                "Token exchange failed",
+                "Could not retrieve an access token."));
+            return;
+        }
+        
+        // 2. Exchange for long-lived token, so the derived Page tokens do not expire
+        String longTokenUrl = "https://graph.facebook.com/v20.0/oauth/access_token"
+            + "?grant_type=fb_exchange_token"
+            + "&client_id=" + urlEncode(instagramAppId)
+            + "&client_secret=" + urlEncode(instagramAppSecret)
+            + "&fb_exchange_token=" + urlEncode(shortToken);
+        
+        Map<String, String> longTokenResponse = httpGetFields(longTokenUrl, "access_token");
+        String longToken = longTokenResponse != null ? longTokenResponse.get("access_token") : null;
+        if (longToken == null || longToken.isEmpty()) {
+            logger.warn("Long-lived Instagram token missing; will fall back to short-lived token.");
+            longToken = shortToken;
+        }
+        
+        String siteKey = extractSiteFromState(state);
+        if (siteKey == null || siteKey.isEmpty()) {
+            siteKey = request.getParameter("site");
+        }
+        if (siteKey == null || siteKey.isEmpty()) {
+            siteKey = "digitall";
+        }
+        
+        // 3. Store the linked Instagram business accounts
+        AccountImportResult importResult;
+        try {
+            importResult = socialAccountService.connectInstagramAccounts(longToken, siteKey);
+            logger.info("[SERVLET] >>> Connected Instagram account(s) for site {}: {}", siteKey, importResult);
+        } catch (RepositoryException e) {
+            logger.error("Failed to connect Instagram account", e);
+            response.setContentType("text/html");
+            response.getWriter().write(generateErrorPage("Instagram",
+                "Storage error",
+                "Failed to store account in JCR: " + e.getMessage()));
+            return;
+        }
+        
+        if (importResult.getConnectedNames().isEmpty()) {
+            response.setContentType("text/html");
+            response.getWriter().write(generateErrorPage("Instagram",
+                "No Instagram business account",
+                "None of your Facebook Pages has a linked Instagram business account you can publish to."));
+            return;
+        }
         
         response.setContentType("text/html");
         response.getWriter().write(generateSuccessPage("Instagram", 
-            "Instagram account connected successfully!"));
+            "Instagram account(s) connected successfully (" + importResult + "). You can now close this window."));
     }
     
     /**
@@ -782,20 +795,10 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             connection.getOutputStream().write(postData.getBytes(StandardCharsets.UTF_8));
             
             int responseCode = connection.getResponseCode();
-            InputStream stream = responseCode >= 200 && responseCode < 400 ? 
-                connection.getInputStream() : connection.getErrorStream();
-            String responseBody = null;
-            if (stream != null) {
-                try (Scanner scanner = new Scanner(stream, StandardCharsets.UTF_8.name())) {
-                    scanner.useDelimiter("\\A");
-                    responseBody = scanner.hasNext() ? scanner.next() : null;
-                }
-            }
-            
             logger.info("[OAuth] LinkedIn token exchange response code: {}", responseCode);
             
             if (responseCode != 200) {
-                logger.error("[OAuth] LinkedIn token exchange failed: {}", responseBody);
+                logErrorBody("[OAuth] LinkedIn token exchange", responseCode, connection.getErrorStream());
                 response.setContentType("text/html");
                 response.getWriter().write(generateErrorPage("LinkedIn", 
                     "Token Exchange Failed", 
@@ -803,10 +806,17 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
                 return;
             }
             
-            // Parse access token from response
-            org.json.JSONObject tokenData = new org.json.JSONObject(responseBody);
-            String accessToken = tokenData.getString("access_token");
-            int expiresIn = tokenData.optInt("expires_in", 5184000); // Default 60 days
+            // Stream-parse access token from response
+            Map<String, String> tokenData;
+            try (InputStream stream = connection.getInputStream()) {
+                tokenData = JsonStreamParser.readFields(stream, "access_token", "expires_in", "refresh_token");
+            }
+            String accessToken = tokenData.get("access_token");
+            if (accessToken == null || accessToken.isEmpty()) {
+                throw new IOException("LinkedIn did not return an access_token");
+            }
+            int expiresIn = tokenData.get("expires_in") != null
+                ? Integer.parseInt(tokenData.get("expires_in")) : 5184000; // Default 60 days
             
             logger.info("[OAuth] LinkedIn access token obtained, expires in: {} seconds", expiresIn);
             
@@ -817,20 +827,10 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             profileConnection.setRequestProperty("Authorization", "Bearer " + accessToken);
             
             int profileResponseCode = profileConnection.getResponseCode();
-            InputStream profileStream = profileResponseCode >= 200 && profileResponseCode < 400 ? 
-                profileConnection.getInputStream() : profileConnection.getErrorStream();
-            String profileResponseBody = null;
-            if (profileStream != null) {
-                try (Scanner profileScanner = new Scanner(profileStream, StandardCharsets.UTF_8.name())) {
-                    profileScanner.useDelimiter("\\A");
-                    profileResponseBody = profileScanner.hasNext() ? profileScanner.next() : null;
-                }
-            }
-            
             logger.info("[OAuth] LinkedIn profile response code: {}", profileResponseCode);
             
             if (profileResponseCode != 200) {
-                logger.error("[OAuth] LinkedIn profile fetch failed: {}", profileResponseBody);
+                logErrorBody("[OAuth] LinkedIn profile fetch", profileResponseCode, profileConnection.getErrorStream());
                 response.setContentType("text/html");
                 response.getWriter().write(generateErrorPage("LinkedIn", 
                     "Profile Fetch Failed", 
@@ -838,16 +838,16 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
                 return;
             }
             
-            org.json.JSONObject profileData = new org.json.JSONObject(profileResponseBody);
+            Map<String, String> profileData;
+            try (InputStream profileStream = profileConnection.getInputStream()) {
+                profileData = JsonStreamParser.readFields(profileStream, "sub", "name", "email");
+            }
             
             // The 'sub' field contains the unique person identifier
             // This will be used as "urn:li:person:{sub}" for posting via ugcPosts API
-            String personId = profileData.optString("sub", "unknown");
-            String name = profileData.optString("name", "LinkedIn User");
-            String givenName = profileData.optString("given_name", "");
-            String familyName = profileData.optString("family_name", "");
-            String email = profileData.optString("email", "");
-            String picture = profileData.optString("picture", "");
+            String personId = profileData.getOrDefault("sub", "unknown");
+            String name = profileData.getOrDefault("name", "LinkedIn User");
+            String email = profileData.getOrDefault("email", "");
             
             logger.info("[OAuth] LinkedIn profile: personId={}, name={}, email={}", personId, name, email);
             
@@ -868,7 +868,7 @@ public class SocialOAuthCallbackServlet extends AbstractServletFilter {
             
             try {
                 socialAccountService.connectLinkedInAccount(
-                    siteKey, personId, name, email, accessToken, expiresIn
+                    siteKey, personId, name, email, accessToken, tokenData.get("refresh_token"), expiresIn
                 );
                 logger.info("[OAuth] LinkedIn account stored successfully");
             } catch (RepositoryException e) {
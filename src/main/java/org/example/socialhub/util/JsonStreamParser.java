@@ -0,0 +1,408 @@
+package org.example.socialhub.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal streaming (pull) JSON parser used to read platform API responses.
+ *
+ * Tokens are read straight from the underlying stream through a small character buffer,
+ * so large responses are never materialised as a String. Callers pull tokens one at a time
+ * with {@link #nextToken()} and may stop as soon as they have what they need.
+ *
+ * For the common case of picking a few values out of a response, use
+ * {@link #readFields(InputStream, String...)} with dotted paths (e.g. "paging.next").
+ */
+public final class JsonStreamParser implements Closeable {
+
+    /**
+     * JSON token types returned by {@link #nextToken()}.
+     */
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME,
+        VALUE_STRING, VALUE_NUMBER, VALUE_TRUE, VALUE_FALSE, VALUE_NULL;
+
+        public boolean isScalar() {
+            return this == VALUE_STRING || this == VALUE_NUMBER || this == VALUE_TRUE
+                || this == VALUE_FALSE || this == VALUE_NULL;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_DEPTH = 256;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Container stack: true = object, false = array
+    private final boolean[] objectStack = new boolean[MAX_DEPTH];
+    private final String[] nameStack = new String[MAX_DEPTH];
+    private int depth;
+    private boolean expectName;
+
+    private Token currentToken;
+    private String text;
+    private final StringBuilder textBuilder = new StringBuilder(64);
+
+    public JsonStreamParser(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    public JsonStreamParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advance to the next token.
+     *
+     * @return the next token, or null at end of input
+     * @throws IOException on read failure or malformed JSON
+     */
+    public Token nextToken() throws IOException {
+        text = null;
+        int c = nextSignificantChar();
+        while (c == ',' || c == ':') {
+            if (c == ',' && depth > 0 && objectStack[depth - 1]) {
+                expectName = true;
+            }
+            c = nextSignificantChar();
+        }
+        if (c == -1) {
+            currentToken = null;
+            return null;
+        }
+
+        if (depth > 0 && objectStack[depth - 1] && expectName && c == '"') {
+            text = readString();
+            nameStack[depth - 1] = text;
+            expectName = false;
+            return currentToken = Token.FIELD_NAME;
+        }
+
+        switch (c) {
+            case '{':
+                push(true);
+                return currentToken = Token.START_OBJECT;
+            case '}':
+                pop();
+                return currentToken = Token.END_OBJECT;
+            case '[':
+                push(false);
+                return currentToken = Token.START_ARRAY;
+            case ']':
+                pop();
+                return currentToken = Token.END_ARRAY;
+            case '"':
+                text = readString();
+                return currentToken = Token.VALUE_STRING;
+            case 't':
+                readLiteral("true");
+                return currentToken = Token.VALUE_TRUE;
+            case 'f':
+                readLiteral("false");
+                return currentToken = Token.VALUE_FALSE;
+            case 'n':
+                readLiteral("null");
+                return currentToken = Token.VALUE_NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    text = readNumber((char) c);
+                    return currentToken = Token.VALUE_NUMBER;
+                }
+                throw new IOException("Malformed JSON: unexpected character '" + (char) c + "'");
+        }
+    }
+
+    public Token currentToken() {
+        return currentToken;
+    }
+
+    /**
+     * Text of the current token: the field name, the decoded string, the number literal,
+     * or "true"/"false" for booleans. Null for structural tokens and JSON null.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Name of the field the current token belongs to, or null when not inside an object.
+     */
+    public String getCurrentName() {
+        int index = (currentToken == Token.START_OBJECT || currentToken == Token.START_ARRAY) ? depth - 2 : depth - 1;
+        if (index < 0 || !objectStack[index]) {
+            return null;
+        }
+        return nameStack[index];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * If the current token starts an object or array, skip to its matching end token.
+     * Nested values are scanned but never decoded into Strings.
+     */
+    public void skipChildren() throws IOException {
+        if (currentToken != Token.START_OBJECT && currentToken != Token.START_ARRAY) {
+            return;
+        }
+        int target = depth - 1;
+        while (depth > target) {
+            int c = nextSignificantChar();
+            if (c == -1) {
+                throw new IOException("Malformed JSON: unexpected end of input");
+            }
+            switch (c) {
+                case '{':
+                    push(true);
+                    break;
+                case '[':
+                    push(false);
+                    break;
+                case '}':
+                case ']':
+                    pop();
+                    break;
+                case '"':
+                    skipString();
+                    break;
+                default:
+                    // Numbers, literals, separators - nothing to track
+                    break;
+            }
+        }
+        currentToken = objectStack[target] ? Token.END_OBJECT : Token.END_ARRAY;
+        expectName = false;
+        text = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Read selected values from a JSON object response without materialising the body.
+     *
+     * Paths are dot-separated member names from the root object (e.g. "id",
+     * "likes.summary.total_count"). Subtrees that cannot contain a wanted path are skipped,
+     * arrays are not descended into, and parsing stops as soon as every path has been found.
+     * JSON null values are reported as a null mapping.
+     *
+     * @param inputStream the response stream (not closed by this method)
+     * @param paths the dotted paths to extract
+     * @return map of path to scalar text, containing only the paths that were found
+     * @throws IOException on read failure or malformed JSON
+     */
+    public static Map<String, String> readFields(InputStream inputStream, String... paths) throws IOException {
+        return readFields(new JsonStreamParser(inputStream), paths);
+    }
+
+    /**
+     * Same as {@link #readFields(InputStream, String...)}, continuing from the parser's current
+     * position. If the parser is positioned on a START_OBJECT, that object is read; otherwise the
+     * next token must start an object.
+     */
+    public static Map<String, String> readFields(JsonStreamParser parser, String... paths) throws IOException {
+        Set<String> wanted = new HashSet<>(Arrays.asList(paths));
+        Set<String> prefixes = new HashSet<>();
+        for (String path : paths) {
+            int dot = path.indexOf('.');
+            while (dot > 0) {
+                prefixes.add(path.substring(0, dot));
+                dot = path.indexOf('.', dot + 1);
+            }
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        Token token = parser.currentToken == Token.START_OBJECT ? Token.START_OBJECT : parser.nextToken();
+        if (token != Token.START_OBJECT) {
+            return result;
+        }
+
+        Deque<String> pathStack = new ArrayDeque<>();
+        pathStack.push("");
+        while (!pathStack.isEmpty() && (token = parser.nextToken()) != null) {
+            if (token == Token.END_OBJECT) {
+                pathStack.pop();
+                continue;
+            }
+            if (token != Token.FIELD_NAME) {
+                throw new IOException("Malformed JSON: expected field name but got " + token);
+            }
+            String fieldPath = pathStack.peek() + parser.getText();
+            token = parser.nextToken();
+            if (token == Token.START_OBJECT) {
+                if (prefixes.contains(fieldPath)) {
+                    pathStack.push(fieldPath + ".");
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == Token.START_ARRAY) {
+                parser.skipChildren();
+            } else if (token != null && wanted.contains(fieldPath) && !result.containsKey(fieldPath)) {
+                result.put(fieldPath, parser.getText());
+                if (result.size() == wanted.size()) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void push(boolean isObject) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IOException("Malformed JSON: nesting deeper than " + MAX_DEPTH);
+        }
+        objectStack[depth] = isObject;
+        nameStack[depth] = null;
+        depth++;
+        expectName = isObject;
+    }
+
+    private void pop() throws IOException {
+        if (depth == 0) {
+            throw new IOException("Malformed JSON: unbalanced closing bracket");
+        }
+        depth--;
+        expectName = false;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private int nextSignificantChar() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private String readString() throws IOException {
+        textBuilder.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IOException("Malformed JSON: unterminated string");
+            }
+            if (c == '"') {
+                return textBuilder.toString();
+            }
+            if (c == '\\') {
+                textBuilder.append(readEscape());
+            } else {
+                textBuilder.append((char) c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IOException("Malformed JSON: unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Malformed JSON: invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                // Surrogate pairs arrive as two consecutive escapes and are appended one char at a time
+                return (char) value;
+            default:
+                throw new IOException("Malformed JSON: invalid escape sequence");
+        }
+    }
+
+    private String readNumber(char first) throws IOException {
+        textBuilder.setLength(0);
+        textBuilder.append(first);
+        while (true) {
+            if (position == limit && peekFill() == -1) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                textBuilder.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        return textBuilder.toString();
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 1; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw new IOException("Malformed JSON: invalid literal, expected " + literal);
+            }
+        }
+        text = literal.equals("null") ? null : literal;
+    }
+
+    private int peekFill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return -1;
+        }
+        return buffer[0];
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.socialhub.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsFolderTest {
+
+    private static final String CND = "src/main/resources/META-INF/definitions.cnd";
+
+    // path -> primary type of an in-memory content tree
+    private Map<String, String> nodes;
+
+    @Before
+    public void setUp() {
+        nodes = new HashMap<>();
+        nodes.put("/sites/demo", "jnt:virtualsite");
+    }
+
+    @Test
+    public void createsFolderWithAnalyticsType() throws Exception {
+        Node folder = AnalyticsFolder.getOrCreate(session(), "demo");
+        assertEquals("/sites/demo/social-analytics", folder.getPath());
+        assertEquals(AnalyticsFolder.TYPE, nodes.get("/sites/demo/social-analytics"));
+    }
+
+    @Test
+    public void missingSiteHasNoFolder() throws Exception {
+        assertNull(AnalyticsFolder.getOrCreate(session(), "unknown"));
+        assertNull(nodes.get("/sites/unknown/social-analytics"));
+    }
+
+    @Test
+    public void folderTypeAcceptsStoredTypes() throws IOException {
+        List<String> children = childTypes(AnalyticsFolder.TYPE);
+        assertTrue(children.toString(), children.contains("socialnt:metricsAggregate"));
+        assertTrue(children.toString(), children.contains("socialnt:metricsSketch"));
+        assertTrue(children.toString(), children.contains("socialnt:metricsHeatmap"));
+        assertTrue(children.toString(), children.contains("socialnt:metricsLeaderboard"));
+    }
+
+    /**
+     * Types of the "+ * (type)" child node definitions of a node type in definitions.cnd.
+     */
+    static List<String> childTypes(String nodeType) throws IOException {
+        List<String> types = new ArrayList<>();
+        boolean inType = false;
+        for (String line : Files.readAllLines(Paths.get(CND), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("[")) {
+                inType = trimmed.startsWith("[" + nodeType + "]");
+            } else if (inType && trimmed.startsWith("+ * (")) {
+                types.add(trimmed.substring(5, trimmed.indexOf(')')));
+            }
+        }
+        return types;
+    }
+
+    private Session session() {
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "nodeExists":
+                        return nodes.containsKey((String) args[0]);
+                    case "getNode":
+                        return node((String) args[0]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private Node node(String path) {
+        return (Node) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Node.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getPath":
+                        return path;
+                    case "hasNode":
+                        return nodes.containsKey(path + "/" + args[0]);
+                    case "getNode":
+                        return node(path + "/" + args[0]);
+                    case "addNode":
+                        nodes.put(path + "/" + args[0], (String) args[1]);
+                        return node(path + "/" + args[0]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.socialhub.service.impl;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KllSketchTest {
+
+    // Well above the expected 1.7 / k, so random compaction offsets do not make the test flaky
+    private static final double RANK_TOLERANCE = 0.03;
+
+    @Test
+    public void emptySketch() throws IOException {
+        KllSketch sketch = new KllSketch();
+        assertTrue(sketch.isEmpty());
+        assertEquals(0.0, sketch.rank(42), 0);
+        assertEquals(0, sketch.quantile(0.5));
+
+        KllSketch decoded = KllSketch.fromBytes(sketch.toBytes());
+        assertTrue(decoded.isEmpty());
+        assertEquals(0, decoded.quantile(0.99));
+    }
+
+    @Test
+    public void smallStreamsAreExact() {
+        KllSketch sketch = new KllSketch();
+        for (long value = 1; value <= 100; value++) {
+            sketch.update(value);
+        }
+        assertEquals(100, sketch.getCount());
+        assertEquals(1, sketch.quantile(0));
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(100, sketch.quantile(1));
+        assertEquals(0.495, sketch.rank(50), 1e-9);
+        assertEquals(1.0, sketch.rank(1000), 0);
+    }
+
+    @Test
+    public void largeStreamStaysWithinRankError() {
+        List<Long> values = shuffled(0, 100000, 7);
+        KllSketch sketch = new KllSketch();
+        for (long value : values) {
+            sketch.update(value);
+        }
+        assertEquals(100000, sketch.getCount());
+        assertTrue(sketch.toBytes().length < 8192);
+        assertRankError(sketch, 0, 100000);
+    }
+
+    @Test
+    public void mergedSketchesStayWithinRankError() {
+        // Two halves of a stream, with different value ranges, as two cluster nodes or sites would see them
+        KllSketch low = new KllSketch();
+        for (long value : shuffled(0, 30000, 1)) {
+            low.update(value);
+        }
+        KllSketch high = new KllSketch();
+        for (long value : shuffled(30000, 100000, 2)) {
+            high.update(value);
+        }
+
+        low.merge(high);
+
+        assertEquals(100000, low.getCount());
+        assertRankError(low, 0, 100000);
+        assertEquals(0.0, low.rank(0), RANK_TOLERANCE);
+        assertEquals(1.0, low.rank(100000), RANK_TOLERANCE);
+    }
+
+    @Test
+    public void mergingAnEmptySketchChangesNothing() {
+        KllSketch sketch = new KllSketch();
+        for (long value = 0; value < 1000; value++) {
+            sketch.update(value);
+        }
+        long median = sketch.quantile(0.5);
+        sketch.merge(new KllSketch());
+        assertEquals(1000, sketch.getCount());
+        assertEquals(median, sketch.quantile(0.5));
+
+        KllSketch empty = new KllSketch();
+        empty.merge(sketch);
+        assertFalse(empty.isEmpty());
+        assertEquals(sketch.rank(500), empty.rank(500), 0);
+    }
+
+    @Test
+    public void serializedSketchKeepsItsEstimates() throws IOException {
+        KllSketch sketch = new KllSketch();
+        for (long value : shuffled(0, 50000, 3)) {
+            sketch.update(value);
+        }
+
+        KllSketch decoded = KllSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getCount(), decoded.getCount());
+        for (double fraction = 0; fraction <= 1; fraction += 0.1) {
+            assertEquals(sketch.quantile(fraction), decoded.quantile(fraction));
+        }
+        assertEquals(sketch.rank(12345), decoded.rank(12345), 0);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedBytesFail() throws IOException {
+        KllSketch sketch = new KllSketch();
+        for (long value = 0; value < 500; value++) {
+            sketch.update(value);
+        }
+        byte[] bytes = sketch.toBytes();
+        KllSketch.fromBytes(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownVersionFails() throws IOException {
+        KllSketch.fromBytes(new byte[]{9, 0, 0, 0});
+    }
+
+    private static List<Long> shuffled(long from, long to, long seed) {
+        List<Long> values = new ArrayList<>();
+        for (long value = from; value < to; value++) {
+            values.add(value);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+
+    private static void assertRankError(KllSketch sketch, long from, long to) {
+        long count = to - from;
+        for (int step = 1; step < 10; step++) {
+            long value = from + count * step / 10;
+            assertEquals(step / 10.0, sketch.rank(value), RANK_TOLERANCE);
+            assertEquals(value, sketch.quantile(step / 10.0), count * RANK_TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsSample;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsAnomalyDetectorTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long START = 1700000000000L;
+
+    private MetricsAnomalyDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new MetricsAnomalyDetector(100);
+    }
+
+    @Test
+    public void steadyGrowthIsNotAnAnomaly() {
+        for (int hour = 0; hour < 24; hour++) {
+            assertTrue(observe("post", hour, 100L * hour, 10L * hour).isEmpty());
+        }
+    }
+
+    @Test
+    public void spikeAfterWarmupIsReported() {
+        for (int hour = 0; hour <= 10; hour++) {
+            assertTrue(observe("post", hour, 100L * hour, 10L * hour).isEmpty());
+        }
+
+        List<MetricsAnomalyDetector.Anomaly> anomalies = observe("post", 11, 1100, 100 + 250);
+
+        assertEquals(1, anomalies.size());
+        MetricsAnomalyDetector.Anomaly spike = anomalies.get(0);
+        assertEquals(MetricsAnomalyDetector.SPIKE, spike.type);
+        assertEquals("likes", spike.counter);
+        assertEquals(250, spike.amount);
+        assertEquals(10.0, spike.expected, 0.5);
+        assertTrue(spike.describe().startsWith("Spike in likes on facebook: +250"));
+    }
+
+    @Test
+    public void noSpikeDuringWarmup() {
+        observe("post", 0, 0, 0);
+        observe("post", 1, 100, 10);
+        assertTrue(observe("post", 2, 200, 1000).isEmpty());
+    }
+
+    @Test
+    public void smallJumpsAreNotSpikes() {
+        for (int hour = 0; hour <= 10; hour++) {
+            observe("post", hour, 0, hour);
+        }
+        // Far above the usual rate, but below the minimum spike size
+        assertTrue(observe("post", 11, 0, 10 + 20).isEmpty());
+    }
+
+    @Test
+    public void flatlineIsReportedOnce() {
+        for (int hour = 0; hour <= 10; hour++) {
+            observe("post", hour, 20L * hour, 0);
+        }
+
+        assertTrue(observe("post", 11, 200, 0).isEmpty());
+        assertTrue(observe("post", 12, 200, 0).isEmpty());
+        List<MetricsAnomalyDetector.Anomaly> anomalies = observe("post", 13, 200, 0);
+        assertEquals(1, anomalies.size());
+        assertEquals(MetricsAnomalyDetector.FLATLINE, anomalies.get(0).type);
+        assertEquals("impressions", anomalies.get(0).counter);
+        assertEquals(3, anomalies.get(0).amount);
+        assertTrue(observe("post", 14, 200, 0).isEmpty());
+    }
+
+    @Test
+    public void quietCountersDoNotFlatline() {
+        for (int hour = 0; hour < 24; hour++) {
+            assertTrue(observe("post", hour, 5, 0).isEmpty());
+        }
+    }
+
+    @Test
+    public void negativeDeltasAreIgnored() {
+        for (int hour = 0; hour <= 10; hour++) {
+            observe("post", hour, 100L * hour, 10L * hour);
+        }
+        // Recounted downwards, then back on track
+        assertTrue(observe("post", 11, 900, 50).isEmpty());
+        assertTrue(observe("post", 12, 1000, 60).isEmpty());
+    }
+
+    @Test
+    public void outOfOrderSamplesAreIgnored() {
+        observe("post", 5, 500, 50);
+        assertTrue(observe("post", 4, 0, 10000).isEmpty());
+        assertTrue(observe("post", 5, 0, 10000).isEmpty());
+    }
+
+    @Test
+    public void postsAreTrackedSeparately() {
+        for (int hour = 0; hour <= 10; hour++) {
+            observe("a", hour, 0, 10L * hour);
+            observe("b", hour, 0, 1000L * hour);
+        }
+        assertTrue(observe("b", 11, 0, 11000).isEmpty());
+        assertEquals(1, observe("a", 11, 0, 1100).size());
+    }
+
+    private List<MetricsAnomalyDetector.Anomaly> observe(String post, int hour, long impressions, long likes) {
+        return detector.observe(post, "facebook", new MetricsSample(START + hour * HOUR, impressions, 0, likes, 0, 0));
+    }
+}
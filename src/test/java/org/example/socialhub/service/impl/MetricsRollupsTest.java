@@ -0,0 +1,122 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsRollup;
+import org.example.socialhub.service.MetricsSample;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRollupsTest {
+
+    @Test
+    public void weeksStartOnMonday() {
+        long monday = utc(2024, Calendar.JANUARY, 8, 0, 0);
+        assertEquals(monday, MetricsRollups.bucketStart(monday, MetricsRollups.WEEK));
+        assertEquals(monday, MetricsRollups.bucketStart(utc(2024, Calendar.JANUARY, 10, 13, 30), MetricsRollups.WEEK));
+        assertEquals(monday, MetricsRollups.bucketStart(utc(2024, Calendar.JANUARY, 14, 23, 59), MetricsRollups.WEEK));
+        assertEquals(utc(2024, Calendar.JANUARY, 15, 0, 0),
+            MetricsRollups.bucketStart(utc(2024, Calendar.JANUARY, 15, 0, 0), MetricsRollups.WEEK));
+
+        Calendar start = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        start.setTimeInMillis(MetricsRollups.bucketStart(System.currentTimeMillis(), MetricsRollups.WEEK));
+        assertEquals(Calendar.MONDAY, start.get(Calendar.DAY_OF_WEEK));
+    }
+
+    @Test
+    public void bucketsBeforeEpochAlignDownwards() {
+        // Wednesday 1969-12-31 belongs to the week of Monday 1969-12-29
+        assertEquals(utc(1969, Calendar.DECEMBER, 29, 0, 0),
+            MetricsRollups.bucketStart(utc(1969, Calendar.DECEMBER, 31, 12, 0), MetricsRollups.WEEK));
+        assertEquals(-MetricsRollups.DAY, MetricsRollups.bucketStart(-1, MetricsRollups.DAY));
+    }
+
+    @Test
+    public void daysAndHoursAlignOnUtc() {
+        long time = utc(2024, Calendar.MARCH, 31, 1, 45);
+        assertEquals(utc(2024, Calendar.MARCH, 31, 0, 0), MetricsRollups.bucketStart(time, MetricsRollups.DAY));
+        assertEquals(utc(2024, Calendar.MARCH, 31, 1, 0), MetricsRollups.bucketStart(time, MetricsRollups.HOUR));
+    }
+
+    @Test
+    public void emptyInputGivesNoRollups() {
+        assertTrue(MetricsRollups.rollUp(Collections.emptyList(), MetricsRollups.DAY, null).isEmpty());
+        assertTrue(MetricsRollups.coarsen(Collections.emptyList(), MetricsRollups.WEEK).isEmpty());
+    }
+
+    @Test
+    public void rollUpTracksDeltaMinAndMax() {
+        long day = utc(2024, Calendar.JANUARY, 9, 0, 0);
+        MetricsSample previous = new MetricsSample(day - MetricsRollups.HOUR, 50, 5, 5, 0, 0);
+        List<MetricsSample> samples = Arrays.asList(
+            new MetricsSample(day + MetricsRollups.HOUR, 100, 8, 9, 2, 1),
+            new MetricsSample(day + 2 * MetricsRollups.HOUR, 80, 7, 12, 2, 1),
+            new MetricsSample(day + MetricsRollups.DAY, 120, 4, 12, 3, 1));
+
+        List<MetricsRollup> rollups = MetricsRollups.rollUp(samples, MetricsRollups.DAY, previous);
+
+        assertEquals(2, rollups.size());
+        MetricsRollup first = rollups.get(0);
+        assertEquals(day, first.getStart());
+        assertEquals(2, first.getSampleCount());
+        assertEquals(day + 2 * MetricsRollups.HOUR, first.getLast().getCapturedAt());
+        assertArrayEquals(new long[]{30, 2, 7, 2, 1}, MetricsRollups.counters(first.getDelta()));
+        assertArrayEquals(new long[]{80, 7, 9, 2, 1}, MetricsRollups.counters(first.getMin()));
+        assertArrayEquals(new long[]{100, 8, 12, 2, 1}, MetricsRollups.counters(first.getMax()));
+
+        // Counters can go down: the delta is negative, not clamped
+        MetricsRollup second = rollups.get(1);
+        assertEquals(day + MetricsRollups.DAY, second.getStart());
+        assertArrayEquals(new long[]{40, -3, 0, 1, 0}, MetricsRollups.counters(second.getDelta()));
+    }
+
+    @Test
+    public void firstBucketWithoutPreviousStartsFromItsFirstSample() {
+        long day = utc(2024, Calendar.JANUARY, 9, 0, 0);
+        List<MetricsRollup> rollups = MetricsRollups.rollUp(Arrays.asList(
+            new MetricsSample(day + MetricsRollups.HOUR, 100, 0, 10, 0, 0),
+            new MetricsSample(day + 3 * MetricsRollups.HOUR, 160, 0, 15, 0, 0)), MetricsRollups.DAY, null);
+
+        assertEquals(1, rollups.size());
+        assertArrayEquals(new long[]{60, 0, 5, 0, 0}, MetricsRollups.counters(rollups.get(0).getDelta()));
+    }
+
+    @Test
+    public void coarsenMergesDaysIntoMondayWeeks() {
+        long sunday = utc(2024, Calendar.JANUARY, 14, 0, 0);
+        List<MetricsSample> samples = Arrays.asList(
+            new MetricsSample(sunday + MetricsRollups.HOUR, 100, 0, 10, 0, 0),
+            new MetricsSample(sunday + MetricsRollups.DAY + MetricsRollups.HOUR, 150, 0, 12, 0, 0),
+            new MetricsSample(sunday + 2 * MetricsRollups.DAY + MetricsRollups.HOUR, 170, 0, 11, 0, 0));
+        MetricsSample previous = new MetricsSample(sunday - MetricsRollups.DAY, 90, 0, 10, 0, 0);
+        List<MetricsRollup> days = MetricsRollups.rollUp(samples, MetricsRollups.DAY, previous);
+
+        List<MetricsRollup> weeks = MetricsRollups.coarsen(days, MetricsRollups.WEEK);
+
+        assertEquals(2, weeks.size());
+        assertEquals(utc(2024, Calendar.JANUARY, 8, 0, 0), weeks.get(0).getStart());
+        assertArrayEquals(new long[]{10, 0, 0, 0, 0}, MetricsRollups.counters(weeks.get(0).getDelta()));
+        MetricsRollup week = weeks.get(1);
+        assertEquals(utc(2024, Calendar.JANUARY, 15, 0, 0), week.getStart());
+        assertEquals(MetricsRollups.WEEK, week.getResolution());
+        assertEquals(2, week.getSampleCount());
+        assertArrayEquals(new long[]{70, 0, 1, 0, 0}, MetricsRollups.counters(week.getDelta()));
+        assertArrayEquals(new long[]{150, 0, 11, 0, 0}, MetricsRollups.counters(week.getMin()));
+        assertArrayEquals(new long[]{170, 0, 12, 0, 0}, MetricsRollups.counters(week.getMax()));
+        assertEquals(sunday + 2 * MetricsRollups.DAY + MetricsRollups.HOUR, week.getLast().getCapturedAt());
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
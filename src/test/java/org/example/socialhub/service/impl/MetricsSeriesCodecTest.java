@@ -0,0 +1,128 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.MetricsRollup;
+import org.example.socialhub.service.MetricsSample;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsSeriesCodecTest {
+
+    @Test
+    public void samplesRoundTrip() throws IOException {
+        List<MetricsSample> samples = Arrays.asList(
+            new MetricsSample(1700000000000L, 1000, 20, 15, 3, 1),
+            new MetricsSample(1700003600000L, 1500, 22, 18, 3, 2),
+            new MetricsSample(1700007200000L, 250000, 900, 4000, 120, 75));
+
+        List<MetricsSample> decoded = MetricsSeriesCodec.decode(new ByteArrayInputStream(encode(samples)));
+
+        assertEquals(samples.size(), decoded.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertSample(samples.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void negativeDeltasRoundTrip() throws IOException {
+        // Platforms recount downwards, and legacy samples can be out of order
+        List<MetricsSample> samples = Arrays.asList(
+            new MetricsSample(1700007200000L, 500, 10, 40, 5, 5),
+            new MetricsSample(1700003600000L, 480, 9, 38, 0, 5),
+            new MetricsSample(1700010800000L, 0, 0, 0, 0, 0));
+
+        List<MetricsSample> decoded = MetricsSeriesCodec.decode(new ByteArrayInputStream(encode(samples)));
+
+        assertEquals(samples.size(), decoded.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertSample(samples.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void emptyInputDecodesToNothing() throws IOException {
+        assertTrue(MetricsSeriesCodec.decode(new ByteArrayInputStream(new byte[0])).isEmpty());
+        assertTrue(MetricsSeriesCodec.decodeRollups(new ByteArrayInputStream(new byte[0]), MetricsRollups.DAY).isEmpty());
+        assertEquals(0, MetricsSeriesCodec.encodeRollups(Arrays.asList()).length);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedRecordFails() throws IOException {
+        byte[] record = MetricsSeriesCodec.encode(null, new MetricsSample(1700000000000L, 1000, 20, 15, 3, 1));
+        MetricsSeriesCodec.decode(new ByteArrayInputStream(Arrays.copyOf(record, record.length - 1)));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedVarintFails() throws IOException {
+        // The capture time takes several bytes; stop in the middle of it
+        byte[] record = MetricsSeriesCodec.encode(null, new MetricsSample(1700000000000L, 1, 1, 1, 1, 1));
+        MetricsSeriesCodec.decode(new ByteArrayInputStream(Arrays.copyOf(record, 2)));
+    }
+
+    @Test
+    public void zigzagVarintsRoundTrip() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, 300, -300, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long value : values) {
+            MetricsSeriesCodec.writeVarLong(out, MetricsSeriesCodec.zigzag(value));
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        long[] decoded = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            decoded[i] = MetricsSeriesCodec.unzigzag(MetricsSeriesCodec.readVarLong(in));
+        }
+        assertArrayEquals(values, decoded);
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void rollupsRoundTrip() throws IOException {
+        long day = MetricsRollups.bucketStart(1700000000000L, MetricsRollups.DAY);
+        List<MetricsSample> samples = Arrays.asList(
+            new MetricsSample(day + MetricsRollups.HOUR, 100, 5, 10, 1, 0),
+            new MetricsSample(day + 5 * MetricsRollups.HOUR, 90, 6, 12, 1, 1),
+            new MetricsSample(day + MetricsRollups.DAY + MetricsRollups.HOUR, 300, 9, 20, 4, 1));
+        List<MetricsRollup> rollups = MetricsRollups.rollUp(samples, MetricsRollups.DAY, null);
+
+        List<MetricsRollup> decoded = MetricsSeriesCodec.decodeRollups(
+            new ByteArrayInputStream(MetricsSeriesCodec.encodeRollups(rollups)), MetricsRollups.DAY);
+
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < rollups.size(); i++) {
+            MetricsRollup expected = rollups.get(i);
+            MetricsRollup actual = decoded.get(i);
+            assertEquals(expected.getStart(), actual.getStart());
+            assertEquals(MetricsRollups.DAY, actual.getResolution());
+            assertEquals(expected.getSampleCount(), actual.getSampleCount());
+            assertSample(expected.getLast(), actual.getLast());
+            assertArrayEquals(MetricsRollups.counters(expected.getDelta()), MetricsRollups.counters(actual.getDelta()));
+            assertArrayEquals(MetricsRollups.counters(expected.getMin()), MetricsRollups.counters(actual.getMin()));
+            assertArrayEquals(MetricsRollups.counters(expected.getMax()), MetricsRollups.counters(actual.getMax()));
+        }
+    }
+
+    private static byte[] encode(List<MetricsSample> samples) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MetricsSample previous = null;
+        for (MetricsSample sample : samples) {
+            byte[] record = MetricsSeriesCodec.encode(previous, sample);
+            out.write(record, 0, record.length);
+            previous = sample;
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertSample(MetricsSample expected, MetricsSample actual) {
+        assertEquals(expected.getCapturedAt(), actual.getCapturedAt());
+        assertArrayEquals(MetricsRollups.counters(expected), MetricsRollups.counters(actual));
+    }
+}
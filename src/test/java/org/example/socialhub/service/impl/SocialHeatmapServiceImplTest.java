@@ -0,0 +1,69 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.PostingHeatmap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SocialHeatmapServiceImplTest {
+
+    @Test
+    public void firstContributionCountsThePost() {
+        long[][] heatmap = empty();
+        int slot = PostingHeatmap.slot(2, 9);
+        SocialHeatmapServiceImpl.contribute(heatmap, slot, 40, null);
+        assertEquals(1, heatmap[0][slot]);
+        assertEquals(40, heatmap[1][slot]);
+    }
+
+    @Test
+    public void laterContributionsOnlyAddTheChange() {
+        long[][] heatmap = empty();
+        int slot = PostingHeatmap.slot(5, 18);
+        SocialHeatmapServiceImpl.contribute(heatmap, slot, 40, null);
+        SocialHeatmapServiceImpl.contribute(heatmap, slot, 55, 40L);
+        // Likes can be withdrawn, the engagement then goes down
+        SocialHeatmapServiceImpl.contribute(heatmap, slot, 50, 55L);
+        assertEquals(1, heatmap[0][slot]);
+        assertEquals(50, heatmap[1][slot]);
+    }
+
+    @Test
+    public void incrementalUpdatesMatchFullRebuild() {
+        int[] slots = {PostingHeatmap.slot(1, 8), PostingHeatmap.slot(1, 8), PostingHeatmap.slot(7, 23)};
+        long[][] runs = {
+            {10, 0, 3},
+            {25, 4, 3},
+            {25, 9, 12},
+            {31, 9, 12}
+        };
+
+        long[][] incremental = empty();
+        Long[] contributed = new Long[slots.length];
+        for (long[] run : runs) {
+            for (int series = 0; series < slots.length; series++) {
+                if (contributed[series] != null && contributed[series] == run[series]) {
+                    continue;
+                }
+                SocialHeatmapServiceImpl.contribute(incremental, slots[series], run[series], contributed[series]);
+                contributed[series] = run[series];
+            }
+        }
+
+        long[][] full = empty();
+        long[] last = runs[runs.length - 1];
+        for (int series = 0; series < slots.length; series++) {
+            SocialHeatmapServiceImpl.contribute(full, slots[series], last[series], null);
+        }
+
+        assertArrayEquals(full[0], incremental[0]);
+        assertArrayEquals(full[1], incremental[1]);
+        assertEquals(2, incremental[0][PostingHeatmap.slot(1, 8)]);
+        assertEquals(40, incremental[1][PostingHeatmap.slot(1, 8)]);
+    }
+
+    private static long[][] empty() {
+        return new long[][]{new long[PostingHeatmap.SLOTS], new long[PostingHeatmap.SLOTS]};
+    }
+}
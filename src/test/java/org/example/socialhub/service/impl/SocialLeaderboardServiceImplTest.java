@@ -0,0 +1,115 @@
+package org.example.socialhub.service.impl;
+
+import org.example.socialhub.service.LeaderboardEntry;
+import org.example.socialhub.service.SocialLeaderboardService;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SocialLeaderboardServiceImplTest {
+
+    @Test
+    public void storedRankingsRoundTrip() {
+        Map<String, List<LeaderboardEntry>> rankings = new HashMap<>();
+        rankings.put("engagementRate/7d", Arrays.asList(
+            new LeaderboardEntry("uuid-a", "facebook", 0.5, 100, 10, 20, 15, 5),
+            new LeaderboardEntry("uuid-b", "facebook", 0.1, 1000, 50, 30, 10, 10)));
+        rankings.put("likes/1d", Arrays.asList(
+            new LeaderboardEntry("uuid-b", "facebook", 30, 1000, 50, 30, 10, 10)));
+
+        Map<String, List<LeaderboardEntry>> decoded =
+            SocialLeaderboardServiceImpl.decode("facebook", SocialLeaderboardServiceImpl.encode(rankings));
+
+        assertEquals(2, decoded.size());
+        List<LeaderboardEntry> rate = decoded.get("engagementRate/7d");
+        assertEquals(2, rate.size());
+        assertEquals("uuid-a", rate.get(0).getPostUuid());
+        assertEquals("facebook", rate.get(0).getPlatform());
+        assertEquals(0.5, rate.get(0).getScore(), 1e-9);
+        assertEquals(15, rate.get(0).getComments());
+        assertEquals("uuid-b", rate.get(1).getPostUuid());
+        assertEquals(0.1, rate.get(1).getScore(), 1e-9);
+        assertEquals(30.0, decoded.get("likes/1d").get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    public void malformedLinesAreSkipped() {
+        Map<String, List<LeaderboardEntry>> decoded = SocialLeaderboardServiceImpl.decode("linkedin", new String[]{
+            "likes/7d uuid-a 1 2 3",
+            "likes/7d uuid-b 1 2 x 4 5",
+            "unknown/7d uuid-c 1 2 3 4 5",
+            "shares/30d uuid-d 0 0 0 0 7"
+        });
+        assertEquals(1, decoded.size());
+        assertEquals(7.0, decoded.get("shares/30d").get(0).getScore(), 1e-9);
+        assertTrue(decoded.get("shares/30d").get(0).getImpressions() == 0);
+    }
+
+    @Test
+    public void windowsSumTheirDaysOnly() {
+        SocialLeaderboardServiceImpl.PostStats stats = new SocialLeaderboardServiceImpl.PostStats();
+        stats.add(100, new long[]{100, 1, 2, 0, 0});
+        stats.add(100, new long[]{50, 0, 1, 1, 0});
+        stats.add(95, new long[]{200, 0, 4, 0, 1});
+        stats.add(80, new long[]{1000, 0, 8, 0, 0});
+
+        assertArrayEquals(new long[]{150, 1, 3, 1, 0}, stats.sum(100, 1));
+        assertArrayEquals(new long[]{350, 1, 7, 1, 1}, stats.sum(100, 7));
+        assertArrayEquals(new long[]{1350, 1, 15, 1, 1}, stats.sum(100, 30));
+        // Days after "today" are not counted
+        assertArrayEquals(new long[]{1000, 0, 8, 0, 0}, stats.sum(90, 30));
+    }
+
+    @Test
+    public void ringReusesSlotsOfDaysOutsideTheMonth() {
+        SocialLeaderboardServiceImpl.PostStats stats = new SocialLeaderboardServiceImpl.PostStats();
+        stats.add(100, new long[]{0, 0, 5, 0, 0});
+        stats.add(130, new long[]{0, 0, 7, 0, 0});
+        // Same slot, older than the day it now holds
+        stats.add(100, new long[]{0, 0, 9, 0, 0});
+
+        assertArrayEquals(new long[]{0, 0, 7, 0, 0}, stats.sum(130, 30));
+        assertTrue(stats.hasDataSince(130));
+        assertFalse(stats.hasDataSince(131));
+    }
+
+    @Test
+    public void heapKeepsTheTopScores() {
+        SocialLeaderboardServiceImpl service = new SocialLeaderboardServiceImpl();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("leaderboardSize", "3");
+        service.activate(properties);
+
+        PriorityQueue<LeaderboardEntry> heap = new PriorityQueue<>(Comparator.comparingDouble(LeaderboardEntry::getScore));
+        for (int likes : new int[]{4, 9, 1, 7, 3, 8}) {
+            service.offer(heap, new LeaderboardEntry("uuid-" + likes, "facebook", likes, 0, 0, likes, 0, 0));
+        }
+        List<Double> scores = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            scores.add(heap.poll().getScore());
+        }
+        assertEquals(Arrays.asList(7.0, 8.0, 9.0), scores);
+    }
+
+    @Test
+    public void postsWithoutTheCounterAreNotRanked() {
+        long[] noImpressions = {0, 3, 5, 1, 0};
+        assertNull(SocialLeaderboardServiceImpl.score(SocialLeaderboardService.METRIC_ENGAGEMENT_RATE, noImpressions));
+        assertNull(SocialLeaderboardServiceImpl.score(SocialLeaderboardService.METRIC_SHARES, noImpressions));
+        assertEquals(5.0, SocialLeaderboardServiceImpl.score(SocialLeaderboardService.METRIC_LIKES, noImpressions), 1e-9);
+        assertEquals(0.09, SocialLeaderboardServiceImpl.score(SocialLeaderboardService.METRIC_ENGAGEMENT_RATE,
+            new long[]{100, 3, 5, 1, 0}), 1e-9);
+    }
+}
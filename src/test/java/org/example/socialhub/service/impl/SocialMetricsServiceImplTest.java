@@ -0,0 +1,152 @@
+package org.example.socialhub.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import java.lang.reflect.Proxy;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SocialMetricsServiceImplTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private final SocialMetricsServiceImpl service = new SocialMetricsServiceImpl();
+    private final long now = System.currentTimeMillis();
+
+    // property name -> Calendar or Long value of an in-memory post node
+    private Map<String, Object> properties;
+
+    @Before
+    public void setUp() {
+        properties = new HashMap<>();
+    }
+
+    @Test
+    public void newPostIsRefreshedEveryFiveMinutes() throws Exception {
+        publishedAgo(30 * MINUTE);
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(now + 5 * MINUTE, nextRefresh());
+        assertEquals(10L, properties.get("social:metricsEngagement"));
+        assertEquals(0L, properties.get("social:metricsStableRuns"));
+    }
+
+    @Test
+    public void intervalGrowsWithAge() throws Exception {
+        publishedAgo(3 * HOUR);
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(now + HOUR, nextRefresh());
+
+        publishedAgo(2 * DAY);
+        service.scheduleNextRefresh(post(), 20L, now);
+        assertEquals(now + 6 * HOUR, nextRefresh());
+
+        publishedAgo(10 * DAY);
+        service.scheduleNextRefresh(post(), 30L, now);
+        assertEquals(now + DAY, nextRefresh());
+    }
+
+    @Test
+    public void flatEngagementBacksOffUpToOneDay() throws Exception {
+        publishedAgo(3 * HOUR);
+        properties.put("social:metricsEngagement", 10L);
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(now + 2 * HOUR, nextRefresh());
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(now + 4 * HOUR, nextRefresh());
+
+        publishedAgo(2 * DAY);
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(3L, properties.get("social:metricsStableRuns"));
+        assertEquals(now + DAY, nextRefresh());
+    }
+
+    @Test
+    public void changedEngagementResetsBackoff() throws Exception {
+        publishedAgo(3 * HOUR);
+        properties.put("social:metricsEngagement", 10L);
+        properties.put("social:metricsStableRuns", 3L);
+        service.scheduleNextRefresh(post(), 12L, now);
+        assertEquals(0L, properties.get("social:metricsStableRuns"));
+        assertEquals(now + HOUR, nextRefresh());
+    }
+
+    @Test
+    public void failedFetchKeepsBackoff() throws Exception {
+        publishedAgo(3 * HOUR);
+        properties.put("social:metricsEngagement", 10L);
+        properties.put("social:metricsStableRuns", 2L);
+        service.scheduleNextRefresh(post(), null, now);
+        assertEquals(2L, properties.get("social:metricsStableRuns"));
+        assertEquals(now + 4 * HOUR, nextRefresh());
+    }
+
+    @Test
+    public void oldPostIsNoLongerRefreshed() throws Exception {
+        publishedAgo(31 * DAY);
+        properties.put("social:metricsNextRefresh", Calendar.getInstance());
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertFalse(properties.containsKey("social:metricsNextRefresh"));
+    }
+
+    @Test
+    public void postWithoutPublishDateCountsAsNew() throws Exception {
+        service.scheduleNextRefresh(post(), 10L, now);
+        assertEquals(now + 5 * MINUTE, nextRefresh());
+        assertTrue(properties.get("social:publishedAt") instanceof Calendar);
+    }
+
+    private void publishedAgo(long age) {
+        Calendar publishedAt = Calendar.getInstance();
+        publishedAt.setTimeInMillis(now - age);
+        properties.put("social:publishedAt", publishedAt);
+    }
+
+    private long nextRefresh() {
+        return ((Calendar) properties.get("social:metricsNextRefresh")).getTimeInMillis();
+    }
+
+    private Node post() {
+        return (Node) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Node.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getIdentifier":
+                        return "uuid-post";
+                    case "hasProperty":
+                        return properties.containsKey((String) args[0]);
+                    case "getProperty":
+                        return property((String) args[0]);
+                    case "setProperty":
+                        properties.put((String) args[0], args[1]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private Property property(String name) {
+        return (Property) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Property.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getDate":
+                    case "getLong":
+                        return properties.get(name);
+                    case "remove":
+                        properties.remove(name);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.socialhub.service.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SocialTokenServiceImplTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void dueTokensAreTakenSoonestFirst() {
+        PriorityQueue<SocialTokenServiceImpl.TokenEntry> queue = SocialTokenServiceImpl.expiryQueue(Arrays.asList(
+            entry("page-c", NOW + 6 * DAY),
+            entry("page-a", NOW - DAY),
+            entry("page-b", NOW + 2 * DAY)));
+
+        List<SocialTokenServiceImpl.TokenEntry> due = SocialTokenServiceImpl.pollDue(queue, NOW + 7 * DAY);
+
+        assertEquals(Arrays.asList("page-a", "page-b", "page-c"), labels(due));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void tokensOutsideTheWindowStayQueued() {
+        PriorityQueue<SocialTokenServiceImpl.TokenEntry> queue = SocialTokenServiceImpl.expiryQueue(Arrays.asList(
+            entry("page-late", NOW + 30 * DAY),
+            entry("page-edge", NOW + 7 * DAY),
+            entry("page-soon", NOW + DAY),
+            entry("page-next", NOW + 8 * DAY)));
+
+        List<SocialTokenServiceImpl.TokenEntry> due = SocialTokenServiceImpl.pollDue(queue, NOW + 7 * DAY);
+
+        assertEquals(Arrays.asList("page-soon", "page-edge"), labels(due));
+        assertEquals(2, queue.size());
+        assertEquals("page-next", queue.peek().label);
+    }
+
+    @Test
+    public void tokensWithoutExpiryAreNotQueued() {
+        PriorityQueue<SocialTokenServiceImpl.TokenEntry> queue = SocialTokenServiceImpl.expiryQueue(Arrays.asList(
+            entry("page-unknown", 0),
+            entry("page-a", NOW + DAY)));
+
+        assertEquals(1, queue.size());
+        assertEquals(Arrays.asList("page-a"), labels(SocialTokenServiceImpl.pollDue(queue, Long.MAX_VALUE)));
+    }
+
+    private static SocialTokenServiceImpl.TokenEntry entry(String label, long expiry) {
+        SocialTokenServiceImpl.TokenEntry entry = new SocialTokenServiceImpl.TokenEntry();
+        entry.platform = "facebook";
+        entry.label = label;
+        entry.expiry = expiry;
+        return entry;
+    }
+
+    private static List<String> labels(List<SocialTokenServiceImpl.TokenEntry> entries) {
+        List<String> labels = new ArrayList<>();
+        for (SocialTokenServiceImpl.TokenEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+}
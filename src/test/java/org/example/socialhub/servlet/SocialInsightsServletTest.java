@@ -0,0 +1,169 @@
+package org.example.socialhub.servlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SocialInsightsServletTest {
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final CountDownLatch fetchStarted = new CountDownLatch(1);
+    private final CountDownLatch fetchReleased = new CountDownLatch(1);
+    private final ExecutorService requests = Executors.newFixedThreadPool(2,
+        runnable -> new Thread(runnable, "insights-request"));
+    private volatile boolean blockFetches;
+    private volatile boolean failFetches;
+    private SocialInsightsServlet servlet;
+
+    @After
+    public void tearDown() {
+        requests.shutdownNow();
+        if (servlet != null) {
+            servlet.deactivate();
+        }
+    }
+
+    @Test
+    public void freshEntryIsServedFromCache() throws Exception {
+        servlet = servlet("300", "3600");
+        assertTrue(get().contains("\"likes\":1,\"source\":\"live\""));
+        assertTrue(get().contains("\"likes\":1,\"source\":\"cache\""));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void staleEntryIsServedWhileRefreshing() throws Exception {
+        servlet = servlet("0", "3600");
+        assertTrue(get().contains("\"likes\":1,\"source\":\"live\""));
+        // Past the TTL: the stale entry is answered at once and a refresh starts in the background
+        assertTrue(get().contains("\"likes\":1,\"source\":\"cache\""));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        String response = get();
+        while (!response.contains("\"likes\":2") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            response = get();
+        }
+        assertTrue(response, response.contains("\"likes\":2,\"source\":\"cache\""));
+    }
+
+    @Test
+    public void expiredEntryIsFetchedAgain() throws Exception {
+        servlet = servlet("0", "0");
+        get();
+        assertTrue(get().contains("\"likes\":2,\"source\":\"live\""));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneFetch() throws Exception {
+        servlet = servlet("300", "3600");
+        blockFetches = true;
+        Future<String> first = requests.submit(this::getFresh);
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        Future<String> second = requests.submit(this::getFresh);
+        awaitJoined();
+        fetchReleased.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).contains("\"likes\":1"));
+        assertTrue(second.get(5, TimeUnit.SECONDS).contains("\"likes\":1"));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void concurrentRequestsShareTheFailure() throws Exception {
+        servlet = servlet("300", "3600");
+        blockFetches = true;
+        failFetches = true;
+        Future<String> first = requests.submit(this::getFresh);
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        Future<String> second = requests.submit(this::getFresh);
+        awaitJoined();
+        fetchReleased.countDown();
+
+        for (Future<String> request : Arrays.asList(first, second)) {
+            try {
+                request.get(5, TimeUnit.SECONDS);
+                fail("The fetch failure was not passed on");
+            } catch (ExecutionException e) {
+                assertEquals("Graph API error 500", e.getCause().getMessage());
+            }
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    private SocialInsightsServlet servlet(String ttlSeconds, String staleSeconds) {
+        SocialInsightsServlet servlet = new SocialInsightsServlet() {
+            @Override
+            String fetchInsights(String platform, String postId, String siteKey, String accountId) throws Exception {
+                int fetch = fetches.incrementAndGet();
+                if (blockFetches) {
+                    fetchStarted.countDown();
+                    fetchReleased.await(5, TimeUnit.SECONDS);
+                }
+                if (failFetches) {
+                    throw new IOException("Graph API error 500");
+                }
+                return "{\"likes\":" + fetch + "}";
+            }
+        };
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("insightsCacheTtl", ttlSeconds);
+        properties.put("insightsCacheStaleTtl", staleSeconds);
+        servlet.activate(properties);
+        return servlet;
+    }
+
+    private String get() throws Exception {
+        return servlet.getInsights("facebook", "101_202", "demo", null, null, false);
+    }
+
+    private String getFresh() throws Exception {
+        return servlet.getInsights("facebook", "101_202", "demo", null, null, true);
+    }
+
+    /**
+     * Waits until both request threads are parked: the first in the fetch, the second on its result.
+     */
+    private void awaitJoined() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            int parked = 0;
+            for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                if ("insights-request".equals(thread.getKey().getName())
+                        && thread.getKey().getState() != Thread.State.RUNNABLE && isInGetInsights(thread.getValue())) {
+                    parked++;
+                }
+            }
+            if (parked == 2) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("The second request did not join the fetch in progress");
+    }
+
+    private static boolean isInGetInsights(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if ("getInsights".equals(frame.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.socialhub.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonStreamParserTest {
+
+    @Test
+    public void readsNestedPathsAndSkipsTheRest() throws IOException {
+        Map<String, String> fields = JsonStreamParser.readFields(json(
+            "{\"data\": [{\"id\": \"inner\"}], \"id\": \"123_456\", \"other\": {\"id\": \"x\"},"
+                + " \"likes\": {\"summary\": {\"total_count\": 42}}, \"rate\": -1.5e3, \"active\": true}"),
+            "id", "likes.summary.total_count", "rate", "active", "missing");
+
+        assertEquals(4, fields.size());
+        assertEquals("123_456", fields.get("id"));
+        assertEquals("42", fields.get("likes.summary.total_count"));
+        assertEquals("-1.5e3", fields.get("rate"));
+        assertEquals("true", fields.get("active"));
+        assertFalse(fields.containsKey("missing"));
+    }
+
+    @Test
+    public void nullValuesAreMappedToNull() throws IOException {
+        Map<String, String> fields = JsonStreamParser.readFields(json("{\"paging\": {\"next\": null}}"), "paging.next");
+        assertTrue(fields.containsKey("paging.next"));
+        assertNull(fields.get("paging.next"));
+    }
+
+    @Test
+    public void decodesEscapedStrings() throws IOException {
+        Map<String, String> fields = JsonStreamParser.readFields(json(
+            "{\"message\": \"He said \\\"hi\\\"\\n\\tC:\\\\path \\/ caf\\u00e9 \\ud83d\\ude00\","
+                + " \"skipped\": [\"a \\\"]\\\" b\", {\"c\": \"}\"}], \"name\": \"ok\"}"),
+            "message", "name");
+
+        assertEquals("He said \"hi\"\n\tC:\\path / caf\u00e9 \ud83d\ude00", fields.get("message"));
+        assertEquals("ok", fields.get("name"));
+    }
+
+    @Test
+    public void readsUtf8Text() throws IOException {
+        Map<String, String> fields = JsonStreamParser.readFields(json("{\"name\": \"Zo\u00e9 \u65e5\u672c\"}"), "name");
+        assertEquals("Zo\u00e9 \u65e5\u672c", fields.get("name"));
+    }
+
+    @Test
+    public void emptyInputGivesNoFields() throws IOException {
+        assertTrue(JsonStreamParser.readFields(json(""), "id").isEmpty());
+        assertTrue(JsonStreamParser.readFields(json("  \n"), "id").isEmpty());
+        assertTrue(JsonStreamParser.readFields(json("{}"), "id").isEmpty());
+        assertTrue(JsonStreamParser.readFields(json("[{\"id\": 1}]"), "id").isEmpty());
+    }
+
+    @Test
+    public void stopsOnceEveryFieldIsFound() throws IOException {
+        // The rest of the body is never read, so it need not even be valid
+        Map<String, String> fields = JsonStreamParser.readFields(json("{\"id\": 7, \"data\": [!!!"), "id");
+        assertEquals("7", fields.get("id"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedStringFails() throws IOException {
+        JsonStreamParser.readFields(json("{\"id\": \"12"), "id");
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedSkippedValueFails() throws IOException {
+        JsonStreamParser.readFields(json("{\"data\": [{\"id\": 1}, {\"id\""), "id");
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedUnicodeEscapeFails() throws IOException {
+        JsonStreamParser.readFields(json("{\"id\": \"\\u00"), "id");
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidEscapeFails() throws IOException {
+        JsonStreamParser.readFields(json("{\"id\": \"\\x\"}"), "id");
+    }
+
+    @Test
+    public void pullsTokensInOrder() throws IOException {
+        try (JsonStreamParser parser = new JsonStreamParser(json("{\"a\": [1, \"two\", null], \"b\": {}}"))) {
+            assertEquals(JsonStreamParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(JsonStreamParser.Token.FIELD_NAME, parser.nextToken());
+            assertEquals("a", parser.getText());
+            assertEquals(JsonStreamParser.Token.START_ARRAY, parser.nextToken());
+            assertEquals("a", parser.getCurrentName());
+            assertEquals(JsonStreamParser.Token.VALUE_NUMBER, parser.nextToken());
+            assertEquals("1", parser.getText());
+            assertEquals(JsonStreamParser.Token.VALUE_STRING, parser.nextToken());
+            assertEquals("two", parser.getText());
+            assertEquals(JsonStreamParser.Token.VALUE_NULL, parser.nextToken());
+            assertEquals(JsonStreamParser.Token.END_ARRAY, parser.nextToken());
+            assertEquals(JsonStreamParser.Token.FIELD_NAME, parser.nextToken());
+            assertEquals("b", parser.getText());
+            assertEquals(JsonStreamParser.Token.START_OBJECT, parser.nextToken());
+            assertEquals(JsonStreamParser.Token.END_OBJECT, parser.nextToken());
+            assertEquals(JsonStreamParser.Token.END_OBJECT, parser.nextToken());
+            assertNull(parser.nextToken());
+        }
+    }
+
+    private static InputStream json(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}